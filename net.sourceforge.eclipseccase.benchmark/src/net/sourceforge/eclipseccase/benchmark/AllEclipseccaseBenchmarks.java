@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.List;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.eclipseccase.test.SimulatedWorkspace;
+import net.sourceforge.eclipseccase.ui.ClearCaseDecorator;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs all benchmarks against the simulated engine and writes a report.
+ * <p>
+ * Run it as a JUnit plug-in test. The report is written to the file named by
+ * the system property <code>eclipseccase.benchmark.report</code> (default:
+ * <code>eclipseccase-benchmark.properties</code> in the temp directory). If
+ * <code>eclipseccase.benchmark.baseline</code> names the report of an earlier
+ * run, the changes are printed to the console.
+ * </p>
+ * <p>
+ * The fixtures come from the test fragment of the core plug-in, so the
+ * fragment has to be part of the launch.
+ * </p>
+ */
+public class AllEclipseccaseBenchmarks {
+
+	/** system property for the report file */
+	public static final String PROPERTY_REPORT = "eclipseccase.benchmark.report"; //$NON-NLS-1$
+
+	/** system property for the baseline report file */
+	public static final String PROPERTY_BASELINE = "eclipseccase.benchmark.baseline"; //$NON-NLS-1$
+
+	private static SimulatedWorkspace workspace;
+
+	private static BenchmarkReport report;
+
+	private static List<IResource> resources;
+
+	private static IFolder deepTree;
+
+	private final BenchmarkRunner runner = new BenchmarkRunner();
+
+	@BeforeClass
+	public static void setUpWorkspace() throws Exception {
+		report = new BenchmarkReport();
+		workspace = new SimulatedWorkspace("eclipseccase-benchmark"); //$NON-NLS-1$
+
+		// 100 folders with 1000 files each
+		resources = SimulatedWorkspace.members(workspace.createFlatTree(
+				"flat", 100, 1000)); //$NON-NLS-1$
+
+		// 1365 folders with 5 files each
+		deepTree = workspace.createDeepTree("deep", 6, 4, 5); //$NON-NLS-1$
+
+		workspace.share();
+		StateCacheBenchmarks.initialize(resources, ClearCase.IS_ELEMENT
+				| ClearCase.CHECKED_IN);
+		StateCacheBenchmarks.initialize(SimulatedWorkspace.members(deepTree),
+				ClearCase.IS_ELEMENT | ClearCase.CHECKED_IN);
+	}
+
+	@AfterClass
+	public static void writeReport() throws Exception {
+		try {
+			File reportFile = new File(System.getProperty(PROPERTY_REPORT,
+					new File(System.getProperty("java.io.tmpdir"), //$NON-NLS-1$
+							"eclipseccase-benchmark.properties").getPath())); //$NON-NLS-1$
+			report.write(reportFile);
+			System.out.println("benchmark report written to " + reportFile); //$NON-NLS-1$
+
+			String baseline = System.getProperty(PROPERTY_BASELINE);
+			if (baseline != null) {
+				report.compare(new File(baseline), new PrintWriter(System.out));
+			}
+		} finally {
+			workspace.dispose();
+		}
+	}
+
+	private void run(Benchmark benchmark) throws Exception {
+		BenchmarkResult result = runner.run(benchmark);
+		System.out.println(result);
+		report.add(result);
+	}
+
+	@Test
+	public void doUpdate() throws Exception {
+		List<IResource> subset = resources.subList(0, 10000);
+		run(StateCacheBenchmarks.doUpdateFromGivenState(subset));
+		run(StateCacheBenchmarks.doUpdateFromEngine(subset));
+	}
+
+	@Test
+	public void schedule() throws Exception {
+		run(StateCacheBenchmarks.schedule(workspace.getProject(), 10000));
+		run(StateCacheBenchmarks.schedule(workspace.getProject(), 50000));
+		run(StateCacheBenchmarks.schedule(workspace.getProject(), 100000));
+	}
+
+	@Test
+	public void persistence() throws Exception {
+		run(StateCacheBenchmarks.writeStateCache(resources));
+		run(StateCacheBenchmarks.readStateCache(resources));
+	}
+
+	@Test
+	public void viewprivListener() throws Exception {
+		run(StateCacheBenchmarks.printLines(100000));
+		List<IResource> subset = resources.subList(0, 10000);
+		StateCacheBenchmarks.initialize(subset, ClearCase.IS_ELEMENT
+				| ClearCase.CHECKED_OUT);
+		try {
+			run(StateCacheBenchmarks.printCheckouts(subset));
+		} finally {
+			StateCacheBenchmarks.initialize(subset, ClearCase.IS_ELEMENT
+					| ClearCase.CHECKED_IN);
+		}
+	}
+
+	@Test
+	public void dirtyState() throws Exception {
+		run(new Benchmark("decorator.dirtyState.deep") { //$NON-NLS-1$
+
+			@Override
+			public int run() {
+				// a clean tree is the worst case, every member is visited
+				assertEquals(ClearCaseDecorator.STATE_CLEAN, ClearCaseDecorator
+						.calculateMemberDirtyState(deepTree));
+				return 1;
+			}
+		});
+	}
+}
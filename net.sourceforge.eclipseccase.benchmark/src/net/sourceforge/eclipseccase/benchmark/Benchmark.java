@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.benchmark;
+
+/**
+ * A benchmark run by the {@link BenchmarkRunner}.
+ * <p>
+ * {@link #setUp()} is called once before the warm up, {@link #tearDown()}
+ * once after the last measured iteration. {@link #prepare()} runs before
+ * every iteration and is not measured.
+ * </p>
+ */
+public abstract class Benchmark {
+
+	private final String name;
+
+	/**
+	 * Creates a new benchmark.
+	 *
+	 * @param name
+	 *            the name used in the report (must not contain white space)
+	 */
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name used in the report.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets up the fixture.
+	 *
+	 * @throws Exception
+	 */
+	public void setUp() throws Exception {
+		// nothing by default
+	}
+
+	/**
+	 * Prepares the next iteration.
+	 *
+	 * @throws Exception
+	 */
+	public void prepare() throws Exception {
+		// nothing by default
+	}
+
+	/**
+	 * Runs one measured iteration.
+	 *
+	 * @return the number of operations done (used for the throughput)
+	 * @throws Exception
+	 */
+	public abstract int run() throws Exception;
+
+	/**
+	 * Releases the fixture.
+	 *
+	 * @throws Exception
+	 */
+	public void tearDown() throws Exception {
+		// nothing by default
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+
+/**
+ * Collects benchmark results and stores them as a properties file so that
+ * the results of two releases can be compared.
+ * <p>
+ * For every benchmark the keys <code>&lt;name&gt;.nsPerOp</code>,
+ * <code>&lt;name&gt;.opsPerSecond</code>, <code>&lt;name&gt;.p50us</code>
+ * and <code>&lt;name&gt;.p99us</code> are written.
+ * </p>
+ */
+public class BenchmarkReport {
+
+	private static final String NS_PER_OP = ".nsPerOp"; //$NON-NLS-1$
+
+	private static final String OPS_PER_SECOND = ".opsPerSecond"; //$NON-NLS-1$
+
+	private static final String P50 = ".p50us"; //$NON-NLS-1$
+
+	private static final String P99 = ".p99us"; //$NON-NLS-1$
+
+	private final Properties values = new Properties();
+
+	private final List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+
+	/**
+	 * Adds a result.
+	 *
+	 * @param result
+	 */
+	public synchronized void add(BenchmarkResult result) {
+		results.add(result);
+		String name = result.getName();
+		values.setProperty(name + NS_PER_OP, String.format(
+				"%.1f", Double.valueOf(result.getNanosPerOperation()))); //$NON-NLS-1$
+		values.setProperty(name + OPS_PER_SECOND, String.format(
+				"%.0f", Double.valueOf(result.getOperationsPerSecond()))); //$NON-NLS-1$
+		values.setProperty(name + P50, Long.toString(result.getP50Micros()));
+		values.setProperty(name + P99, Long.toString(result.getP99Micros()));
+	}
+
+	/**
+	 * Returns the results added so far.
+	 *
+	 * @return the results
+	 */
+	public synchronized List<BenchmarkResult> getResults() {
+		return new ArrayList<BenchmarkResult>(results);
+	}
+
+	/**
+	 * Writes the report.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void write(File file) throws IOException {
+		OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			values.store(os, "eclipse-ccase " //$NON-NLS-1$
+					+ ClearCasePlugin.getDefault().getBundle().getHeaders()
+							.get("Bundle-Version") + ", Java " //$NON-NLS-1$ //$NON-NLS-2$
+					+ System.getProperty("java.version") + ", " //$NON-NLS-1$ //$NON-NLS-2$
+					+ System.getProperty("os.name")); //$NON-NLS-1$
+		} finally {
+			os.close();
+		}
+	}
+
+	/**
+	 * Prints the change of the mean operation time of every benchmark
+	 * against a baseline report written by {@link #write(File)}.
+	 *
+	 * @param baseline
+	 *            the report of an earlier release
+	 * @param out
+	 *            the target
+	 * @throws IOException
+	 *             if the baseline can't be read
+	 */
+	public synchronized void compare(File baseline, PrintWriter out)
+			throws IOException {
+		Properties old = new Properties();
+		InputStream is = new BufferedInputStream(new FileInputStream(baseline));
+		try {
+			old.load(is);
+		} finally {
+			is.close();
+		}
+
+		TreeSet<String> names = new TreeSet<String>();
+		for (Object key : values.keySet()) {
+			String k = (String) key;
+			if (k.endsWith(NS_PER_OP)) {
+				names.add(k.substring(0, k.length() - NS_PER_OP.length()));
+			}
+		}
+
+		out.println(String.format("%-50s %14s %14s %9s", "benchmark", //$NON-NLS-1$ //$NON-NLS-2$
+				"baseline ns/op", "current ns/op", "change")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (String name : names) {
+			double current = Double.parseDouble(values.getProperty(name
+					+ NS_PER_OP));
+			String previous = old.getProperty(name + NS_PER_OP);
+			if (previous == null) {
+				out.println(String.format("%-50s %14s %14.1f %9s", name, "-", //$NON-NLS-1$ //$NON-NLS-2$
+						Double.valueOf(current), "new")); //$NON-NLS-1$
+				continue;
+			}
+			double before = Double.parseDouble(previous);
+			double change = before == 0 ? 0 : (current - before) * 100 / before;
+			out.println(String.format("%-50s %14.1f %14.1f %+8.1f%%", name, //$NON-NLS-1$
+					Double.valueOf(before), Double.valueOf(current), Double
+							.valueOf(change)));
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.benchmark;
+
+/**
+ * The measured result of a benchmark.
+ */
+public class BenchmarkResult {
+
+	private final String name;
+
+	private final int iterations;
+
+	private final long operations;
+
+	private final long totalNanos;
+
+	private final long p50Micros;
+
+	private final long p99Micros;
+
+	/**
+	 * Creates a new result.
+	 *
+	 * @param name
+	 *            the benchmark name
+	 * @param iterations
+	 *            the number of measured iterations
+	 * @param operations
+	 *            the operations done in all measured iterations
+	 * @param totalNanos
+	 *            the time spent in all measured iterations
+	 * @param p50Micros
+	 *            the median iteration time
+	 * @param p99Micros
+	 *            the 99th percentile of the iteration time
+	 */
+	public BenchmarkResult(String name, int iterations, long operations,
+			long totalNanos, long p50Micros, long p99Micros) {
+		this.name = name;
+		this.iterations = iterations;
+		this.operations = operations;
+		this.totalNanos = totalNanos;
+		this.p50Micros = p50Micros;
+		this.p99Micros = p99Micros;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Returns the mean time of one operation.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public double getNanosPerOperation() {
+		return operations == 0 ? 0.0 : (double) totalNanos / operations;
+	}
+
+	/**
+	 * Returns the throughput.
+	 *
+	 * @return the operations per second
+	 */
+	public double getOperationsPerSecond() {
+		return totalNanos == 0 ? 0.0 : operations * 1000000000.0 / totalNanos;
+	}
+
+	/** median iteration time in microseconds */
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	/** 99th percentile of the iteration time in microseconds */
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	@Override
+	public String toString() {
+		return name
+				+ ": " //$NON-NLS-1$
+				+ String.format("%.1f ns/op, %.0f ops/s, p50 %d us, p99 %d us", //$NON-NLS-1$
+						Double.valueOf(getNanosPerOperation()), Double
+								.valueOf(getOperationsPerSecond()), Long
+								.valueOf(p50Micros), Long.valueOf(p99Micros));
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.benchmark;
+
+import net.sourceforge.eclipseccase.statistics.LatencyHistogram;
+
+/**
+ * Runs benchmarks with a warm up phase and a number of measured iterations.
+ * <p>
+ * The number of iterations can be changed with the system properties
+ * <code>eclipseccase.benchmark.warmup</code> and
+ * <code>eclipseccase.benchmark.iterations</code>.
+ * </p>
+ */
+public class BenchmarkRunner {
+
+	/** system property for the number of warm up iterations */
+	public static final String PROPERTY_WARMUP = "eclipseccase.benchmark.warmup"; //$NON-NLS-1$
+
+	/** system property for the number of measured iterations */
+	public static final String PROPERTY_ITERATIONS = "eclipseccase.benchmark.iterations"; //$NON-NLS-1$
+
+	private final int warmup;
+
+	private final int iterations;
+
+	/**
+	 * Creates a runner configured by the system properties.
+	 */
+	public BenchmarkRunner() {
+		this(Integer.getInteger(PROPERTY_WARMUP, 5).intValue(), Integer
+				.getInteger(PROPERTY_ITERATIONS, 10).intValue());
+	}
+
+	/**
+	 * Creates a runner.
+	 *
+	 * @param warmup
+	 *            the number of warm up iterations
+	 * @param iterations
+	 *            the number of measured iterations
+	 */
+	public BenchmarkRunner(int warmup, int iterations) {
+		this.warmup = warmup;
+		this.iterations = Math.max(1, iterations);
+	}
+
+	/**
+	 * Runs a benchmark.
+	 *
+	 * @param benchmark
+	 * @return the result
+	 * @throws Exception
+	 *             if the benchmark fails
+	 */
+	public BenchmarkResult run(Benchmark benchmark) throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		long operations = 0;
+		long totalNanos = 0;
+		benchmark.setUp();
+		try {
+			for (int i = 0; i < warmup; i++) {
+				benchmark.prepare();
+				benchmark.run();
+			}
+			for (int i = 0; i < iterations; i++) {
+				benchmark.prepare();
+				System.gc();
+				long start = System.nanoTime();
+				operations += benchmark.run();
+				long nanos = System.nanoTime() - start;
+				totalNanos += nanos;
+				histogram.recordNanos(nanos);
+			}
+		} finally {
+			benchmark.tearDown();
+		}
+		return new BenchmarkResult(benchmark.getName(), iterations,
+				operations, totalNanos, histogram.getValueAtPercentile(50),
+				histogram.getValueAtPercentile(99));
+	}
+}
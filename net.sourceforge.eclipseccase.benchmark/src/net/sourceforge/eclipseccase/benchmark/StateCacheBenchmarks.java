@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseElementState;
+import net.sourceforge.eclipseccase.StateCache;
+import net.sourceforge.eclipseccase.StateCacheFactory;
+import net.sourceforge.eclipseccase.StateCacheInternals;
+import net.sourceforge.eclipseccase.ViewprivOperationListener;
+import net.sourceforge.eclipseccase.ViewprivOperationListenerCO;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Benchmarks of the state cache internals, reached through
+ * {@link StateCacheInternals}.
+ */
+public class StateCacheBenchmarks {
+
+	private StateCacheBenchmarks() {
+		// factory methods only
+	}
+
+	/**
+	 * Initializes the cached state of resources without calling the engine.
+	 *
+	 * @param resources
+	 * @param state
+	 *            the ClearCase state flags to apply
+	 */
+	public static void initialize(List<IResource> resources, int state) {
+		StateCacheFactory factory = StateCacheFactory.getInstance();
+		for (IResource resource : resources) {
+			StateCacheInternals.update(factory.getWithNoUpdate(resource),
+					stateOf(resource, state));
+		}
+	}
+
+	private static ClearCaseElementState stateOf(IResource resource, int state) {
+		ClearCaseElementState result = new ClearCaseElementState(resource
+				.getLocation().toOSString(), state);
+		result.version = "/main/1"; //$NON-NLS-1$
+		return result;
+	}
+
+	/**
+	 * Measures updating fresh state caches by querying the engine.
+	 *
+	 * @param resources
+	 * @return the benchmark
+	 */
+	public static Benchmark doUpdateFromEngine(final List<IResource> resources) {
+		return new Benchmark("stateCache.doUpdate.engine." + resources.size()) { //$NON-NLS-1$
+
+			final List<StateCache> caches = new ArrayList<StateCache>();
+
+			@Override
+			public void prepare() {
+				caches.clear();
+				for (IResource resource : resources) {
+					caches.add(StateCacheInternals.newStateCache(resource));
+				}
+			}
+
+			@Override
+			public int run() {
+				for (StateCache cache : caches) {
+					StateCacheInternals.update(cache, null);
+				}
+				return caches.size();
+			}
+		};
+	}
+
+	/**
+	 * Measures updating fresh state caches from a given state.
+	 *
+	 * @param resources
+	 * @return the benchmark
+	 */
+	public static Benchmark doUpdateFromGivenState(
+			final List<IResource> resources) {
+		return new Benchmark("stateCache.doUpdate.given." + resources.size()) { //$NON-NLS-1$
+
+			final List<StateCache> caches = new ArrayList<StateCache>();
+
+			final List<ClearCaseElementState> states = new ArrayList<ClearCaseElementState>();
+
+			@Override
+			public void setUp() {
+				for (IResource resource : resources) {
+					states.add(stateOf(resource, ClearCase.IS_ELEMENT
+							| ClearCase.CHECKED_IN));
+				}
+			}
+
+			@Override
+			public void prepare() {
+				caches.clear();
+				for (IResource resource : resources) {
+					caches.add(StateCacheInternals.newStateCache(resource));
+				}
+			}
+
+			@Override
+			public int run() {
+				for (int i = 0; i < caches.size(); i++) {
+					StateCacheInternals.update(caches.get(i), states.get(i));
+				}
+				return caches.size();
+			}
+		};
+	}
+
+	/**
+	 * Measures scheduling refresh jobs on an idle queue.
+	 *
+	 * @param project
+	 *            the project to create resource handles in
+	 * @param count
+	 *            the number of jobs
+	 * @return the benchmark
+	 */
+	public static Benchmark schedule(final IProject project, final int count) {
+		return new Benchmark("jobQueue.schedule." + count) { //$NON-NLS-1$
+
+			StateCacheInternals.JobQueue queue;
+
+			@Override
+			public void setUp() {
+				IResource[] handles = new IResource[count];
+				for (int i = 0; i < count; i++) {
+					handles[i] = project.getFile("queue/f" + i); //$NON-NLS-1$
+				}
+				queue = new StateCacheInternals.JobQueue(handles);
+			}
+
+			@Override
+			public void prepare() throws Exception {
+				// the queue starts executing the jobs of the previous run
+				// after its delay, drop them so every run starts idle
+				queue.clear();
+			}
+
+			@Override
+			public int run() {
+				queue.scheduleAll();
+				return count;
+			}
+
+			@Override
+			public void tearDown() throws Exception {
+				queue.clear();
+			}
+		};
+	}
+
+	/**
+	 * Measures persisting the state cache.
+	 *
+	 * @param resources
+	 *            initialized resources to persist
+	 * @return the benchmark
+	 */
+	public static Benchmark writeStateCache(final List<IResource> resources) {
+		return new Benchmark("stateCache.write." + resources.size()) { //$NON-NLS-1$
+
+			@Override
+			public int run() throws Exception {
+				ByteArrayOutputStream os = new ByteArrayOutputStream(
+						resources.size() * 128);
+				StateCacheInternals.writeStateCache(os);
+				return resources.size();
+			}
+		};
+	}
+
+	/**
+	 * Measures loading the state cache.
+	 *
+	 * @param resources
+	 *            initialized resources to persist and load
+	 * @return the benchmark
+	 */
+	public static Benchmark readStateCache(final List<IResource> resources) {
+		return new Benchmark("stateCache.read." + resources.size()) { //$NON-NLS-1$
+
+			File stateFile;
+
+			@Override
+			public void setUp() throws Exception {
+				stateFile = File.createTempFile("statecache", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+				OutputStream os = new BufferedOutputStream(
+						new FileOutputStream(stateFile));
+				try {
+					StateCacheInternals.writeStateCache(os);
+				} finally {
+					os.close();
+				}
+			}
+
+			@Override
+			public int run() throws Exception {
+				StateCacheInternals.readStateCache(stateFile);
+				return resources.size();
+			}
+
+			@Override
+			public void tearDown() {
+				stateFile.delete();
+			}
+		};
+	}
+
+	/**
+	 * Measures parsing checkout listings with
+	 * {@link ViewprivOperationListenerCO} for elements known to be checked
+	 * out.
+	 *
+	 * @param resources
+	 *            resources initialized as checked out
+	 * @return the benchmark
+	 */
+	public static Benchmark printCheckouts(final List<IResource> resources) {
+		return new Benchmark("viewpriv.print.checkouts." + resources.size()) { //$NON-NLS-1$
+
+			final List<String> lines = new ArrayList<String>();
+
+			@Override
+			public void setUp() {
+				for (IResource resource : resources) {
+					lines.add(resource.getLocation().toOSString());
+				}
+			}
+
+			@Override
+			public int run() {
+				ViewprivOperationListener listener = new ViewprivOperationListenerCO(
+						"benchmark", new NullProgressMonitor()); //$NON-NLS-1$
+				for (String line : lines) {
+					listener.print(line);
+				}
+				return lines.size();
+			}
+		};
+	}
+
+	/**
+	 * Measures the line handling of {@link ViewprivOperationListener} without
+	 * any analysis.
+	 *
+	 * @param count
+	 *            the number of lines
+	 * @return the benchmark
+	 */
+	public static Benchmark printLines(final int count) {
+		return new Benchmark("viewpriv.print.lines." + count) { //$NON-NLS-1$
+
+			final String[] lines = new String[count];
+
+			int analysed;
+
+			@Override
+			public void setUp() {
+				for (int i = 0; i < count; i++) {
+					lines[i] = "/vobs/benchmark/d" + (i / 1000) + "/f" + i //$NON-NLS-1$ //$NON-NLS-2$
+							+ ".txt"; //$NON-NLS-1$
+				}
+			}
+
+			@Override
+			public int run() {
+				ViewprivOperationListener listener = new ViewprivOperationListener(
+						"benchmark", new NullProgressMonitor()) { //$NON-NLS-1$
+
+					@Override
+					protected void analyseLine(String line) {
+						analysed++;
+					}
+				};
+				for (int i = 0; i < count; i++) {
+					listener.print(lines[i]);
+				}
+				return count;
+			}
+		};
+	}
+}
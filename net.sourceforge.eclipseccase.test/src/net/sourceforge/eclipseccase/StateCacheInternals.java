@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.sourceforge.clearcase.ClearCaseElementState;
+
+import org.eclipse.core.resources.IResource;
+
+/**
+ * Gives benchmarks and tests in other bundles access to the package private
+ * parts of the state cache. It is part of the test fragment, so it never
+ * ships with the plug-in.
+ * <p>
+ * This class is not API. Clients must not use it.
+ * </p>
+ */
+public final class StateCacheInternals {
+
+	private StateCacheInternals() {
+		// static methods only
+	}
+
+	/**
+	 * Creates a state cache that is not registered with the factory.
+	 *
+	 * @param resource
+	 * @return the new state cache
+	 */
+	public static StateCache newStateCache(IResource resource) {
+		return new StateCache(resource);
+	}
+
+	/**
+	 * Updates a state cache from the given state, or from the engine if no
+	 * state is given.
+	 *
+	 * @param cache
+	 * @param state
+	 *            the state (maybe <code>null</code>)
+	 */
+	public static void update(StateCache cache, ClearCaseElementState state) {
+		cache.doUpdate(state);
+	}
+
+	/**
+	 * Writes the state cache of all known resources.
+	 *
+	 * @param os
+	 * @throws IOException
+	 */
+	public static void writeStateCache(OutputStream os) throws IOException {
+		StateCacheFactory.getInstance().writeStateCache(os);
+	}
+
+	/**
+	 * Reads a state cache written by {@link #writeStateCache(OutputStream)}.
+	 *
+	 * @param stateFile
+	 * @throws Exception
+	 */
+	public static void readStateCache(File stateFile) throws Exception {
+		StateCacheFactory.getInstance().readStateCache(stateFile);
+	}
+
+	/**
+	 * A private refresh queue with a fixed set of jobs, every tenth of them
+	 * with high priority.
+	 */
+	public static final class JobQueue {
+
+		private final StateCacheJobQueue queue = new StateCacheJobQueue();
+
+		private final StateCacheJob[] jobs;
+
+		/**
+		 * Creates the queue and the refresh jobs of the given resources.
+		 *
+		 * @param resources
+		 */
+		public JobQueue(IResource[] resources) {
+			jobs = new StateCacheJob[resources.length];
+			for (int i = 0; i < resources.length; i++) {
+				jobs[i] = new StateCacheJob(new StateCache(resources[i]),
+						i % 10 == 0 ? StateCacheJob.PRIORITY_HIGH
+								: StateCacheJob.PRIORITY_DEFAULT);
+			}
+		}
+
+		/**
+		 * Schedules all jobs. The queue starts executing them after its usual
+		 * delay.
+		 */
+		public void scheduleAll() {
+			queue.schedule(jobs);
+		}
+
+		/**
+		 * Drops all scheduled jobs and waits until the queue is idle.
+		 *
+		 * @throws InterruptedException
+		 */
+		public void clear() throws InterruptedException {
+			queue.cancel(true);
+			queue.join();
+		}
+	}
+}
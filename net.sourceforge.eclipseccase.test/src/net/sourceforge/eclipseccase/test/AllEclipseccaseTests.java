@@ -16,7 +16,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses( { ClearCaseProviderTest.class})
+@Suite.SuiteClasses( { ClearCaseProviderTest.class, CallBudgetTest.class,
+		SimulatedClearCaseTest.class, PathAnonymizerTest.class })
 public class AllEclipseccaseTests {
 	// the class remains completely empty,
 	// being used only as a holder for the above annotations
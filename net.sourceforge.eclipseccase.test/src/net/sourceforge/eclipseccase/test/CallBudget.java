@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2009 eclipse-ccase.sourceforge.net team and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package net.sourceforge.eclipseccase.test;
+
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The maximum number of engine calls per command an operation may use.
+ * Commands without a budget must not be called at all.
+ */
+public class CallBudget {
+
+	/** the number of calls listed per exceeded command */
+	private static final int MAX_LISTED_CALLS = 20;
+
+	private final String operation;
+
+	private final Map<String, Integer> budget = new TreeMap<String, Integer>();
+
+	/**
+	 * Creates an empty budget.
+	 *
+	 * @param operation
+	 *            the name of the operation (used in the failure message)
+	 */
+	public CallBudget(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * Allows calls of a command.
+	 *
+	 * @param command
+	 *            the engine method name
+	 * @param maxCalls
+	 * @return this budget
+	 */
+	public CallBudget allow(String command, int maxCalls) {
+		budget.put(command, Integer.valueOf(maxCalls));
+		return this;
+	}
+
+	/**
+	 * Fails if the recorded calls exceed the budget. The failure message
+	 * lists every exceeded command with the calls that were made.
+	 *
+	 * @param log
+	 *            the recorded calls
+	 */
+	public void verify(EngineCallLog log) {
+		StringBuffer diff = new StringBuffer();
+		for (Map.Entry<String, Integer> entry : log.getCounts().entrySet()) {
+			String command = entry.getKey();
+			int actual = entry.getValue().intValue();
+			Integer allowed = budget.get(command);
+			int max = allowed == null ? 0 : allowed.intValue();
+			if (actual <= max) {
+				continue;
+			}
+			diff.append("\n  ").append(command).append(": ").append(actual) //$NON-NLS-1$ //$NON-NLS-2$
+					.append(" calls, budget ").append(max).append(" (+") //$NON-NLS-1$ //$NON-NLS-2$
+					.append(actual - max).append(')');
+			List<String> calls = log.getCalls(command);
+			for (int i = 0; i < calls.size() && i < MAX_LISTED_CALLS; i++) {
+				diff.append("\n    + ").append(calls.get(i)); //$NON-NLS-1$
+			}
+			if (calls.size() > MAX_LISTED_CALLS) {
+				diff.append("\n    ... ").append( //$NON-NLS-1$
+						calls.size() - MAX_LISTED_CALLS).append(" more"); //$NON-NLS-1$
+			}
+		}
+		if (diff.length() > 0) {
+			fail("cleartool call budget of \"" + operation + "\" exceeded:" //$NON-NLS-1$ //$NON-NLS-2$
+					+ diff + "\n  all calls: " + log.getCounts()); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2009 eclipse-ccase.sourceforge.net team and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package net.sourceforge.eclipseccase.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+import net.sourceforge.eclipseccase.ClearCaseProvider;
+import net.sourceforge.eclipseccase.IClearCasePreferenceConstants;
+import net.sourceforge.eclipseccase.StateCacheFactory;
+import net.sourceforge.eclipseccase.ViewPrivCollector;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Counts the engine calls of common operations against the simulated engine
+ * and fails if an operation uses more cleartool calls than declared in its
+ * budget. Run as JUnit plug-in test.
+ */
+public class CallBudgetTest {
+
+	private static final int FILES = 100;
+
+	private EngineCallLog log;
+
+	private SimulatedWorkspace workspace;
+
+	private IProject project;
+
+	private IFolder folder;
+
+	private ClearCaseProvider provider;
+
+	@Before
+	public void setUp() throws Exception {
+		workspace = new SimulatedWorkspace("ccase-call-budget"); //$NON-NLS-1$
+		StateCacheFactory.getInstance().setIsInitialized(true);
+		project = workspace.getProject();
+
+		// src/f<n>.txt plus two sub folders with five files each
+		folder = workspace.createFolder("src", FILES); //$NON-NLS-1$
+		workspace.createFolder("src/a", 5); //$NON-NLS-1$
+		workspace.createFolder("src/b", 5); //$NON-NLS-1$
+
+		provider = workspace.share();
+		waitForRefreshes();
+		log = EngineCallLog.install();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		waitForRefreshes();
+		workspace.dispose();
+	}
+
+	private static void waitForRefreshes() throws InterruptedException {
+		do {
+			Job.getJobManager().join(ClearCasePlugin.FAMILY_CLEARCASE_OPERATION,
+					null);
+			Thread.sleep(50);
+		} while (StateCacheFactory.getInstance().hasPendingUpdates());
+	}
+
+	/** asks for the state of every member like the decorator does */
+	private void decorateMembers(IContainer container) throws CoreException {
+		for (IResource member : container.members()) {
+			provider.isClearCaseElement(member);
+		}
+	}
+
+	private IResource[] files() {
+		List<IResource> files = new ArrayList<IResource>();
+		for (int i = 0; i < FILES; i++) {
+			files.add(folder.getFile("f" + i + ".txt")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return files.toArray(new IResource[files.size()]);
+	}
+
+	@Test
+	public void openProject() throws Exception {
+		project.close(null);
+		StateCacheFactory.getInstance().remove(project);
+
+		log.start();
+		project.open(null);
+		decorateMembers(project);
+		waitForRefreshes();
+		log.stop();
+
+		new CallBudget("open project") //$NON-NLS-1$
+				.allow("getElementState", 3) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+
+	@Test
+	public void expandFolder() throws Exception {
+		decorateMembers(project);
+		waitForRefreshes();
+
+		log.start();
+		decorateMembers(folder);
+		waitForRefreshes();
+		log.stop();
+
+		new CallBudget("expand folder") //$NON-NLS-1$
+				.allow("getElementState", FILES + 2) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+
+	@Test
+	public void checkout() throws Exception {
+		decorateMembers(folder);
+		waitForRefreshes();
+
+		log.start();
+		provider.checkout(files(), IResource.DEPTH_ZERO,
+				new NullProgressMonitor());
+		waitForRefreshes();
+		log.stop();
+
+		new CallBudget("checkout " + FILES + " files") //$NON-NLS-1$ //$NON-NLS-2$
+				.allow("getUpdateList", 1) //$NON-NLS-1$
+				.allow("checkout", 1) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+
+	@Test
+	public void checkoutOutdated() throws Exception {
+		decorateMembers(folder);
+		waitForRefreshes();
+		IResource[] files = files();
+		String outdated = files[1].getLocation().toOSString();
+		workspace.getSimulator().createVersion(outdated);
+
+		log.start();
+		provider.checkout(files, IResource.DEPTH_ZERO,
+				new NullProgressMonitor());
+		waitForRefreshes();
+		log.stop();
+
+		new CallBudget("checkout " + FILES + " files, one outdated") //$NON-NLS-1$ //$NON-NLS-2$
+				.allow("getUpdateList", 1) //$NON-NLS-1$
+				.allow("update", 1) //$NON-NLS-1$
+				.allow("checkout", 1) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+		assertEquals(workspace.getSimulator().getLatestVersion(outdated),
+				workspace.getSimulator().getLoadedVersion(outdated));
+	}
+
+	@Test
+	public void refreshCheckoutsView() throws Exception {
+		decorateMembers(folder);
+		waitForRefreshes();
+		provider.checkout(files(), IResource.DEPTH_ZERO,
+				new NullProgressMonitor());
+		waitForRefreshes();
+
+		log.start();
+		new ViewPrivCollector(new IResource[] { project })
+				.collectElements(new NullProgressMonitor());
+		waitForRefreshes();
+		log.stop();
+
+		new CallBudget("refresh checkouts view") //$NON-NLS-1$
+				.allow("getViewRoot", 1) //$NON-NLS-1$
+				.allow("getCheckedOutElements", 1) //$NON-NLS-1$
+				.allow("getUpdateList", 1) //$NON-NLS-1$
+				.allow("getViewLSViewOnlyList", 1) //$NON-NLS-1$
+				.allow("getElementState", 2) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+
+	@Test
+	public void checkin() throws Exception {
+		decorateMembers(folder);
+		waitForRefreshes();
+		provider.checkout(files(), IResource.DEPTH_ZERO,
+				new NullProgressMonitor());
+		waitForRefreshes();
+
+		log.start();
+		IResource[] identical = provider.checkin(files(),
+				IResource.DEPTH_ZERO, new NullProgressMonitor());
+		waitForRefreshes();
+		log.stop();
+
+		// unchanged files are recognized without asking cleartool
+		assertEquals(FILES, identical.length);
+		new CallBudget("checkin " + FILES + " files") //$NON-NLS-1$ //$NON-NLS-2$
+				.allow("checkin", 1) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+
+	@Test
+	public void checkinChanged() throws Exception {
+		decorateMembers(folder);
+		waitForRefreshes();
+		provider.checkout(files(), IResource.DEPTH_ZERO,
+				new NullProgressMonitor());
+		for (IResource file : files()) {
+			((IFile) file).setContents(new ByteArrayInputStream("changed" //$NON-NLS-1$
+					.getBytes()), true, false, null);
+		}
+		waitForRefreshes();
+
+		log.start();
+		provider.checkin(files(), IResource.DEPTH_ZERO,
+				new NullProgressMonitor());
+		waitForRefreshes();
+		log.stop();
+
+		// the content recorded on checkout replaces the predecessor query
+		new CallBudget("checkin " + FILES + " changed files") //$NON-NLS-1$ //$NON-NLS-2$
+				.allow("checkin", 1) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+
+	@Test
+	public void checkinIdenticalAllowed() throws Exception {
+		ClearCasePlugin.getDefault().getPluginPreferences().setValue(
+				IClearCasePreferenceConstants.CHECKIN_IDENTICAL, true);
+		try {
+			decorateMembers(folder);
+			waitForRefreshes();
+			provider.checkout(files(), IResource.DEPTH_ZERO,
+					new NullProgressMonitor());
+			waitForRefreshes();
+
+			log.start();
+			provider.checkin(files(), IResource.DEPTH_ZERO,
+					new NullProgressMonitor());
+			waitForRefreshes();
+			log.stop();
+		} finally {
+			ClearCasePlugin.getDefault().getPluginPreferences().setToDefault(
+					IClearCasePreferenceConstants.CHECKIN_IDENTICAL);
+		}
+
+		new CallBudget("checkin " + FILES + " identical files") //$NON-NLS-1$ //$NON-NLS-2$
+				.allow("checkin", 1) //$NON-NLS-1$
+				.allow("getViewName", 1) //$NON-NLS-1$
+				.allow("getViewType", 1) //$NON-NLS-1$
+				.verify(log);
+	}
+}
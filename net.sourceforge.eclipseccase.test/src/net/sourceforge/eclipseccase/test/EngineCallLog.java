@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2009 eclipse-ccase.sourceforge.net team and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package net.sourceforge.eclipseccase.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+import net.sourceforge.eclipseccase.engine.ClearCaseInterfaceDelegate;
+
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Collects the engine calls made between {@link #start()} and {@link #stop()}.
+ * <p>
+ * The log is a delegate installed as the shared engine by
+ * {@link #install()}, so every call is seen exactly once. Calls of the
+ * background query for checkouts in other views are not part of any
+ * operation and are not collected.
+ * </p>
+ */
+public class EngineCallLog extends ClearCaseInterfaceDelegate {
+
+	private volatile boolean recording;
+
+	private final List<String> calls = new ArrayList<String>();
+
+	private final Map<String, Integer> counts = new TreeMap<String, Integer>();
+
+	private EngineCallLog() {
+		super(ClearCasePlugin.getEngine());
+	}
+
+	/**
+	 * Installs a new log in front of the current shared engine. It is removed
+	 * by {@link ClearCasePlugin#resetClearCase()}.
+	 *
+	 * @return the log
+	 */
+	public static EngineCallLog install() {
+		EngineCallLog log = new EngineCallLog();
+		ClearCasePlugin.getDefault().setClearCase(log);
+		return log;
+	}
+
+	/**
+	 * Starts recording.
+	 */
+	public void start() {
+		synchronized (calls) {
+			calls.clear();
+			counts.clear();
+		}
+		recording = true;
+	}
+
+	/**
+	 * Stops recording.
+	 */
+	public void stop() {
+		recording = false;
+	}
+
+	@Override
+	protected Object beginCall(String command, Object[] args) {
+		if (!recording)
+			return null;
+		Job job = Job.getJobManager().currentJob();
+		if (job != null && job.belongsTo(ClearCasePlugin.FAMILY_CHECKOUT_INDEX))
+			return null;
+		String detail = ""; //$NON-NLS-1$
+		if (args.length > 0 && args[0] instanceof String) {
+			detail = (String) args[0];
+		} else if (args.length > 0 && args[0] instanceof String[]) {
+			String[] paths = (String[]) args[0];
+			detail = paths.length == 0 ? "" : paths[0] + " (" + paths.length //$NON-NLS-1$ //$NON-NLS-2$
+					+ " elements)"; //$NON-NLS-1$
+		}
+		synchronized (calls) {
+			calls.add(command + " " + detail); //$NON-NLS-1$
+			Integer count = counts.get(command);
+			counts.put(command, Integer.valueOf(count == null ? 1 : count
+					.intValue() + 1));
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the recorded calls in the order they were started.
+	 *
+	 * @return the calls as "command path"
+	 */
+	public List<String> getCalls() {
+		synchronized (calls) {
+			return new ArrayList<String>(calls);
+		}
+	}
+
+	/**
+	 * Returns the recorded calls of a command.
+	 *
+	 * @param command
+	 * @return the calls as "command path"
+	 */
+	public List<String> getCalls(String command) {
+		List<String> result = new ArrayList<String>();
+		for (String call : getCalls()) {
+			if (call.startsWith(command + " ")) { //$NON-NLS-1$
+				result.add(call);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of calls per command.
+	 *
+	 * @return the counts sorted by command
+	 */
+	public Map<String, Integer> getCounts() {
+		synchronized (calls) {
+			return new TreeMap<String, Integer>(counts);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2009 eclipse-ccase.sourceforge.net team and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package net.sourceforge.eclipseccase.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseElementState;
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.eclipseccase.engine.EngineRecording;
+import net.sourceforge.eclipseccase.engine.PathAnonymizer;
+import net.sourceforge.eclipseccase.engine.RecordingClearCase;
+import net.sourceforge.eclipseccase.engine.ReplayClearCase;
+import net.sourceforge.eclipseccase.engine.SimulatedClearCase;
+
+import org.junit.Test;
+
+/**
+ * Tests that anonymized recordings reveal no names and still replay.
+ */
+public class PathAnonymizerTest {
+
+	private static final String VIEW = "alice_secret_view"; //$NON-NLS-1$
+
+	private static final String ROOT = "/secret_vob/secret_project"; //$NON-NLS-1$
+
+	private static final String FILE = ROOT + "/SecretFile.java"; //$NON-NLS-1$
+
+	private static final String COMMENT = "fixed the secret bug"; //$NON-NLS-1$
+
+	@Test
+	public void versionsKeepTheirShape() {
+		PathAnonymizer anonymizer = new PathAnonymizer();
+		String extended = anonymizer.anonymize(FILE
+				+ "@@/main/secret_branch/4"); //$NON-NLS-1$
+		assertFalse(extended, extended.contains("secret")); //$NON-NLS-1$
+		assertTrue(extended, extended.matches("/p0/p1/p2\\.java@@/main/p3/4")); //$NON-NLS-1$
+
+		// the same branch gets the same token everywhere
+		assertEquals("/main/p3/CHECKEDOUT", anonymizer //$NON-NLS-1$
+				.anonymizeVersion("/main/secret_branch/CHECKEDOUT")); //$NON-NLS-1$
+		assertEquals("\\main\\p3\\4", anonymizer //$NON-NLS-1$
+				.anonymizeVersion("\\main\\secret_branch\\4")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void commentsAndViewTags() {
+		PathAnonymizer anonymizer = new PathAnonymizer();
+		String comment = anonymizer.anonymizeComment(COMMENT);
+		assertFalse(comment.contains("secret")); //$NON-NLS-1$
+		assertEquals(comment, anonymizer.anonymizeComment(COMMENT));
+		assertEquals("", anonymizer.anonymizeComment("")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		String tag = anonymizer.anonymizeViewTag(VIEW);
+		assertEquals("checked out in " + tag, anonymizer //$NON-NLS-1$
+				.anonymize("checked out in " + VIEW)); //$NON-NLS-1$
+		assertEquals("/view/" + tag + "/p0", anonymizer.anonymize("/view/" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ VIEW + "/secret_vob")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		SimulatedClearCase simulator = new SimulatedClearCase();
+		simulator.createView(VIEW, ROOT, true);
+		simulator.createElement(ROOT, true, 1);
+		simulator.createElement(FILE, false, 2);
+
+		StringWriter recording = new StringWriter();
+		PathAnonymizer anonymizer = new PathAnonymizer();
+		RecordingClearCase recorder = new RecordingClearCase(simulator,
+				recording, anonymizer);
+		String viewName = recorder.getViewName(FILE);
+		recorder.getViewType(viewName);
+		recorder.checkout(new String[] { FILE }, COMMENT, 0, null);
+		String[] checkouts = recorder.findCheckouts(ClearCase.FORMAT,
+				new HashMap<Integer, String>(), new String[] { FILE });
+		recorder.checkin(new String[] { FILE }, COMMENT, 0, null);
+		recorder.dispose();
+
+		String text = recording.toString();
+		assertEquals(1, checkouts.length);
+		assertFalse(text, text.contains("secret")); //$NON-NLS-1$
+		assertFalse(text, text.contains("Secret")); //$NON-NLS-1$
+
+		ReplayClearCase replay = new ReplayClearCase(EngineRecording
+				.read(new StringReader(text)), 0);
+		String replayedView = replay.getViewName(FILE);
+		assertEquals(anonymizer.anonymizeViewTag(VIEW), replayedView);
+		assertEquals(ClearCaseInterface.VIEW_TYPE_SNAPSHOT, replay
+				.getViewType(replayedView));
+		ClearCaseElementState[] states = replay.checkout(
+				new String[] { FILE }, COMMENT, 0, null);
+		assertEquals(anonymizer.anonymize(FILE), states[0].element);
+		for (String checkout : replay.findCheckouts(ClearCase.FORMAT,
+				new HashMap<Integer, String>(), new String[] { FILE })) {
+			assertFalse(checkout, checkout.contains("secret_view")); //$NON-NLS-1$
+		}
+		states = replay.checkin(new String[] { FILE }, COMMENT, 0, null);
+		assertEquals("/main/3", states[0].version); //$NON-NLS-1$
+		assertEquals(0, replay.getMisses());
+	}
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2009 eclipse-ccase.sourceforge.net team and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package net.sourceforge.eclipseccase.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseElementState;
+import net.sourceforge.clearcase.ClearCaseException;
+import net.sourceforge.clearcase.events.OperationListener;
+import net.sourceforge.eclipseccase.engine.SimulatedClearCase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the model of the simulated engine used by the call budget tests and
+ * the benchmarks.
+ */
+public class SimulatedClearCaseTest {
+
+	private static final String ROOT = "/view/vob"; //$NON-NLS-1$
+
+	private static final String FILE = ROOT + "/a.txt"; //$NON-NLS-1$
+
+	private SimulatedClearCase simulator;
+
+	@Before
+	public void setUp() {
+		simulator = new SimulatedClearCase();
+		simulator.createView("test_view", ROOT, true); //$NON-NLS-1$
+		simulator.createElement(ROOT, true, 1);
+		simulator.createElement(FILE, false, 2);
+	}
+
+	@Test
+	public void checkoutAndCheckin() {
+		ClearCaseElementState[] states = simulator.checkout(
+				new String[] { FILE }, "", 0, null); //$NON-NLS-1$
+		assertTrue(states[0].isCheckedOut());
+		assertTrue(simulator.isCheckedOut(FILE));
+
+		states = simulator.checkin(new String[] { FILE }, "", 0, null); //$NON-NLS-1$
+		assertFalse(states[0].isCheckedOut());
+		assertEquals("/main/3", states[0].version); //$NON-NLS-1$
+		assertEquals("/main/3", simulator.getLatestVersion(FILE)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void reservedCheckoutInOtherViewBlocksCheckout() {
+		simulator.checkoutInView(FILE, "other_view", true); //$NON-NLS-1$
+		try {
+			simulator.checkout(new String[] { FILE }, "", 0, null); //$NON-NLS-1$
+			fail("checkout must fail"); //$NON-NLS-1$
+		} catch (ClearCaseException e) {
+			// expected
+		}
+		simulator.checkout(new String[] { FILE }, "", ClearCase.UNRESERVED, //$NON-NLS-1$
+				null);
+		assertTrue(simulator.isCheckedOut(FILE));
+	}
+
+	@Test
+	public void addNeedsCheckedOutParent() {
+		String added = ROOT + "/b.txt"; //$NON-NLS-1$
+		try {
+			simulator.add(added, false, "", 0, null); //$NON-NLS-1$
+			fail("add must fail"); //$NON-NLS-1$
+		} catch (ClearCaseException e) {
+			// expected
+		}
+		simulator.checkout(new String[] { ROOT }, "", 0, null); //$NON-NLS-1$
+		simulator.add(added, false, "", 0, null); //$NON-NLS-1$
+		assertTrue(simulator.isElement(added));
+		assertTrue(simulator.isCheckedOut(added));
+	}
+
+	@Test
+	public void moveNeedsCheckedOutParent() {
+		String target = ROOT + "/b.txt"; //$NON-NLS-1$
+		try {
+			simulator.move(FILE, target, "", 0, null); //$NON-NLS-1$
+			fail("move must fail"); //$NON-NLS-1$
+		} catch (ClearCaseException e) {
+			// expected
+		}
+		simulator.checkout(new String[] { ROOT }, "", 0, null); //$NON-NLS-1$
+		ClearCaseElementState[] states = simulator.move(FILE, target, "", 0, //$NON-NLS-1$
+				null);
+		assertTrue(states[0].isMoved());
+		assertEquals(target, states[1].element);
+		assertTrue(states[1].isElement());
+		assertFalse(simulator.isElement(FILE));
+		assertTrue(simulator.isElement(target));
+	}
+
+	@Test
+	public void commandsOutsideViewsFail() {
+		String outside = "/elsewhere"; //$NON-NLS-1$
+		simulator.createElement(outside, true, 1);
+		try {
+			simulator.add(outside + "/c.txt", false, "", 0, null); //$NON-NLS-1$ //$NON-NLS-2$
+			fail("add must fail"); //$NON-NLS-1$
+		} catch (ClearCaseException e) {
+			// expected
+		}
+		try {
+			simulator.checkout(new String[] { outside }, "", 0, null); //$NON-NLS-1$
+			fail("checkout must fail"); //$NON-NLS-1$
+		} catch (ClearCaseException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void updateLoadsNewVersions() {
+		simulator.createVersion(FILE);
+		assertEquals("/main/2", simulator.getElementState(FILE).version); //$NON-NLS-1$
+		final List<String> lines = new ArrayList<String>();
+		simulator.getUpdateList(ROOT, new OperationListener() {
+
+			public void finishedOperation() {
+				// nothing to do
+			}
+
+			public boolean isCanceled() {
+				return false;
+			}
+
+			public void ping() {
+				// nothing to do
+			}
+
+			public void print(String msg) {
+				lines.add(msg);
+			}
+
+			public void printErr(String msg) {
+				// nothing to do
+			}
+
+			public void printInfo(String msg) {
+				// nothing to do
+			}
+
+			public void startedOperation(int amountOfWork) {
+				// nothing to do
+			}
+
+			public void worked(int ticks) {
+				// nothing to do
+			}
+		});
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0), lines.get(0).startsWith("Loading \"a.txt\"")); //$NON-NLS-1$
+
+		simulator.update(FILE, 0, false);
+		assertEquals("/main/3", simulator.getElementState(FILE).version); //$NON-NLS-1$
+	}
+
+	@Test
+	public void injectedFailures() {
+		simulator.failNext("checkout", 1, ClearCase.ERROR_EXCEPTION); //$NON-NLS-1$
+		try {
+			simulator.checkout(new String[] { FILE }, "", 0, null); //$NON-NLS-1$
+			fail("checkout must fail"); //$NON-NLS-1$
+		} catch (ClearCaseException e) {
+			// expected
+		}
+		assertFalse(simulator.isCheckedOut(FILE));
+		simulator.checkout(new String[] { FILE }, "", 0, null); //$NON-NLS-1$
+		assertTrue(simulator.isCheckedOut(FILE));
+	}
+
+	@Test
+	public void scriptBuildsModel() throws Exception {
+		simulator = new SimulatedClearCase();
+		simulator.runScript(new StringReader("view script_view snapshot /s\n" //$NON-NLS-1$
+				+ "dir /s\n" //$NON-NLS-1$
+				+ "# comment\n" //$NON-NLS-1$
+				+ "file /s/a.txt 3\n" //$NON-NLS-1$
+				+ "hijack /s/a.txt\n")); //$NON-NLS-1$
+		ClearCaseElementState state = simulator.getElementState("/s/a.txt"); //$NON-NLS-1$
+		assertTrue(state.isHijacked());
+		assertEquals("/main/3", state.version); //$NON-NLS-1$
+		assertEquals("script_view", simulator.getViewName("/s/a.txt")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+import net.sourceforge.eclipseccase.ClearCaseProvider;
+import net.sourceforge.eclipseccase.engine.ClearCaseInterfaceDelegate;
+import net.sourceforge.eclipseccase.engine.SimulatedClearCase;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.team.core.RepositoryProvider;
+
+/**
+ * A workspace project whose files are elements of a snapshot view in the
+ * {@link SimulatedClearCase}, the common fixture of the call budget tests and
+ * the benchmarks.
+ * <p>
+ * Create the folders first and {@link #share()} the project afterwards, so
+ * the provider never sees files the simulator doesn't know yet.
+ * </p>
+ */
+public class SimulatedWorkspace {
+
+	/** the name of the simulated view */
+	public static final String VIEW_NAME = "simulated_view"; //$NON-NLS-1$
+
+	private final IProject project;
+
+	private final SimulatedClearCase simulator;
+
+	/**
+	 * Creates the project and switches the plug-in to the simulated engine.
+	 *
+	 * @param name
+	 *            the project name
+	 * @throws CoreException
+	 */
+	public SimulatedWorkspace(String name) throws CoreException {
+		System.setProperty(ClearCasePlugin.ENGINE_PROPERTY,
+				ClearCasePlugin.ENGINE_SIMULATOR);
+		ClearCasePlugin.getDefault().resetClearCase();
+		ClearCaseInterface engine = ClearCasePlugin.getEngine();
+		simulator = (SimulatedClearCase) ((ClearCaseInterfaceDelegate) engine)
+				.getDelegate();
+
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+		if (project.exists()) {
+			project.delete(true, true, null);
+		}
+		project.create(null);
+		project.open(null);
+
+		String root = project.getLocation().toOSString();
+		simulator.createView(VIEW_NAME, root, true);
+		simulator.createElement(root, true, 1);
+		simulator.createViewPrivate(project.getFile(".project").getLocation() //$NON-NLS-1$
+				.toOSString());
+	}
+
+	public IProject getProject() {
+		return project;
+	}
+
+	public SimulatedClearCase getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * Maps the project to the ClearCase provider.
+	 *
+	 * @return the provider
+	 * @throws CoreException
+	 */
+	public ClearCaseProvider share() throws CoreException {
+		RepositoryProvider.map(project, ClearCaseProvider.ID);
+		return (ClearCaseProvider) RepositoryProvider.getProvider(project,
+				ClearCaseProvider.ID);
+	}
+
+	/**
+	 * Creates a folder holding empty files and registers the folder and all
+	 * resources below it as elements.
+	 *
+	 * @param path
+	 *            the project relative path of the folder
+	 * @param files
+	 *            the number of files
+	 * @return the created folder
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	public IFolder createFolder(String path, int files) throws CoreException,
+			IOException {
+		IFolder folder = project.getFolder(path);
+		createFiles(folder.getLocation().toFile(), files);
+		return refreshAndRegister(folder);
+	}
+
+	/**
+	 * Creates a folder with sub folders holding empty files and registers
+	 * all of them as elements.
+	 *
+	 * @param name
+	 *            the folder name
+	 * @param folders
+	 *            the number of sub folders
+	 * @param filesPerFolder
+	 *            the number of files in every sub folder
+	 * @return the created folder
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	public IFolder createFlatTree(String name, int folders, int filesPerFolder)
+			throws CoreException, IOException {
+		IFolder folder = project.getFolder(name);
+		File dir = folder.getLocation().toFile();
+		for (int i = 0; i < folders; i++) {
+			File sub = new File(dir, "d" + i); //$NON-NLS-1$
+			createFiles(sub, filesPerFolder);
+		}
+		return refreshAndRegister(folder);
+	}
+
+	/**
+	 * Creates a folder tree and registers all of its resources as elements.
+	 *
+	 * @param name
+	 *            the folder name
+	 * @param depth
+	 *            the depth of the tree
+	 * @param fanout
+	 *            the number of sub folders of every folder
+	 * @param filesPerFolder
+	 *            the number of files in every folder
+	 * @return the created folder
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	public IFolder createDeepTree(String name, int depth, int fanout,
+			int filesPerFolder) throws CoreException, IOException {
+		IFolder folder = project.getFolder(name);
+		createTree(folder.getLocation().toFile(), depth, fanout,
+				filesPerFolder);
+		return refreshAndRegister(folder);
+	}
+
+	private static void createTree(File dir, int depth, int fanout,
+			int filesPerFolder) throws IOException {
+		createFiles(dir, filesPerFolder);
+		if (depth > 1) {
+			for (int i = 0; i < fanout; i++) {
+				createTree(new File(dir, "d" + i), depth - 1, fanout, //$NON-NLS-1$
+						filesPerFolder);
+			}
+		}
+	}
+
+	private static void createFiles(File dir, int count) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("could not create " + dir); //$NON-NLS-1$
+		for (int i = 0; i < count; i++) {
+			new File(dir, "f" + i + ".txt").createNewFile(); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private IFolder refreshAndRegister(IFolder folder) throws CoreException {
+		folder.refreshLocal(IResource.DEPTH_INFINITE, null);
+		folder.accept(new IResourceVisitor() {
+
+			public boolean visit(IResource resource) throws CoreException {
+				simulator.createElement(resource.getLocation().toOSString(),
+						resource instanceof IContainer, 1);
+				return true;
+			}
+		});
+		return folder;
+	}
+
+	/**
+	 * Returns all folders and files below a container.
+	 *
+	 * @param container
+	 * @return the resources in traversal order
+	 * @throws CoreException
+	 */
+	public static List<IResource> members(final IContainer container)
+			throws CoreException {
+		final List<IResource> result = new ArrayList<IResource>();
+		container.accept(new IResourceVisitor() {
+
+			public boolean visit(IResource resource) throws CoreException {
+				if (!resource.equals(container)) {
+					result.add(resource);
+				}
+				return true;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Deletes the project and switches back to the configured engine.
+	 *
+	 * @throws CoreException
+	 */
+	public void dispose() throws CoreException {
+		if (null != RepositoryProvider.getProvider(project, ClearCaseProvider.ID)) {
+			RepositoryProvider.unmap(project);
+		}
+		project.delete(true, true, null);
+		System.getProperties().remove(ClearCasePlugin.ENGINE_PROPERTY);
+		ClearCasePlugin.getDefault().resetClearCase();
+	}
+}
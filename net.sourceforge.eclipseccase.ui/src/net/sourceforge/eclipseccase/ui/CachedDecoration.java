@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.IDecoration;
+
+/**
+ * The computed decoration of a resource: overlays, prefixes and suffixes.
+ * <p>
+ * A decoration is filled once by the decorator and must not be changed after
+ * it has been put into the {@link DecorationCache}, where identical
+ * decorations are shared between resources.
+ * </p>
+ */
+final class CachedDecoration {
+
+	/** the quadrant of overlays added without one */
+	private static final int DEFAULT_QUADRANT = -1;
+
+	private final List<ImageDescriptor> overlays = new ArrayList<ImageDescriptor>(2);
+
+	private final List<Integer> quadrants = new ArrayList<Integer>(2);
+
+	private final List<String> prefixes = new ArrayList<String>(1);
+
+	private final List<String> suffixes = new ArrayList<String>(1);
+
+	/**
+	 * @see IDecoration#addOverlay(ImageDescriptor)
+	 */
+	void addOverlay(ImageDescriptor overlay) {
+		addOverlay(overlay, DEFAULT_QUADRANT);
+	}
+
+	/**
+	 * @see IDecoration#addOverlay(ImageDescriptor, int)
+	 */
+	void addOverlay(ImageDescriptor overlay, int quadrant) {
+		overlays.add(overlay);
+		quadrants.add(Integer.valueOf(quadrant));
+	}
+
+	/**
+	 * @see IDecoration#addPrefix(String)
+	 */
+	void addPrefix(String prefix) {
+		prefixes.add(prefix);
+	}
+
+	/**
+	 * @see IDecoration#addSuffix(String)
+	 */
+	void addSuffix(String suffix) {
+		suffixes.add(suffix);
+	}
+
+	/**
+	 * Indicates if the decoration contains resource specific text, like a
+	 * version, that makes sharing it pointless.
+	 *
+	 * @return <code>true</code> if there is a suffix
+	 */
+	boolean hasSuffix() {
+		return !suffixes.isEmpty();
+	}
+
+	/**
+	 * Adds this decoration to the decoration of a label.
+	 *
+	 * @param decoration
+	 */
+	void apply(IDecoration decoration) {
+		for (int i = 0; i < overlays.size(); i++) {
+			int quadrant = quadrants.get(i).intValue();
+			if (quadrant == DEFAULT_QUADRANT) {
+				decoration.addOverlay(overlays.get(i));
+			} else {
+				decoration.addOverlay(overlays.get(i), quadrant);
+			}
+		}
+		for (String prefix : prefixes) {
+			decoration.addPrefix(prefix);
+		}
+		for (String suffix : suffixes) {
+			decoration.addSuffix(suffix);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CachedDecoration))
+			return false;
+		CachedDecoration other = (CachedDecoration) obj;
+		return overlays.equals(other.overlays)
+				&& quadrants.equals(other.quadrants)
+				&& prefixes.equals(other.prefixes)
+				&& suffixes.equals(other.suffixes);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return ((overlays.hashCode() * 31 + quadrants.hashCode()) * 31 + prefixes
+				.hashCode())
+				* 31 + suffixes.hashCode();
+	}
+}
@@ -19,15 +19,19 @@ import org.eclipse.core.resources.IResource;
 
 import java.util.*;
 import net.sourceforge.eclipseccase.*;
+import net.sourceforge.eclipseccase.statistics.FlightRecorder;
 import net.sourceforge.eclipseccase.ui.preferences.ClearCaseUIPreferences;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.viewers.*;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.team.ui.ISharedImages;
 import org.eclipse.team.ui.TeamImages;
+import org.eclipse.team.ui.TeamUI;
 
 /**
  * The ClearCase label decorator.
@@ -35,9 +39,27 @@ import org.eclipse.team.ui.TeamImages;
 public class ClearCaseDecorator extends LabelProvider implements ILightweightLabelDecorator, IResourceStateListener, IResourceChangeListener {
 
 	/** trace if */
-	private static final String DECORATOR = "ClearCaseDecorator"; //$NON-NLS-1$
+	static final String DECORATOR = "ClearCaseDecorator"; //$NON-NLS-1$
 
-	private Set<IResource> shownResources = new HashSet<IResource>();
+	/** the recently decorated resources */
+	private final ShownResources shownResources = new ShownResources();
+
+	/** the computed decorations */
+	private final DecorationCache decorations = new DecorationCache();
+
+	/** coalesces the label updates */
+	private final LabelUpdateScheduler labelUpdates = new LabelUpdateScheduler(this, decorations);
+
+	/** refreshes all labels when the global ignore patterns change */
+	private final IPropertyChangeListener ignoreListener = new IPropertyChangeListener() {
+
+		public void propertyChange(PropertyChangeEvent event) {
+			if (TeamUI.GLOBAL_IGNORES_CHANGED.equals(event.getProperty())) {
+				decorations.invalidateAll();
+				refresh();
+			}
+		}
+	};
 
 	/*
 	 * Define a cached image descriptor which only creates the image data once
@@ -95,14 +117,14 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 
 	private static ImageDescriptor IMG_DESC_ELEMENT_BG;
 
-	/** internal state constant */
-	private static final int STATE_CLEAN = 0;
+	/** dirty state constant */
+	public static final int STATE_CLEAN = 0;
 
-	/** internal state constant */
-	private static final int STATE_DIRTY = 1;
+	/** dirty state constant */
+	public static final int STATE_DIRTY = 1;
 
-	/** internal state constant */
-	private static final int STATE_UNKNOWN = 2;
+	/** dirty state constant */
+	public static final int STATE_UNKNOWN = 2;
 
 	static {
 		IMG_DESC_DIRTY = new CachedImageDescriptor(TeamImages.getImageDescriptor(ISharedImages.IMG_DIRTY_OVR));
@@ -137,6 +159,18 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 		if (!ClearCaseUIPreferences.decorateFoldersDirty())
 			return STATE_CLEAN;
 
+		return calculateMemberDirtyState(resource);
+	}
+
+	/**
+	 * Detects the dirty state of a container by visiting all of its members,
+	 * regardless of the deep decoration preference.
+	 * 
+	 * @param resource
+	 *            an accessible container
+	 * @return the dirty state (one of the <code>STATE_*</code> constants)
+	 */
+	public static int calculateMemberDirtyState(IResource resource) {
 		// cache some settings (visitor performance)
 		final boolean decorateNew = ClearCaseUIPreferences.decorateFoldersContainingViewPrivateElementsDirty() && (ClearCaseUIPreferences.decorateViewPrivateElements() || (ClearCaseUIPreferences.decorateElementStatesWithTextPrefix() && ClearCaseUI.getTextPrefixNew().length() > 0));
 		final boolean decorateUnknown = ClearCaseUIPreferences.decorateUnknownElements() || (ClearCaseUIPreferences.decorateElementStatesWithTextPrefix() && ClearCaseUI.getTextPrefixUnknown().length() > 0);
@@ -219,7 +253,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateCheckedIn(IDecoration decoration) {
+	private static void decorateCheckedIn(CachedDecoration decoration) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateCheckedIn"); //$NON-NLS-1$
 		}
@@ -233,7 +267,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateCheckedOut(IDecoration decoration, String version) {
+	private static void decorateCheckedOut(CachedDecoration decoration, String version) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateCheckedOut"); //$NON-NLS-1$
 		}
@@ -254,7 +288,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateDirty(IDecoration decoration) {
+	private static void decorateDirty(CachedDecoration decoration) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateDirty"); //$NON-NLS-1$
 		}
@@ -271,7 +305,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateEdited(IDecoration decoration) {
+	private static void decorateEdited(CachedDecoration decoration) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateEdited"); //$NON-NLS-1$
 		}
@@ -290,7 +324,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateHijacked(IDecoration decoration, String version) {
+	private static void decorateHijacked(CachedDecoration decoration, String version) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateHijacked"); //$NON-NLS-1$
 		}
@@ -313,7 +347,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * @param decoration
 	 * @param isLinkTargetCheckedOut
 	 */
-	private static void decorateLink(IDecoration decoration, String linkTarget, boolean isValidLinkTarget, boolean isLinkTargetCheckedOut) {
+	private static void decorateLink(CachedDecoration decoration, String linkTarget, boolean isValidLinkTarget, boolean isLinkTargetCheckedOut) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateLink"); //$NON-NLS-1$
 		}
@@ -336,7 +370,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * @param decoration
 	 * @param isLinkTargetCheckedOut
 	 */
-	private static void decorateDerivedObject(IDecoration decoration, String version) {
+	private static void decorateDerivedObject(CachedDecoration decoration, String version) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateDerivedObject"); //$NON-NLS-1$
 		}
@@ -350,7 +384,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateNew(IDecoration decoration) {
+	private static void decorateNew(CachedDecoration decoration) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateNew"); //$NON-NLS-1$
 		}
@@ -367,7 +401,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateUnknown(IDecoration decoration) {
+	private static void decorateUnknown(CachedDecoration decoration) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateUnknown"); //$NON-NLS-1$
 		}
@@ -384,7 +418,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateVersion(IDecoration decoration, String version) {
+	private static void decorateVersion(CachedDecoration decoration, String version) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateVersion"); //$NON-NLS-1$
 		}
@@ -398,7 +432,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * 
 	 * @param decoration
 	 */
-	private static void decorateViewName(IDecoration decoration, String viewName) {
+	private static void decorateViewName(CachedDecoration decoration, String viewName) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "  decorateViewName"); //$NON-NLS-1$
 		}
@@ -440,6 +474,8 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 		super();
 		StateCacheFactory.getInstance().addStateChangeListerer(this);
 		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+		ClearCaseUI.getInstance().getPluginPreferences().addPropertyChangeListener(decorations);
+		TeamUI.addPropertyChangeListener(ignoreListener);
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "activated"); //$NON-NLS-1$
 		}
@@ -461,16 +497,43 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 		if (resource == null || resource.getType() == IResource.ROOT || resource.getLocation() == null || !resource.isAccessible())
 			return;
 
+		// remember that we have seen this resource. Doesn't matter if we
+		// handle it or not (that is, whether it is already in a CC
+		// project). This list is used later during the Associate or
+		// Dissociate actions.
+		shownResources.add(resource);
+
+		// labels are requested again by every viewer, tab and tooltip
+		CachedDecoration cached = decorations.get(resource);
+		if (null != cached) {
+			cached.apply(decoration);
+			return;
+		}
+
+		long generation = decorations.getGeneration();
+		CachedDecoration result = new CachedDecoration();
+		if (decorate(resource, result)) {
+			decorations.put(resource, result, generation);
+		}
+		result.apply(decoration);
+	}
+
+	/**
+	 * Computes the decoration of a resource.
+	 * 
+	 * @param resource
+	 *            an accessible resource
+	 * @param decoration
+	 *            receives the decoration
+	 * @return <code>false</code> if the decoration must not be cached because
+	 *         the state of the resource is not known yet, or because the
+	 *         resource is not shared or ignored, which changes without a
+	 *         label update
+	 */
+	private boolean decorate(IResource resource, CachedDecoration decoration) {
 		if (ClearCaseUI.DEBUG_DECORATION) {
 			ClearCaseUI.trace(DECORATOR, "decorating " + resource.getFullPath().toString()); //$NON-NLS-1$
 		}
-		synchronized (shownResources) {
-			// remember that we have seen this resource. Doesn't matter if we
-			// handle it or not (that is, whether it is already in a CC
-			// project). This list is used later during the Associate or
-			// Dissociate actions.
-			shownResources.add(resource);
-		}
 
 		// get our provider
 		ClearCaseProvider p = ClearCaseProvider.getClearCaseProvider(resource);
@@ -478,7 +541,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 			if (ClearCaseUI.DEBUG_DECORATION) {
 				ClearCaseUI.trace(DECORATOR, "  no ClearCaseProvider"); //$NON-NLS-1$
 			}
-			return;
+			return false;
 		}
 
 		// test if ignored. Caution: p.isIgnored() implicitely schedules an
@@ -488,7 +551,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 			if (ClearCaseUI.DEBUG_DECORATION) {
 				ClearCaseUI.trace(DECORATOR, "  ignored"); //$NON-NLS-1$
 			}
-			return;
+			return false;
 		}
 
 		// test if uninitialized before all other checks
@@ -499,6 +562,8 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 			if (resource instanceof IProject) {
 				p.getVersion(resource); // this triggers an async update
 			}
+			// the user is looking at it, refresh it before invisible ones
+			StateCacheFactory.getInstance().requestedForDisplay(new IResource[] { resource });
 			if (ClearCaseUI.DEBUG_DECORATION) {
 				ClearCaseUI.trace(DECORATOR, " scheduled refresh for " + resource.getFullPath().toString()); //$NON-NLS-1$
 			}
@@ -507,7 +572,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 			decorateUnknown(decoration);
 
 			// no further decoration
-			return;
+			return false;
 		}
 
 		// Projects may be the view directory containing the VOBS, if so,
@@ -535,29 +600,29 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 			decorateNew(decoration);
 
 			// no further decoration
-			return;
+			return true;
 		} else if (cache.isSymbolicLink()) {
 			// symbolic link
 			decorateLink(decoration, cache.getSymbolicLinkTarget(), cache.isSymbolicLinkTargetValid(), cache.isCheckedOut());
 
 			// no further decoration
-			return;
+			return true;
 		} else if (cache.isCheckedOut()) {
 			// check out
 			decorateCheckedOut(decoration, cache.getVersion());
 
 			// no further decoration
-			return;
+			return true;
 		} else if (cache.isDerivedObject()) {
 			decorateDerivedObject(decoration, cache.getVersion());
 			// no further decoration
-			return;
+			return true;
 		} else if (cache.isHijacked()) {
 			// hijacked
 			decorateHijacked(decoration, cache.getVersion());
 
 			// no further decoration
-			return;
+			return true;
 		} else {
 			// calculate the state
 			int dirty = calculateDirtyState(resource);
@@ -575,19 +640,20 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 					// add version info only at this point
 					decorateVersion(decoration, p.getVersion(resource));
 				}
-				return;
+				return true;
 
 			case STATE_DIRTY:
 				// dirty
 				decorateDirty(decoration);
-				return;
+				return true;
 
 			case STATE_UNKNOWN:
 				// unknown
 				decorateUnknown(decoration);
-				return;
+				return false;
 			}
 		}
+		return true;
 	}
 
 	/*
@@ -602,6 +668,9 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 		}
 		StateCacheFactory.getInstance().removeStateChangeListerer(this);
 		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		ClearCaseUI.getInstance().getPluginPreferences().removePropertyChangeListener(decorations);
+		TeamUI.removePropertyChangeListener(ignoreListener);
+		labelUpdates.dispose();
 		super.dispose();
 	}
 
@@ -620,7 +689,14 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 			display.asyncExec(new Runnable() {
 
 				public void run() {
+					long start = System.nanoTime();
 					superFireLabelProviderChanged(event);
+					Object[] elements = event.getElements();
+					FlightRecorder.getInstance().record(
+							FlightRecorder.CATEGORY_LABELS,
+							"labelRefresh", start, //$NON-NLS-1$
+							elements == null ? "all" : elements.length //$NON-NLS-1$
+									+ " elements"); //$NON-NLS-1$
 				}
 			});
 		}
@@ -630,10 +706,7 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	 * Updates all decorators on any resource.
 	 */
 	public void refresh() {
-		if (ClearCaseUI.DEBUG_DECORATION) {
-			ClearCaseUI.trace(DECORATOR, "  fireLabelProviderChanged,0,all"); //$NON-NLS-1$
-		}
-		fireLabelProviderChanged(new LabelProviderChangedEvent(this));
+		labelUpdates.addAll();
 	}
 
 	/**
@@ -651,46 +724,31 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 					return true;
 				}
 			});
-			if (ClearCaseUI.DEBUG_DECORATION) {
-				ClearCaseUI.trace(DECORATOR, "  fireLabelProviderChanged,1, cnt=" + resources.size()); //$NON-NLS-1$
-			}
-			fireLabelProviderChanged(new LabelProviderChangedEvent(this, resources.toArray()));
+			labelUpdates.add(resources.toArray(new IResource[resources.size()]));
 		} catch (CoreException e) {
 			handleException(e);
 		}
 	}
 
-	public void refresh(IResource[] changedResources) {
-		Set<IResource> resourcesToUpdate = new HashSet<IResource>();
-
-		for (int i = 0; i < changedResources.length; i++) {
-			IResource resource = changedResources[i];
-
-			if (ClearCaseUIPreferences.decorateFoldersDirty()) {
-				addWithParents(resource, resourcesToUpdate);
-			} else {
-				resourcesToUpdate.add(resource);
-			}
-		}
-
-		if (ClearCaseUI.DEBUG_DECORATION) {
-			ClearCaseUI.trace(DECORATOR, "  fireLabelProviderChanged,2, cnt=" + resourcesToUpdate.size()); //$NON-NLS-1$
-		}
-		fireLabelProviderChanged(new LabelProviderChangedEvent(this, resourcesToUpdate.toArray()));
-
+	/**
+	 * Drops the cached decorations of a project that was mapped to or
+	 * unmapped from ClearCase. Its labels still have to be refreshed.
+	 * 
+	 * @param project
+	 */
+	public void invalidate(IProject project) {
+		decorations.invalidate(project);
 	}
 
-	/*
-	 * Add resource and its parents to the List
+	/**
+	 * Updates the decorators of resources and, if folders are decorated
+	 * dirty, of their parents. The updates are coalesced and fired at most
+	 * once per frame.
+	 * 
+	 * @param changedResources
 	 */
-
-	private void addWithParents(IResource resource, Set<IResource> resources) {
-		IResource current = resource;
-
-		while (current.getType() != IResource.ROOT) {
-			resources.add(current);
-			current = current.getParent();
-		}
+	public void refresh(IResource[] changedResources) {
+		labelUpdates.add(changedResources);
 	}
 
 	/*
@@ -728,8 +786,10 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 					public boolean visit(IResourceDelta delta) throws CoreException {
 						switch (delta.getKind()) {
 
-						case IResourceDelta.ADDED:
 						case IResourceDelta.REMOVED:
+							shownResources.remove(delta.getResource());
+							//$FALL-THROUGH$
+						case IResourceDelta.ADDED:
 							// if resource was added or removed
 							if (ClearCaseUIPreferences.decorateFoldersDirty()) {
 								// refresh parent if deep decoration is enabled
@@ -780,23 +840,15 @@ public class ClearCaseDecorator extends LabelProvider implements ILightweightLab
 	}
 
 	/**
-	 * Return a list of all resources from a given project that were shown in
-	 * one of the navigators before and requested decoration. That list can be
-	 * used to refresh the decorators.
+	 * Return a list of the resources from a given project that were recently
+	 * shown in one of the navigators and requested decoration. That list can
+	 * be used to refresh the decorators.
 	 * 
 	 * @param project
 	 *            which project to search
-	 * @return array of all resources that requested decoration
+	 * @return array of the resources that recently requested decoration
 	 */
 	public IResource[] getShownResources(IProject project) {
-		Vector<IResource> result = new Vector<IResource>();
-		synchronized (shownResources) {
-			for (IResource resource : shownResources) {
-				if (resource.getProject().equals(project)) {
-					result.add(resource);
-				}
-			}
-		}
-		return result.toArray(new IResource[result.size()]);
+		return shownResources.get(project);
 	}
 }
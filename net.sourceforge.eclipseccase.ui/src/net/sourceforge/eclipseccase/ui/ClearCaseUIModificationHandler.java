@@ -119,10 +119,11 @@ class ClearCaseUIModificationHandler extends ClearCaseModificationHandler {
 							}
 						}
 
-						synchronized (provider) {
+						monitor.beginTask(Messages.getString("ClearCaseUIModificationHandler.task.checkout"), resources.length); //$NON-NLS-1$
+						try {
+							DirectoryLocks.Lock lock = lockParents(provider, resources);
 							boolean refreshing = setResourceRefreshing(provider, false);
 							try {
-								monitor.beginTask(Messages.getString("ClearCaseUIModificationHandler.task.checkout"), resources.length); //$NON-NLS-1$
 								if (ClearCasePreferences.isUseClearDlg()) {
 									monitor.subTask("Executing ClearCase user interface...");
 									ClearDlgHelper.checkout(resources);
@@ -131,18 +132,17 @@ class ClearCaseUIModificationHandler extends ClearCaseModificationHandler {
 										provider.setComment(comment);
 									}
 
-									for (int i = 0; i < resources.length; i++) {
-										IResource file = resources[i];
-										monitor.subTask(file.getName());
-										provider.checkout(new IResource[] { file }, IResource.DEPTH_ZERO, null);
-										file.refreshLocal(IResource.DEPTH_ZERO, null);
-										monitor.worked(i);
-									}
+									provider.checkout(resources, IResource.DEPTH_ZERO, new SubProgressMonitor(monitor, resources.length / 2));
 								}
 							} finally {
 								setResourceRefreshing(provider, refreshing);
-								monitor.done();
+								lock.release();
 							}
+							// moves hold the scheduling rule while they wait for
+							// the directory locks, so refresh only after the release
+							refresh(resources, new SubProgressMonitor(monitor, resources.length - resources.length / 2));
+						} finally {
+							monitor.done();
 						}
 					} catch (CoreException ex) {
 						throw new InvocationTargetException(ex);
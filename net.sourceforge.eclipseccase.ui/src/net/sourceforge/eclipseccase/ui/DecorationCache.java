@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.ui;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.Preferences;
+
+/**
+ * Caches the computed decorations of resources, so labels requested again by
+ * other viewers, editor tabs or tooltips are decorated without asking the
+ * provider and the state cache again.
+ * <p>
+ * Entries are dropped when the label of their resource is refreshed or their
+ * project is mapped or unmapped, and all entries are dropped when a
+ * preference or the global ignore patterns change. Every invalidation starts a
+ * new generation; decorations computed in an older generation are not
+ * cached, as they may be based on an outdated state.
+ * </p>
+ */
+class DecorationCache implements Preferences.IPropertyChangeListener {
+
+	/** the maximum number of cached decorations */
+	static final int MAX_ENTRIES = 20000;
+
+	private final Map<IResource, CachedDecoration> decorations = new LinkedHashMap<IResource, CachedDecoration>(
+			256, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<IResource, CachedDecoration> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** the shared instances of the decorations without resource specific text */
+	private final Map<CachedDecoration, CachedDecoration> shared = new HashMap<CachedDecoration, CachedDecoration>();
+
+	private long generation;
+
+	/**
+	 * Returns the cached decoration of a resource.
+	 *
+	 * @param resource
+	 * @return the decoration or <code>null</code> if not cached
+	 */
+	synchronized CachedDecoration get(IResource resource) {
+		return decorations.get(resource);
+	}
+
+	/**
+	 * Returns the current generation, to be passed to
+	 * {@link #put(IResource, CachedDecoration, long)}.
+	 *
+	 * @return the generation
+	 */
+	synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Caches the decoration of a resource unless it was invalidated since the
+	 * computation started.
+	 *
+	 * @param resource
+	 * @param decoration
+	 * @param computedGeneration
+	 *            the generation when the computation started
+	 */
+	synchronized void put(IResource resource, CachedDecoration decoration,
+			long computedGeneration) {
+		if (computedGeneration != generation)
+			return;
+		if (!decoration.hasSuffix()) {
+			CachedDecoration existing = shared.get(decoration);
+			if (null == existing) {
+				shared.put(decoration, decoration);
+			} else {
+				decoration = existing;
+			}
+		}
+		decorations.put(resource, decoration);
+	}
+
+	/**
+	 * Drops the decorations of resources.
+	 *
+	 * @param resources
+	 */
+	synchronized void invalidate(Collection<IResource> resources) {
+		generation++;
+		for (IResource resource : resources) {
+			decorations.remove(resource);
+		}
+	}
+
+	/**
+	 * Drops the decorations of all resources of a project.
+	 *
+	 * @param project
+	 */
+	synchronized void invalidate(IProject project) {
+		generation++;
+		for (Iterator<IResource> i = decorations.keySet().iterator(); i
+				.hasNext();) {
+			if (project.equals(i.next().getProject())) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops all decorations.
+	 */
+	synchronized void invalidateAll() {
+		generation++;
+		decorations.clear();
+		shared.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.core.runtime.Preferences.IPropertyChangeListener#propertyChange(org.eclipse.core.runtime.Preferences.PropertyChangeEvent)
+	 */
+	public void propertyChange(Preferences.PropertyChangeEvent event) {
+		invalidateAll();
+	}
+}
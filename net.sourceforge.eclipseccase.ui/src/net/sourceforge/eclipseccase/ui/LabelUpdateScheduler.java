@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.ui;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.sourceforge.eclipseccase.statistics.FlightRecorder;
+import net.sourceforge.eclipseccase.ui.preferences.ClearCaseUIPreferences;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Coalesces the label updates of the decorator.
+ * <p>
+ * Changed resources are collected from any thread and handed to the viewers
+ * at most once per {@link #FRAME_INTERVAL} as a single event, so a refresh of
+ * thousands of resources doesn't flood the UI thread with one runnable per
+ * state change.
+ * </p>
+ */
+class LabelUpdateScheduler implements Runnable {
+
+	/** the minimum time between two label updates in milliseconds */
+	static final int FRAME_INTERVAL = 40;
+
+	private final ClearCaseDecorator decorator;
+
+	private final DecorationCache decorations;
+
+	/** the changed resources, used as a concurrent set */
+	private final ConcurrentHashMap<IResource, Boolean> pending = new ConcurrentHashMap<IResource, Boolean>();
+
+	/** set if all labels have to be updated */
+	private final AtomicBoolean all = new AtomicBoolean();
+
+	/** set while a flush is scheduled */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	private volatile boolean disposed;
+
+	/**
+	 * Creates a new scheduler.
+	 *
+	 * @param decorator
+	 *            the decorator to fire the events for
+	 * @param decorations
+	 *            the cached decorations to drop before firing
+	 */
+	LabelUpdateScheduler(ClearCaseDecorator decorator,
+			DecorationCache decorations) {
+		this.decorator = decorator;
+		this.decorations = decorations;
+	}
+
+	/**
+	 * Schedules a label update for resources.
+	 *
+	 * @param resources
+	 */
+	void add(IResource[] resources) {
+		for (int i = 0; i < resources.length; i++) {
+			pending.put(resources[i], Boolean.TRUE);
+		}
+		schedule();
+	}
+
+	/**
+	 * Schedules a label update for all resources.
+	 */
+	void addAll() {
+		all.set(true);
+		schedule();
+	}
+
+	/**
+	 * Drops all pending updates.
+	 */
+	void dispose() {
+		disposed = true;
+		pending.clear();
+	}
+
+	private void schedule() {
+		if (disposed || !scheduled.compareAndSet(false, true))
+			return;
+		final Display display = ClearCaseUI.getDisplay();
+		if (null == display || display.isDisposed()) {
+			scheduled.set(false);
+			return;
+		}
+		display.asyncExec(new Runnable() {
+
+			public void run() {
+				if (!display.isDisposed()) {
+					display.timerExec(FRAME_INTERVAL, LabelUpdateScheduler.this);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Fires the collected updates, called in the UI thread.
+	 */
+	public void run() {
+		// changes arriving from now on need another flush
+		scheduled.set(false);
+		if (disposed)
+			return;
+		long start = System.nanoTime();
+		LabelProviderChangedEvent event;
+		String detail;
+		if (all.getAndSet(false)) {
+			pending.clear();
+			decorations.invalidateAll();
+			event = new LabelProviderChangedEvent(decorator);
+			detail = "all"; //$NON-NLS-1$
+		} else {
+			Set<IResource> resources = new HashSet<IResource>();
+			boolean withParents = ClearCaseUIPreferences.decorateFoldersDirty();
+			for (Iterator<IResource> i = pending.keySet().iterator(); i
+					.hasNext();) {
+				IResource resource = i.next();
+				i.remove();
+				if (withParents) {
+					addWithParents(resource, resources);
+				} else {
+					resources.add(resource);
+				}
+			}
+			if (resources.isEmpty())
+				return;
+			decorations.invalidate(resources);
+			event = new LabelProviderChangedEvent(decorator, resources
+					.toArray());
+			detail = resources.size() + " elements"; //$NON-NLS-1$
+		}
+		if (ClearCaseUI.DEBUG_DECORATION) {
+			ClearCaseUI.trace(ClearCaseDecorator.DECORATOR, "  fireLabelProviderChanged, " + detail); //$NON-NLS-1$
+		}
+		decorator.superFireLabelProviderChanged(event);
+		FlightRecorder.getInstance().record(FlightRecorder.CATEGORY_LABELS,
+				"labelRefresh", start, detail); //$NON-NLS-1$
+	}
+
+	/**
+	 * Adds a resource and its parents, stopping at the first parent already
+	 * added by another resource of the batch.
+	 */
+	private static void addWithParents(IResource resource,
+			Set<IResource> resources) {
+		for (IResource current = resource; current.getType() != IResource.ROOT
+				&& resources.add(current); current = current.getParent()) {
+			// nothing else to do
+		}
+	}
+}
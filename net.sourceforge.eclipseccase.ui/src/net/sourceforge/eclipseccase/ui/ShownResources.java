@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.ui;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Remembers the resources that were recently decorated, per project.
+ * <p>
+ * Only the {@link #MAX_PER_PROJECT} most recently decorated resources of a
+ * project are kept, and removed resources are dropped, so the set doesn't
+ * grow with every resource ever shown.
+ * </p>
+ */
+class ShownResources {
+
+	/** the maximum number of resources remembered per project */
+	static final int MAX_PER_PROJECT = 5000;
+
+	private final Map<IProject, Map<IResource, Boolean>> projects = new HashMap<IProject, Map<IResource, Boolean>>();
+
+	/**
+	 * Remembers a decorated resource.
+	 *
+	 * @param resource
+	 */
+	synchronized void add(IResource resource) {
+		IProject project = resource.getProject();
+		if (null == project)
+			return;
+		Map<IResource, Boolean> resources = projects.get(project);
+		if (null == resources) {
+			resources = new LinkedHashMap<IResource, Boolean>(64, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<IResource, Boolean> eldest) {
+					return size() > MAX_PER_PROJECT;
+				}
+			};
+			projects.put(project, resources);
+		}
+		resources.put(resource, Boolean.TRUE);
+	}
+
+	/**
+	 * Forgets a removed resource and its members.
+	 *
+	 * @param resource
+	 */
+	synchronized void remove(IResource resource) {
+		if (resource.getType() == IResource.PROJECT) {
+			projects.remove(resource);
+			return;
+		}
+		Map<IResource, Boolean> resources = projects.get(resource
+				.getProject());
+		if (null == resources)
+			return;
+		if (resource.getType() == IResource.FILE) {
+			resources.remove(resource);
+			return;
+		}
+		IPath path = resource.getFullPath();
+		for (Iterator<IResource> i = resources.keySet().iterator(); i
+				.hasNext();) {
+			if (path.isPrefixOf(i.next().getFullPath())) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the remembered resources of a project.
+	 *
+	 * @param project
+	 * @return the resources
+	 */
+	synchronized IResource[] get(IProject project) {
+		Map<IResource, Boolean> resources = projects.get(project);
+		if (null == resources)
+			return new IResource[0];
+		return resources.keySet().toArray(new IResource[resources.size()]);
+	}
+}
@@ -80,6 +80,7 @@ public class AssociateProjectAction extends ClearCaseWorkspaceAction {
 						if (manager.getEnabled(ClearCaseDecorator.ID) && !submonitor.isCanceled()) {
 							ClearCaseDecorator activeDecorator = (ClearCaseDecorator) manager.getBaseLabelProvider(ClearCaseDecorator.ID);
 							if (activeDecorator != null) {
+								activeDecorator.invalidate(project);
 								if (ClearCasePreferences.isFullRefreshOnAssociate())
 									activeDecorator.refresh(project);
 								else {
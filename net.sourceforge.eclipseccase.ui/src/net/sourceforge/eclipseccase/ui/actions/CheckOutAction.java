@@ -13,6 +13,7 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.window.Window;
 
@@ -86,13 +87,11 @@ public class CheckOutAction extends ClearCaseWorkspaceAction {
 						Collections.sort(resList, new DirectoryLastComparator());
 
 						ConsoleOperationListener opListener = new ConsoleOperationListener(monitor);
-						for (int i = 0; i < resources.length; i++) {
-							IResource resource = resources[i];
-							if (provider != null) {
-								provider.setComment(comment);
-								provider.setOperationListener(opListener);
-								provider.checkout(new IResource[] { resource }, depth, subMonitor(monitor));
-							}
+						if (provider != null) {
+							provider.setComment(comment);
+							provider.setOperationListener(opListener);
+							checkCanceled(monitor);
+							provider.checkout(resources, depth, new SubProgressMonitor(monitor, resources.length * 10000));
 						}
 					}
 				} finally {
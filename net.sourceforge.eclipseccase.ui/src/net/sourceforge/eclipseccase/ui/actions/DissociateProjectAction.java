@@ -62,6 +62,7 @@ public class DissociateProjectAction extends ClearCaseWorkspaceAction {
 						if (manager.getEnabled(ClearCaseDecorator.ID)) {
 							ClearCaseDecorator activeDecorator = (ClearCaseDecorator) manager.getBaseLabelProvider(ClearCaseDecorator.ID);
 							if (activeDecorator != null) {
+								activeDecorator.invalidate(project);
 								if (ClearCasePreferences.isFullRefreshOnAssociate())
 									activeDecorator.refresh(project);
 								else
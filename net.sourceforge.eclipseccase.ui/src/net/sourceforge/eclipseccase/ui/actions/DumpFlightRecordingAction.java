@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.ui.actions;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+import net.sourceforge.eclipseccase.statistics.FlightRecorder;
+
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkbenchWindowActionDelegate;
+import org.eclipse.ui.actions.ActionDelegate;
+
+/**
+ * Writes the recent ClearCase activity recorded by the {@link FlightRecorder}
+ * to a Chrome trace event file.
+ */
+public class DumpFlightRecordingAction extends ActionDelegate implements
+		IWorkbenchWindowActionDelegate {
+
+	private static final String TITLE = "ClearCase Flight Recording"; //$NON-NLS-1$
+
+	Shell shell;
+
+	@Override
+	public void dispose() {
+		shell = null;
+	}
+
+	public void init(IWorkbenchWindow window) {
+		this.shell = window.getShell();
+	}
+
+	@Override
+	public void run(IAction action) {
+		FileDialog dialog = new FileDialog(shell, SWT.SAVE);
+		dialog.setText(TITLE);
+		dialog.setFilterExtensions(new String[] { "*.json" }); //$NON-NLS-1$
+		dialog.setFileName("clearcase-trace.json"); //$NON-NLS-1$
+		String fileName = dialog.open();
+		if (fileName == null)
+			return;
+
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(fileName), ClearCasePlugin.UTF_8));
+			try {
+				FlightRecorder.getInstance().writeTraceEvents(writer);
+			} finally {
+				writer.close();
+			}
+			MessageDialog.openInformation(shell, TITLE,
+					"The recording was written to " + fileName //$NON-NLS-1$
+							+ ".\nOpen it with chrome://tracing."); //$NON-NLS-1$
+		} catch (IOException e) {
+			MessageDialog.openError(shell, TITLE, "Could not write " //$NON-NLS-1$
+					+ fileName + ": " + e.getMessage()); //$NON-NLS-1$
+		}
+	}
+}
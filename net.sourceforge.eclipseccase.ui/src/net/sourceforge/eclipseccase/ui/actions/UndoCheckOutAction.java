@@ -78,18 +78,30 @@ public class UndoCheckOutAction extends ClearCaseWorkspaceAction {
 							Vector<IResource> parents = new Vector<IResource>();
 
 							ConsoleOperationListener opListener = new ConsoleOperationListener(monitor);
+							// one call per provider, keeping the sort order
+							Map<ClearCaseProvider, List<IResource>> byProvider = new LinkedHashMap<ClearCaseProvider, List<IResource>>();
 							for (int i = 0; i < resources.length; i++) {
 								IResource resource = resources[i];
 								ClearCaseProvider provider = ClearCaseProvider.getClearCaseProvider(resource);
 								if (provider != null) {
-									provider.setOperationListener(opListener);
-									provider.uncheckout(new IResource[] { resource }, IResource.DEPTH_ZERO, subMonitor(monitor));
+									List<IResource> providerResources = byProvider.get(provider);
+									if (providerResources == null) {
+										providerResources = new ArrayList<IResource>();
+										byProvider.put(provider, providerResources);
+									}
+									providerResources.add(resource);
 								}
 								// update parent status only once
 								if (!parents.contains(resource.getParent())) {
 									parents.add(resource.getParent());
 								}
 							}
+							for (Map.Entry<ClearCaseProvider, List<IResource>> entry : byProvider.entrySet()) {
+								List<IResource> providerResources = entry.getValue();
+								entry.getKey().setOperationListener(opListener);
+								entry.getKey().uncheckout(providerResources.toArray(new IResource[providerResources.size()]), IResource.DEPTH_ZERO,
+										new SubProgressMonitor(monitor, providerResources.size() * 10000));
+							}
 
 							for (IResource resource : parents) {
 								ClearCaseProvider provider = ClearCaseProvider.getClearCaseProvider(resource);
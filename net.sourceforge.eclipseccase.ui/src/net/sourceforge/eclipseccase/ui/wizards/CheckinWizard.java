@@ -2,6 +2,7 @@ package net.sourceforge.eclipseccase.ui.wizards;
 
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import java.text.MessageFormat;
 import java.util.Arrays;
 import net.sourceforge.eclipseccase.ClearCasePreferences;
 import net.sourceforge.eclipseccase.ClearDlgHelper;
@@ -12,6 +13,7 @@ import org.eclipse.core.resources.IResource;
 import net.sourceforge.eclipseccase.ClearCaseProvider;
 
 import net.sourceforge.eclipseccase.ui.ClearCaseUI;
+import net.sourceforge.eclipseccase.ui.Messages;
 
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.wizard.Wizard;
@@ -47,6 +49,9 @@ public class CheckinWizard extends ResizableWizard implements INewWizard {
 
 	private ClearCaseProvider provider;
 
+	/** the resources not checked in because they are unchanged */
+	private IResource[] identical = new IResource[0];
+
 	public static final String CHECKIN_WIZARD_DIALOG_SETTINGS = "MergeWizard"; //$NON-NLS-1$
 
 	public static final int SCALE = 100;
@@ -107,6 +112,28 @@ public class CheckinWizard extends ResizableWizard implements INewWizard {
 			MessageDialog.openError(getShell(), "Error", realException.getMessage());
 			return false;
 		}
+		if (identical.length > 0
+				&& MessageDialog.openQuestion(getShell(), Messages.getString("CheckinWizard.identicalContent.title"), //$NON-NLS-1$
+						MessageFormat.format(Messages.getString("CheckinWizard.identicalContent.question"), //$NON-NLS-1$
+								new Object[] { Integer.valueOf(identical.length) }))) {
+			try {
+				getContainer().run(true, false, new IRunnableWithProgress() {
+					public void run(IProgressMonitor monitor) throws InvocationTargetException {
+						try {
+							provider.uncheckout(identical, IResource.DEPTH_ZERO, monitor);
+						} catch (CoreException e) {
+							throw new InvocationTargetException(e);
+						} finally {
+							monitor.done();
+						}
+					}
+				});
+			} catch (InterruptedException e) {
+				return true;
+			} catch (InvocationTargetException e) {
+				MessageDialog.openError(getShell(), "Error", e.getTargetException().getMessage());
+			}
+		}
 		return true;
 
 	}
@@ -120,13 +147,9 @@ public class CheckinWizard extends ResizableWizard implements INewWizard {
 		monitor.beginTask("Checking in...", resources.length);
 		ConsoleOperationListener opListener = new ConsoleOperationListener(monitor);
 		Arrays.sort(resources, new DirectoryLastComparator());
-		for (int i = 0; i < resources.length; i++) {
-			IResource resource = resources[i];
-			if (provider != null) {
-				
-				provider.setOperationListener(opListener);
-				provider.checkin(new IResource[] { resource }, depth, new SubProgressMonitor(monitor, 1 * SCALE));
-			}
+		if (provider != null) {
+			provider.setOperationListener(opListener);
+			identical = provider.checkin(resources, depth, new SubProgressMonitor(monitor, resources.length));
 		}
 
 	}
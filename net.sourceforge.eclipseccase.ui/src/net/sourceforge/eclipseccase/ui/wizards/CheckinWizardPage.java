@@ -2,7 +2,6 @@ package net.sourceforge.eclipseccase.ui.wizards;
 
 import java.io.File;
 import java.util.*;
-import net.sourceforge.clearcase.ClearCase;
 import net.sourceforge.eclipseccase.*;
 import net.sourceforge.eclipseccase.ui.ResourceComparator;
 import net.sourceforge.eclipseccase.ui.compare.ClearCaseResourceNode;
@@ -269,14 +268,7 @@ public class CheckinWizardPage extends WizardPage {
 		// get comment for last modified resource.
 		ClearCaseProvider provider = ClearCaseProvider.getClearCaseProvider(lastModifiedResource);
 		if (provider != null) {
-			String element = lastModifiedResource.getLocation().toOSString();
-			String[] output = provider.describe(element, ClearCase.FORMAT, "%c");
-			if (output.length > 0) {
-				for (int i = 0; i < output.length; i++) {
-					comment.append(output[i] + "\n");
-				}
-
-			}
+			comment.append(provider.getVersionComment(lastModifiedResource));
 			lastComment = comment.toString();
 		}
 		return lastComment;
@@ -5,9 +5,12 @@ import net.sourceforge.eclipseccase.*;
 import net.sourceforge.eclipseccase.ui.ClearCaseUI;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.viewers.*;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.team.core.Team;
 import org.eclipse.ui.*;
 import org.eclipse.ui.progress.IWorkbenchSiteProgressService;
@@ -214,7 +217,8 @@ public class CheckoutsView extends ResourceNavigator implements IResourceStateLi
 	 * subprocess to get the actual listing. Each found element is checked for a
 	 * corresponding IResource in the workspace. If found, that resource is
 	 * updated in the StateCache, which in turn triggers a StateChanged event
-	 * which updates the actual view.
+	 * which updates the actual view. When the job is done, the view is refreshed
+	 * from the state indexes.
 	 * 
 	 * All this may be very long operation, several minutes in huge CC views. It
 	 * is done in a newly created job.
@@ -255,7 +259,20 @@ public class CheckoutsView extends ResourceNavigator implements IResourceStateLi
 					}
 					return Status.OK_STATUS;
 				}
+
+				@Override
+				public boolean belongsTo(Object family) {
+					return ClearCasePlugin.FAMILY_CLEARCASE_OPERATION == family;
+				}
 			};
+			gatherViewPrivateStuff.addJobChangeListener(new JobChangeAdapter() {
+
+				@Override
+				public void done(IJobChangeEvent event) {
+					// show what the indexes contain now
+					refreshViewerInGuiThread();
+				}
+			});
 			gatherViewPrivateStuff.setPriority(Job.LONG);
 			gatherViewPrivateStuff.schedule();
 		} else {
@@ -289,76 +306,7 @@ public class CheckoutsView extends ResourceNavigator implements IResourceStateLi
 
 	@Override
 	public void setComparator(ResourceComparator comparator) {
-		super.setComparator(new ResourceComparator(comparator.getCriteria()) {
-
-			/*
-			 * (non-Javadoc)
-			 * 
-			 * @see
-			 * org.eclipse.ui.views.navigator.ResourceSorter#compare(org.eclipse
-			 * .jface.viewers.Viewer, java.lang.Object, java.lang.Object)
-			 */
-			@Override
-			public int compare(Viewer viewer, Object o1, Object o2) {
-				// have to deal with non-resources in navigator
-				// if one or both objects are not resources, returned a
-				// comparison
-				// based on class.
-				if (!(o1 instanceof IResource && o2 instanceof IResource))
-					return compareClass(o1, o2);
-				IResource r1 = (IResource) o1;
-				IResource r2 = (IResource) o2;
-
-				int typeres = compareClearCaseTypes(r1, r2);
-				if (typeres != 0) {
-					return typeres;
-				}
-				if (getCriteria() == NAME)
-					return compareNames(r1, r2);
-				else if (getCriteria() == TYPE)
-					return compareTypes(r1, r2);
-				else
-					return 0;
-			}
-
-			@SuppressWarnings("unchecked")
-			@Override
-			protected int compareNames(IResource resource1, IResource resource2) {
-				return getComparator().compare(resource1.getFullPath().toString(), resource2.getFullPath().toString());
-			}
-
-			protected int compareClearCaseTypes(IResource resource1, IResource resource2) {
-				// TODO: optimize this, how can the repeated lookups be
-				// eliminated?
-				StateCache c1 = StateCacheFactory.getInstance().get(resource1);
-				StateCache c2 = StateCacheFactory.getInstance().get(resource2);
-				// sort checkedout files first
-				if (c1.isCheckedOut()) {
-					if (c2.isCheckedOut()) {
-						return 0;
-					} else {
-						return -1;
-					}
-				} else if (c2.isCheckedOut()) {
-					return 1;
-				} else {
-					// no CO
-					// sort hijacked files second
-					if (c1.isHijacked()) {
-						if (c2.isHijacked()) {
-							return 0;
-						} else {
-							return -1;
-						}
-					} else if (c2.isHijacked()) {
-						return 1;
-					} else {
-						// both files are neither CO nor hijacked
-						return 0;
-					}
-				}
-			}
-		});
+		super.setComparator(new CheckoutsViewComparator(comparator.getCriteria()));
 	}
 
 	@Override
@@ -401,6 +349,26 @@ public class CheckoutsView extends ResourceNavigator implements IResourceStateLi
 		initialized = true;
 	}
 
+	/**
+	 * Refreshes the viewer from the state cache, without asking ClearCase.
+	 */
+	void refreshViewerInGuiThread() {
+		try {
+			final Control control = getViewer().getControl();
+			if (control.isDisposed())
+				return;
+			control.getDisplay().asyncExec(new Runnable() {
+				public void run() {
+					if (!control.isDisposed()) {
+						refresh();
+					}
+				}
+			});
+		} catch (NullPointerException e) {
+			// if the getViewer() etc is not yet initialized, ignore that...
+		}
+	}
+
 	public void refreshInGuiThread() {
 		try {
 			getViewer().getControl().getDisplay().asyncExec(new Runnable() {
@@ -427,33 +395,41 @@ public class CheckoutsView extends ResourceNavigator implements IResourceStateLi
 			return;
 		}
 
+		// compute the changes of the whole batch here, not in the UI thread
+		final List<IResource> toRemove = new ArrayList<IResource>(resources.length);
+		final List<IResource> toAdd = new ArrayList<IResource>();
 		for (int i = 0; i < resources.length; i++) {
-			final IResource resource = resources[i];
+			IResource resource = resources[i];
 
 			// filter out ignored resources
 			ClearCaseProvider provider = ClearCaseProvider.getClearCaseProvider(resource);
 			if (null == provider || provider.isIgnored(resource))
-				return;
+				continue;
 
-			// do not add non existent resources
-			final boolean shouldAdd = resource.exists() && shouldAdd(resource);
+			// we remove in every case
+			toRemove.add(resource);
 
-			if (null != getViewer() && null != getViewer().getControl() && !getViewer().getControl().isDisposed()) {
-				getViewer().getControl().getDisplay().syncExec(new Runnable() {
+			// do not add non existent resources
+			if (resource.exists() && shouldAdd(resource)) {
+				toAdd.add(resource);
+			}
+		}
+		if (toRemove.isEmpty())
+			return;
 
-					public void run() {
-						if (null != getViewer() && null != getViewer().getControl() && !getViewer().getControl().isDisposed()) {
-							// we remove in every case
-							getViewer().remove(resource);
+		// never block the state update on the UI thread
+		if (null != getViewer() && null != getViewer().getControl() && !getViewer().getControl().isDisposed()) {
+			getViewer().getControl().getDisplay().asyncExec(new Runnable() {
 
-							// only add if desired
-							if (shouldAdd) {
-								getViewer().add(getRoot(), resource);
-							}
+				public void run() {
+					if (null != getViewer() && null != getViewer().getControl() && !getViewer().getControl().isDisposed()) {
+						getViewer().remove(toRemove.toArray());
+						if (!toAdd.isEmpty()) {
+							getViewer().add(getRoot(), toAdd.toArray());
 						}
 					}
-				});
-			}
+				}
+			});
 		}
 	}
 
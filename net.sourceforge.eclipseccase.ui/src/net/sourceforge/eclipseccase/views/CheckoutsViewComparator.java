@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.views;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import net.sourceforge.eclipseccase.StateCache;
+import net.sourceforge.eclipseccase.StateCacheFactory;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.ui.views.navigator.ResourceComparator;
+
+/**
+ * Sorts the Checkouts view: checked out files first, hijacked files second,
+ * then by the criteria of the navigator.
+ * <p>
+ * The ClearCase state and the path of every element are looked up once per
+ * sort and kept in a {@link SortKey}, instead of once per comparison.
+ * </p>
+ */
+@SuppressWarnings("deprecation")
+class CheckoutsViewComparator extends ResourceComparator {
+
+	/** the rank of checked out resources */
+	private static final int RANK_CHECKED_OUT = 0;
+
+	/** the rank of hijacked resources */
+	private static final int RANK_HIJACKED = 1;
+
+	/** the rank of all other resources */
+	private static final int RANK_OTHER = 2;
+
+	/**
+	 * The immutable sort key of an element.
+	 */
+	private static final class SortKey {
+
+		final Object element;
+
+		final IResource resource;
+
+		final int rank;
+
+		final String path;
+
+		SortKey(Object element) {
+			this.element = element;
+			if (element instanceof IResource) {
+				resource = (IResource) element;
+				path = resource.getFullPath().toString();
+				StateCache cache = StateCacheFactory.getInstance().get(resource);
+				if (cache.isCheckedOut()) {
+					rank = RANK_CHECKED_OUT;
+				} else if (cache.isHijacked()) {
+					rank = RANK_HIJACKED;
+				} else {
+					rank = RANK_OTHER;
+				}
+			} else {
+				resource = null;
+				path = null;
+				rank = RANK_OTHER;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new comparator.
+	 *
+	 * @param criteria
+	 *            the sort criteria, {@link #NAME} or {@link #TYPE}
+	 */
+	CheckoutsViewComparator(int criteria) {
+		super(criteria);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.ui.views.navigator.ResourceComparator#compare(org.eclipse.jface.viewers.Viewer,
+	 *      java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public int compare(Viewer viewer, Object o1, Object o2) {
+		return compare(new SortKey(o1), new SortKey(o2));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.ViewerComparator#sort(org.eclipse.jface.viewers.Viewer,
+	 *      java.lang.Object[])
+	 */
+	@Override
+	public void sort(Viewer viewer, Object[] elements) {
+		if (elements.length < 2)
+			return;
+		SortKey[] keys = new SortKey[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			keys[i] = new SortKey(elements[i]);
+		}
+		Arrays.sort(keys, new Comparator<SortKey>() {
+
+			public int compare(SortKey k1, SortKey k2) {
+				return CheckoutsViewComparator.this.compare(k1, k2);
+			}
+		});
+		for (int i = 0; i < keys.length; i++) {
+			elements[i] = keys[i].element;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected int compareNames(IResource resource1, IResource resource2) {
+		return getComparator().compare(resource1.getFullPath().toString(), resource2.getFullPath().toString());
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(SortKey k1, SortKey k2) {
+		// have to deal with non-resources in navigator
+		// if one or both objects are not resources, returned a comparison
+		// based on class.
+		if (null == k1.resource || null == k2.resource)
+			return compareClass(k1.element, k2.element);
+
+		// sort checkedout files first, hijacked files second
+		if (k1.rank != k2.rank)
+			return k1.rank - k2.rank;
+
+		if (getCriteria() == NAME)
+			return getComparator().compare(k1.path, k2.path);
+		else if (getCriteria() == TYPE)
+			return compareTypes(k1.resource, k2.resource);
+		else
+			return 0;
+	}
+}
@@ -12,6 +12,9 @@
  *******************************************************************************/
 package net.sourceforge.eclipseccase.views;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import net.sourceforge.eclipseccase.StateCacheFactory;
 import net.sourceforge.eclipseccase.ui.ClearCaseUI;
 import org.eclipse.core.resources.IResource;
@@ -57,44 +60,32 @@ public class CheckoutsViewRoot implements IDeferredWorkbenchAdapter, IAdaptable
 			ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: starting"); //$NON-NLS-1$
 		}
 
-		Iterable<IResource> resources = StateCacheFactory.getInstance().getContainedResources();
+		// only the indexed states can be shown, no need to look at others
+		Set<IResource> resources = new HashSet<IResource>();
+		StateCacheFactory factory = StateCacheFactory.getInstance();
+		if (!checkoutsView.hideCheckouts()) {
+			resources.addAll(Arrays.asList(factory.getCheckedOutResources()));
+		}
+		if (!checkoutsView.hideNewElements()) {
+			resources.addAll(Arrays.asList(factory.getViewPrivateResources()));
+		}
+		if (!checkoutsView.hideHijackedElements()) {
+			resources.addAll(Arrays.asList(factory.getHijackedResources()));
+		}
 		for (IResource resource : resources) {
 			// determine state
-			if (checkoutsView.shouldAdd(resource)) {
+			if (resource.exists() && checkoutsView.shouldAdd(resource)) {
 				if (ClearCaseUI.DEBUG_VIEWPRIV) {
 					ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "adding to collector: " + resource.getFullPath()); //$NON-NLS-1$
 				}
 				collector.add(resource, new SubProgressMonitor(monitor, 1000, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
 			}
 		}
-		boolean waited = false;
-		while (checkoutsView.isRefreshActive()) {
-			//			ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: waiting..."); //$NON-NLS-1$
-			try {
-				Thread.sleep(300);
-				waited = true;
-			} catch (InterruptedException e) {
-			}
-		}
-		if (waited && ClearCaseUI.DEBUG_VIEWPRIV) {
-			ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: waiting for CC refresh done"); //$NON-NLS-1$
-		}
-
-		waited = false;
-		while (StateCacheFactory.getInstance().hasPendingUpdates()) {
-			// ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: waiting..."); //$NON-NLS-1$
-			try {
-				Thread.sleep(300);
-				waited = true;
-			} catch (InterruptedException e) {
-			}
-		}
 
+		// resources changing later are added by the state change events, and
+		// the view refreshes itself when its refresh from ClearCase is done
 		if (ClearCaseUI.DEBUG_VIEWPRIV) {
-			if (waited) {
-				ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: waiting for async refreshes done"); //$NON-NLS-1$
-			}
-			ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: done"); //$NON-NLS-1$
+			ClearCaseUI.trace(ClearCaseUI.VIEWPRIV, "fetchDeferredChildren: done, " + resources.size() + " indexed"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		collector.done();
 
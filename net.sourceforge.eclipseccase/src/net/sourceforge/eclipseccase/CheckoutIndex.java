@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseException;
+import net.sourceforge.clearcase.ClearCaseInterface;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.team.core.TeamException;
+
+/**
+ * Knows which elements of the workspace are checked out in other views.
+ * <p>
+ * The index is rebuilt periodically in the background with one recursive
+ * checkout query per VOB, covering all views. The result is applied to all
+ * state cache entries at once, so the "checked out in another view" state is
+ * available without a query per element.
+ * </p>
+ */
+class CheckoutIndex extends Job {
+
+	/** the output format of checkout queries */
+	static final String FORMAT = "%En\tPredecessor: %[version_predecessor]p\tView: %Tf\tStatus: %Rf\n"; //$NON-NLS-1$
+
+	/** matches a line printed in {@link #FORMAT} */
+	private static final Pattern LINE = Pattern
+			.compile("([^\t]*)\t.*View:\\s(.*)\\sStatus:.*"); //$NON-NLS-1$
+
+	/** matches the view prefix of a dynamic view path on UNIX */
+	private static final Pattern VIEW_PREFIX = Pattern
+			.compile("^/view/[^/]+(?=/)"); //$NON-NLS-1$
+
+	private static final String TRACE_ID = "CheckoutIndex"; //$NON-NLS-1$
+
+	private static final CheckoutIndex instance = new CheckoutIndex();
+
+	/** the views other than the own one, by normalized element path */
+	private volatile Map<String, List<String>> views = Collections
+			.emptyMap();
+
+	private CheckoutIndex() {
+		super("Looking for checkouts in other views");
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return the shared instance
+	 */
+	static CheckoutIndex getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Starts building the index periodically, unless disabled in the
+	 * preferences.
+	 */
+	void start() {
+		if (ClearCasePreferences.getCheckoutIndexInterval() > 0) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Indicates if an element is checked out in another view, according to the
+	 * last query.
+	 *
+	 * @param path
+	 *            the element path (maybe <code>null</code>)
+	 * @return <code>true</code> if checked out in another view
+	 */
+	boolean isCheckedOutInOtherView(String path) {
+		return path != null && views.containsKey(normalize(path));
+	}
+
+	/**
+	 * Returns the other views an element is checked out in, according to the
+	 * last query.
+	 *
+	 * @param path
+	 *            the element path (maybe <code>null</code>)
+	 * @return the views, empty if none
+	 */
+	List<String> getViews(String path) {
+		List<String> result = path == null ? null : views.get(normalize(path));
+		return result == null ? Collections.<String> emptyList() : result;
+	}
+
+	/**
+	 * Brings an element path into the form used as key by this index, so
+	 * paths printed by cleartool match the locations of the workspace.
+	 * Separators are unified, drive letters and case are ignored on Windows
+	 * and the view prefix of dynamic views (<code>/view/tag</code>) is
+	 * removed.
+	 *
+	 * @param path
+	 * @return the normalized path
+	 */
+	static String normalize(String path) {
+		String result = path.replace('\\', '/');
+		if (ClearCasePlugin.isWindows()) {
+			if (result.length() > 1 && result.charAt(1) == ':') {
+				result = result.substring(2);
+			}
+			result = result.toLowerCase();
+		}
+		return VIEW_PREFIX.matcher(result).replaceFirst(""); //$NON-NLS-1$
+	}
+
+	/**
+	 * Parses the output of a checkout query in {@link #FORMAT}.
+	 *
+	 * @param output
+	 * @param ownView
+	 *            the view whose checkouts are ignored
+	 * @param result
+	 *            receives the other views by normalized element path
+	 */
+	static void parse(String[] output, String ownView,
+			Map<String, List<String>> result) {
+		for (int i = 0; i < output.length; i++) {
+			Matcher matcher = LINE.matcher(output[i]);
+			if (!matcher.find())
+				continue;
+			String view = matcher.group(2);
+			if (view.equals(ownView))
+				continue;
+			String path = normalize(matcher.group(1));
+			List<String> elementViews = result.get(path);
+			if (elementViews == null) {
+				elementViews = new ArrayList<String>();
+				result.put(path, elementViews);
+			}
+			if (!elementViews.contains(view)) {
+				elementViews.add(view);
+			}
+		}
+	}
+
+	/**
+	 * Parses the output of a checkout query in {@link #FORMAT} for the
+	 * checkouts of one view.
+	 *
+	 * @param output
+	 * @param view
+	 * @return the normalized paths of the elements checked out in the view
+	 * @see #normalize(String)
+	 */
+	static Set<String> parseCheckedOut(String[] output, String view) {
+		Set<String> result = new HashSet<String>();
+		for (int i = 0; i < output.length; i++) {
+			Matcher matcher = LINE.matcher(output[i]);
+			if (matcher.find() && matcher.group(2).equals(view)) {
+				result.add(normalize(matcher.group(1)));
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			ClearCaseInterface engine = ClearCasePlugin.getEngine();
+			if (engine == null)
+				return Status.OK_STATUS;
+			// there are no checkouts in other views that matter with UCM
+			views = ClearCasePreferences.isUCM() ? Collections
+					.<String, List<String>> emptyMap() : query(engine, monitor);
+			StateCacheFactory.getInstance().updateEdited(this);
+			return Status.OK_STATUS;
+		} finally {
+			int interval = ClearCasePreferences.getCheckoutIndexInterval();
+			if (interval > 0 && !monitor.isCanceled()) {
+				schedule(interval * 60000L);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+	 */
+	@Override
+	public boolean belongsTo(Object family) {
+		return ClearCasePlugin.FAMILY_CHECKOUT_INDEX == family;
+	}
+
+	/**
+	 * Queries the checkouts below all ClearCase projects, with one query per
+	 * view and VOB.
+	 */
+	private Map<String, List<String>> query(ClearCaseInterface engine,
+			IProgressMonitor monitor) {
+		Map<String, List<String>> roots = new TreeMap<String, List<String>>();
+		Map<String, String> ownViews = new HashMap<String, String>();
+		IProject[] projects = ResourcesPlugin.getWorkspace().getRoot()
+				.getProjects();
+		for (int i = 0; i < projects.length; i++) {
+			ClearCaseProvider provider = ClearCaseProvider
+					.getClearCaseProvider(projects[i]);
+			IPath location = projects[i].getLocation();
+			if (provider == null || location == null)
+				continue;
+			String view = ClearCaseProvider.getViewName(projects[i]);
+			String key;
+			try {
+				key = view + "/" + provider.getVobName(projects[i]); //$NON-NLS-1$
+			} catch (TeamException e) {
+				continue;
+			}
+			List<String> paths = roots.get(key);
+			if (paths == null) {
+				paths = new ArrayList<String>();
+				roots.put(key, paths);
+				ownViews.put(key, view);
+			}
+			paths.add(location.toOSString());
+		}
+
+		Map<String, List<String>> result = new HashMap<String, List<String>>();
+		HashMap<Integer, String> args = new HashMap<Integer, String>();
+		args.put(Integer.valueOf(ClearCase.FORMAT), FORMAT);
+		monitor.beginTask(getName(), roots.size());
+		try {
+			for (Map.Entry<String, List<String>> entry : roots.entrySet()) {
+				if (monitor.isCanceled())
+					return views;
+				List<String> paths = entry.getValue();
+				try {
+					parse(engine.findCheckouts(ClearCase.FORMAT
+							| ClearCase.RECURSIVE, args, paths
+							.toArray(new String[paths.size()])), ownViews
+							.get(entry.getKey()), result);
+				} catch (ClearCaseException e) {
+					if (ClearCasePlugin.DEBUG_STATE_CACHE) {
+						ClearCasePlugin.trace(TRACE_ID,
+								"query failed for " + paths + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				}
+				monitor.worked(1);
+			}
+			return result;
+		} finally {
+			monitor.done();
+		}
+	}
+}
@@ -19,11 +19,16 @@ import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.resources.team.FileModificationValidationContext;
 import org.eclipse.core.resources.team.FileModificationValidator;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.dialogs.MessageDialogWithToggle;
@@ -128,9 +133,50 @@ public class ClearCaseModificationHandler extends FileModificationValidator {
 	 */
 	protected boolean setResourceRefreshing(ClearCaseProvider provider,
 			boolean refreshResource) {
-		boolean old = provider.refreshResources;
-		provider.refreshResources = refreshResource;
-		return old;
+		return provider.setRefreshResources(refreshResource);
+	}
+
+	/**
+	 * Locks the parent directories of the specified files against concurrent
+	 * moves and deletes.
+	 * 
+	 * @param provider
+	 * @param files
+	 * @return the lock, to be released in a finally block
+	 */
+	protected DirectoryLocks.Lock lockParents(ClearCaseProvider provider,
+			IResource[] files) {
+		IResource[] parents = new IResource[files.length];
+		for (int i = 0; i < files.length; i++) {
+			parents[i] = files[i].getParent();
+		}
+		return provider.directoryLocks.lock(parents, null);
+	}
+
+	/**
+	 * Refreshes the specified files in a single workspace operation, so
+	 * listeners are notified only once.
+	 * 
+	 * @param files
+	 * @param monitor
+	 * @throws CoreException
+	 */
+	protected void refresh(final IResource[] files, IProgressMonitor monitor)
+			throws CoreException {
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+
+			public void run(IProgressMonitor monitor) throws CoreException {
+				monitor.beginTask("Refreshing", files.length);
+				try {
+					for (int i = 0; i < files.length; i++) {
+						files[i].refreshLocal(IResource.DEPTH_ZERO,
+								new SubProgressMonitor(monitor, 1));
+					}
+				} finally {
+					monitor.done();
+				}
+			}
+		}, null, IWorkspace.AVOID_UPDATE, monitor);
 	}
 
 	/**
@@ -179,24 +225,21 @@ public class ClearCaseModificationHandler extends FileModificationValidator {
 
 		// checkout
 		try {
-			synchronized (provider) {
-				boolean refreshing = setResourceRefreshing(provider, false);
-				try {
-					if (ClearCasePreferences.isUseClearDlg()) {
-						ClearDlgHelper.checkout(files);
-					}
-					for (int i = 0; i < files.length; i++) {
-						IFile file = files[i];
-						if (!ClearCasePreferences.isUseClearDlg()) {
-							provider.checkout(new IFile[] { file },
-									IResource.DEPTH_ZERO, null);
-						}
-						file.refreshLocal(IResource.DEPTH_ZERO, null);
-					}
-				} finally {
-					setResourceRefreshing(provider, refreshing);
+			DirectoryLocks.Lock lock = lockParents(provider, files);
+			boolean refreshing = setResourceRefreshing(provider, false);
+			try {
+				if (ClearCasePreferences.isUseClearDlg()) {
+					ClearDlgHelper.checkout(files);
+				} else {
+					provider.checkout(files, IResource.DEPTH_ZERO, null);
 				}
+			} finally {
+				setResourceRefreshing(provider, refreshing);
+				lock.release();
 			}
+			// moves hold the scheduling rule while they wait for the
+			// directory locks, so refresh only after the release
+			refresh(files, null);
 		} catch (CoreException ex) {
 			return ex.getStatus();
 		}
@@ -25,9 +25,21 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.text.MessageFormat;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -35,6 +47,13 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import net.sourceforge.clearcase.ClearCase;
 import net.sourceforge.clearcase.ClearCaseException;
 import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.eclipseccase.engine.EngineRecording;
+import net.sourceforge.eclipseccase.engine.InstrumentedClearCase;
+import net.sourceforge.eclipseccase.engine.PathAnonymizer;
+import net.sourceforge.eclipseccase.engine.RecordingClearCase;
+import net.sourceforge.eclipseccase.engine.ReplayClearCase;
+import net.sourceforge.eclipseccase.engine.SimulatedClearCase;
+import net.sourceforge.eclipseccase.statistics.ClearCaseStatistics;
 import net.sourceforge.eclipseccase.tools.XMLWriter;
 
 import org.eclipse.core.resources.IResourceChangeEvent;
@@ -80,6 +99,9 @@ public class ClearCasePlugin extends Plugin {
 	/** job family for all clearcase operations */
 	public static final Object FAMILY_CLEARCASE_OPERATION = new Object();
 
+	/** job family of the background query for checkouts in other views */
+	public static final Object FAMILY_CHECKOUT_INDEX = new Object();
+
 	/** the scheduling rule for the whole clearcase engine */
 	public static final ISchedulingRule RULE_CLEARCASE_ENGING = new ISchedulingRule() {
 
@@ -137,6 +159,43 @@ public class ClearCasePlugin extends Plugin {
 	/** constant (value <code>UTF-8</code>) */
 	public static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
 
+	/**
+	 * system property selecting the ClearCase engine; set it to
+	 * {@link #ENGINE_SIMULATOR} to run without cleartool
+	 */
+	public static final String ENGINE_PROPERTY = PLUGIN_ID + ".engine"; //$NON-NLS-1$
+
+	/** system property naming a script file for the simulated engine */
+	public static final String ENGINE_SCRIPT_PROPERTY = PLUGIN_ID
+			+ ".engine.script"; //$NON-NLS-1$
+
+	/** value of {@link #ENGINE_PROPERTY} for the in-memory engine */
+	public static final String ENGINE_SIMULATOR = "simulator"; //$NON-NLS-1$
+
+	/**
+	 * value of {@link #ENGINE_PROPERTY} for the engine replaying the file named
+	 * by {@link #ENGINE_RECORDING_PROPERTY}
+	 */
+	public static final String ENGINE_REPLAY = "replay"; //$NON-NLS-1$
+
+	/**
+	 * system property naming the engine recording; all engine calls are
+	 * written to it unless {@link #ENGINE_REPLAY} is selected
+	 */
+	public static final String ENGINE_RECORDING_PROPERTY = PLUGIN_ID
+			+ ".engine.recording"; //$NON-NLS-1$
+
+	/** system property, set to <code>true</code> to anonymize recorded paths */
+	public static final String ENGINE_ANONYMIZE_PROPERTY = PLUGIN_ID
+			+ ".engine.anonymize"; //$NON-NLS-1$
+
+	/**
+	 * system property, the factor applied to replayed latencies (default
+	 * <code>1</code>, <code>0</code> for no delay)
+	 */
+	public static final String ENGINE_LATENCY_SCALE_PROPERTY = PLUGIN_ID
+			+ ".engine.latencyScale"; //$NON-NLS-1$
+
 	/** debug option */
 	private static final String DEBUG_OPTION_PROVIDER = ClearCasePlugin.PLUGIN_ID
 			+ "/debug/provider"; //$NON-NLS-1$
@@ -167,6 +226,9 @@ public class ClearCasePlugin extends Plugin {
 
 	/** indicates if debugging is enabled */
 	public static boolean DEBUG = false;
+
+	/** indicates if subprocess debugging is enabled */
+	private static boolean DEBUG_SUBPROCESS = false;
 	
 	// the list of all repositories currently handled by this provider
 	private ClearCaseRepositories repositories;
@@ -209,7 +271,8 @@ public class ClearCasePlugin extends Plugin {
 
 			if (getDebugOption(DEBUG_OPTION_SUBPROCESS)) {
 				trace("debugging " + DEBUG_OPTION_SUBPROCESS); //$NON-NLS-1$
-				ClearCasePlugin.getEngine().setDebugLevel(100);
+				// applied when the engine gets created
+				ClearCasePlugin.DEBUG_SUBPROCESS = true;
 			}
 
 			String[] args = Platform.getCommandLineArgs();
@@ -315,7 +378,9 @@ public class ClearCasePlugin extends Plugin {
 	 * @return the ClearCase engine (maybe <code>null</code>)
 	 */
 	public static ClearCaseInterface getEngine() {
-		ClearCaseInterface impl = null;
+		ClearCaseInterface impl = sessionEngine.get();
+		if (impl != null)
+			return impl;
 		try {
 			impl = ClearCasePlugin.getDefault().getClearCase();
 		} catch (CoreException e) {
@@ -377,7 +442,19 @@ public class ClearCasePlugin extends Plugin {
 		log(IStatus.ERROR, message, ex);
 	}
 
-	private ClearCaseInterface clearcaseImpl;
+	private volatile ClearCaseInterface clearcaseImpl;
+
+	/** the background engine start-up (<code>null</code> if not pending) */
+	private volatile FutureTask<ClearCaseInterface> engineStartup;
+
+	/** lock guarding the creation and disposal of the engine */
+	private final Object engineLock = new Object();
+
+	/** the engine session of the current thread, if it has its own */
+	private static final ThreadLocal<ClearCaseInterface> sessionEngine = new ThreadLocal<ClearCaseInterface>();
+
+	/** the engine sessions that are not disposed yet, guarded by engineLock */
+	private final Set<ClearCaseInterface> engineSessions = new HashSet<ClearCaseInterface>();
 
 	/** debug flag */
 	public static boolean DEBUG_PROVIDER = false;
@@ -451,34 +528,196 @@ public class ClearCasePlugin extends Plugin {
 	 * settings. It is cached internally. After changing the preferences you
 	 * have to do a reset (see {@link #resetClearCase()}.
 	 * </p>
+	 * <p>
+	 * If the background start-up has not begun yet it is run in the calling
+	 * thread. If it is already running this method waits for it to finish, but
+	 * at most {@link ClearCasePreferences#getEngineStartupTimeout()} seconds.
+	 * </p>
 	 * 
 	 * @return the ClearCase engine
 	 * @throws CoreException
 	 *             if no engine is available
 	 */
 	public ClearCaseInterface getClearCase() throws CoreException {
+		ClearCaseInterface impl = clearcaseImpl;
+		if (impl != null)
+			return impl;
+
+		FutureTask<ClearCaseInterface> startup = engineStartup;
+		if (startup != null) {
+			impl = awaitEngineStartup(startup);
+			if (impl != null)
+				return impl;
+		}
+
+		return createClearCase();
+	}
+
+	/**
+	 * Waits for the background engine start-up to finish, running it in the
+	 * calling thread if the start-up job did not begin yet.
+	 * 
+	 * @param startup
+	 * @return the started engine or <code>null</code> if the start-up was
+	 *         cancelled
+	 * @throws CoreException
+	 *             if the engine could not be started or did not start in time
+	 */
+	private ClearCaseInterface awaitEngineStartup(
+			FutureTask<ClearCaseInterface> startup) throws CoreException {
+		// does nothing if the job already runs it, so the timeout below only
+		// counts while the start-up is actually in progress
+		startup.run();
+		int timeout = ClearCasePreferences.getEngineStartupTimeout();
 		try {
-			if (clearcaseImpl == null) {
+			return startup.get(timeout, TimeUnit.SECONDS);
+		} catch (CancellationException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CoreException)
+				throw (CoreException) e.getCause();
+			throw new CoreException(
+					new Status(
+							IStatus.ERROR,
+							ClearCasePlugin.PLUGIN_ID,
+							TeamException.UNABLE,
+							Messages
+									.getString("ClearCasePlugin.error.noValidClearCase"), e.getCause())); //$NON-NLS-1$
+		} catch (TimeoutException e) {
+			throw new CoreException(new Status(IStatus.ERROR,
+					ClearCasePlugin.PLUGIN_ID, TeamException.UNABLE,
+					MessageFormat.format(Messages
+							.getString("ClearCasePlugin.error.engineStartupTimeout"), //$NON-NLS-1$
+							new Object[] { Integer.valueOf(timeout) }), e));
+		}
+	}
+
+	/**
+	 * Creates the ClearCase engine if it does not exist yet and remembers the
+	 * outcome for the next session.
+	 * 
+	 * @return the ClearCase engine
+	 * @throws CoreException
+	 *             if no engine is available
+	 */
+	private ClearCaseInterface createClearCase() throws CoreException {
+		synchronized (engineLock) {
+			if (clearcaseImpl != null)
+				return clearcaseImpl;
+			try {
 				if (DEBUG) {
 					trace("initializing clearcase engine"); //$NON-NLS-1$
 				}
 
-				if (ClearCasePreferences.isUseSingleProcess()) {
+				ClearCaseInterface impl;
+				if (ENGINE_REPLAY.equals(System.getProperty(ENGINE_PROPERTY))) {
+					if (DEBUG) {
+						trace("using replay engine"); //$NON-NLS-1$
+					}
+					clearcaseImpl = new InstrumentedClearCase(
+							createReplayClearCase());
+					return clearcaseImpl;
+				} else if (ENGINE_SIMULATOR.equals(System
+						.getProperty(ENGINE_PROPERTY))) {
+					if (DEBUG) {
+						trace("using simulated engine"); //$NON-NLS-1$
+					}
+					clearcaseImpl = new InstrumentedClearCase(
+							createRecordingClearCase(createSimulatedClearCase()));
+					return clearcaseImpl;
+				} else if (ClearCasePreferences.isUseSingleProcess()) {
 					if (DEBUG) {
 						trace("using default engine"); //$NON-NLS-1$
 					}
-					clearcaseImpl = ClearCase
+					impl = ClearCase
 							.createInterface(ClearCase.INTERFACE_CLI_SP);
 				} else {
 					if (DEBUG) {
 						trace("using old cleartool process"); //$NON-NLS-1$
 					}
-					clearcaseImpl = ClearCase
-							.createInterface(ClearCase.INTERFACE_CLI);
+					impl = ClearCase.createInterface(ClearCase.INTERFACE_CLI);
+				}
+				if (DEBUG_SUBPROCESS) {
+					impl.setDebugLevel(100);
 				}
 
+				// record call statistics for every engine call
+				clearcaseImpl = new InstrumentedClearCase(
+						createRecordingClearCase(impl));
+				ClearCasePreferences.setEngineAvailable(true);
+				return clearcaseImpl;
+			} catch (ClearCaseException e) {
+				ClearCasePreferences.setEngineAvailable(false);
+				throw new CoreException(
+						new Status(
+								IStatus.ERROR,
+								ClearCasePlugin.PLUGIN_ID,
+								TeamException.UNABLE,
+								Messages
+										.getString("ClearCasePlugin.error.noValidClearCase"), e)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Replaces the shared engine, e.g. by a delegate observing the calls in a
+	 * test. The engine is disposed by {@link #resetClearCase()}.
+	 * 
+	 * @param engine
+	 *            the new shared engine
+	 */
+	public void setClearCase(ClearCaseInterface engine) {
+		synchronized (engineLock) {
+			clearcaseImpl = engine;
+		}
+	}
+
+	/**
+	 * Indicates if operations may run in additional engine sessions.
+	 * <p>
+	 * Only cleartool engines get their own sessions. The simulated and the
+	 * replay engine keep their state in memory, and all traffic has to end up
+	 * in one recording, so in these cases everything runs in the shared
+	 * engine.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if {@link #createEngineSession()} may be used
+	 */
+	public boolean isEngineSessionSupported() {
+		return System.getProperty(ENGINE_PROPERTY) == null
+				&& System.getProperty(ENGINE_RECORDING_PROPERTY) == null;
+	}
+
+	/**
+	 * Creates an additional engine session, so operations can run
+	 * concurrently to the shared engine.
+	 * 
+	 * @return the new session, to be released with
+	 *         {@link #disposeEngineSession(ClearCaseInterface)}
+	 * @throws CoreException
+	 *             if sessions are not supported or the session can't be
+	 *             started
+	 */
+	public ClearCaseInterface createEngineSession() throws CoreException {
+		if (!isEngineSessionSupported())
+			throw new CoreException(new Status(IStatus.ERROR, PLUGIN_ID,
+					TeamException.UNABLE,
+					"Engine sessions are not supported by this engine", null)); //$NON-NLS-1$
+		try {
+			ClearCaseInterface impl = ClearCase
+					.createInterface(ClearCasePreferences.isUseSingleProcess() ? ClearCase.INTERFACE_CLI_SP
+							: ClearCase.INTERFACE_CLI);
+			if (DEBUG_SUBPROCESS) {
+				impl.setDebugLevel(100);
 			}
-			return clearcaseImpl;
+			ClearCaseInterface session = new InstrumentedClearCase(impl);
+			synchronized (engineLock) {
+				engineSessions.add(session);
+			}
+			return session;
 		} catch (ClearCaseException e) {
 			throw new CoreException(
 					new Status(
@@ -490,6 +729,176 @@ public class ClearCasePlugin extends Plugin {
 		}
 	}
 
+	/**
+	 * Disposes an engine session created by {@link #createEngineSession()}.
+	 * Sessions are never shared with {@link #resetClearCase()}, so each one
+	 * is disposed exactly once.
+	 * 
+	 * @param session
+	 */
+	public void disposeEngineSession(ClearCaseInterface session) {
+		synchronized (engineLock) {
+			if (!engineSessions.remove(session))
+				return;
+		}
+		session.dispose();
+	}
+
+	/**
+	 * Makes {@link #getEngine()} return the given session in the current
+	 * thread.
+	 * 
+	 * @param session
+	 *            the session (maybe <code>null</code> to use the shared
+	 *            engine again)
+	 */
+	public static void setEngineSession(ClearCaseInterface session) {
+		if (session == null) {
+			sessionEngine.remove();
+		} else {
+			sessionEngine.set(session);
+		}
+	}
+
+	/**
+	 * Creates the in-memory engine and loads the script named by
+	 * {@link #ENGINE_SCRIPT_PROPERTY}, if any.
+	 * 
+	 * @return the simulated engine
+	 * @throws CoreException
+	 *             if the script can't be loaded
+	 */
+	private static SimulatedClearCase createSimulatedClearCase()
+			throws CoreException {
+		SimulatedClearCase simulator = new SimulatedClearCase();
+		String script = System.getProperty(ENGINE_SCRIPT_PROPERTY);
+		if (script != null) {
+			try {
+				Reader reader = new InputStreamReader(new FileInputStream(
+						script), UTF_8);
+				try {
+					simulator.runScript(reader);
+				} finally {
+					reader.close();
+				}
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, PLUGIN_ID,
+						TeamException.UNABLE,
+						"Could not load simulator script " + script, e)); //$NON-NLS-1$
+			}
+		}
+		return simulator;
+	}
+
+	/**
+	 * Wraps an engine into a {@link RecordingClearCase} if
+	 * {@link #ENGINE_RECORDING_PROPERTY} is set.
+	 * 
+	 * @param engine
+	 * @return the recording or the given engine
+	 * @throws CoreException
+	 *             if the recording can't be created
+	 */
+	private static ClearCaseInterface createRecordingClearCase(
+			ClearCaseInterface engine) throws CoreException {
+		String recording = System.getProperty(ENGINE_RECORDING_PROPERTY);
+		if (recording == null)
+			return engine;
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(recording), UTF_8));
+			return new RecordingClearCase(engine, writer, Boolean
+					.getBoolean(ENGINE_ANONYMIZE_PROPERTY) ? new PathAnonymizer()
+					: null);
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, PLUGIN_ID,
+					TeamException.UNABLE,
+					"Could not create engine recording " + recording, e)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Creates the engine replaying the file named by
+	 * {@link #ENGINE_RECORDING_PROPERTY}.
+	 * 
+	 * @return the replay engine
+	 * @throws CoreException
+	 *             if the recording can't be loaded
+	 */
+	private static ReplayClearCase createReplayClearCase() throws CoreException {
+		String recording = System.getProperty(ENGINE_RECORDING_PROPERTY);
+		double scale = 1;
+		String scaleProperty = System.getProperty(ENGINE_LATENCY_SCALE_PROPERTY);
+		if (scaleProperty != null) {
+			scale = Double.parseDouble(scaleProperty);
+		}
+		try {
+			if (recording == null)
+				throw new IOException("no recording given in " //$NON-NLS-1$
+						+ ENGINE_RECORDING_PROPERTY);
+			Reader reader = new InputStreamReader(new FileInputStream(
+					recording), UTF_8);
+			try {
+				return new ReplayClearCase(EngineRecording.read(reader), scale);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, PLUGIN_ID,
+					TeamException.UNABLE,
+					"Could not load engine recording " + recording, e)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Starts the ClearCase engine in a background job so that the plugin
+	 * activation does not have to wait for cleartool.
+	 * <p>
+	 * If the engine was not available in the last session nothing is started
+	 * here. The engine will then be created on first use.
+	 * </p>
+	 */
+	private void startClearCaseAsync() {
+		if (!ClearCasePreferences.isEngineAvailable()) {
+			if (DEBUG) {
+				trace("engine was unavailable in last session, deferring start-up"); //$NON-NLS-1$
+			}
+			return;
+		}
+
+		final FutureTask<ClearCaseInterface> startup = new FutureTask<ClearCaseInterface>(
+				new Callable<ClearCaseInterface>() {
+
+					public ClearCaseInterface call() throws Exception {
+						return createClearCase();
+					}
+				});
+		engineStartup = startup;
+
+		Job job = new Job(Messages.getString("engineStartup.jobName")) { //$NON-NLS-1$
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				startup.run();
+				if (engineStartup == startup) {
+					engineStartup = null;
+				}
+				try {
+					startup.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof CoreException)
+						return ((CoreException) e.getCause()).getStatus();
+				} catch (Exception e) {
+					// cancelled or interrupted
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(!DEBUG);
+		job.setPriority(Job.SHORT);
+		job.schedule();
+	}
+
 	/**
 	 * Answer the list of comments that were previously used when committing.
 	 * 
@@ -615,10 +1024,19 @@ public class ClearCasePlugin extends Plugin {
 
 		ClearCasePreferences.setGraphicalToolTimeout();
 
+		// abort a pending start-up, callers will create a new engine
+		FutureTask<ClearCaseInterface> startup = engineStartup;
+		if (startup != null) {
+			startup.cancel(false);
+			engineStartup = null;
+		}
+
 		// destroy clearcase engine
-		if (clearcaseImpl != null) {
-			clearcaseImpl.dispose();
-			clearcaseImpl = null;
+		synchronized (engineLock) {
+			if (clearcaseImpl != null) {
+				clearcaseImpl.dispose();
+				clearcaseImpl = null;
+			}
 		}
 	}
 
@@ -686,8 +1104,10 @@ public class ClearCasePlugin extends Plugin {
 
 		configureDebugOptions();
 
-		// Disables plugin if clearcase is not available (throws CoreEx)
-		getClearCase();
+		ClearCaseStatistics.getInstance().registerMBean();
+
+		// start clearcase in the background, callers wait for it on first use
+		startClearCaseAsync();
 
 		// process deltas since last activated in another thread
 		// https://bugs.eclipse.org/bugs/show_bug.cgi?id=67449
@@ -731,6 +1151,7 @@ public class ClearCasePlugin extends Plugin {
 				} catch (CoreException e) {
 					return e.getStatus();
 				}
+				CheckoutIndex.getInstance().start();
 				return Status.OK_STATUS;
 			}
 		};
@@ -760,9 +1181,15 @@ public class ClearCasePlugin extends Plugin {
 		}
 
 		StateCacheFactory.getInstance().getJobQueue().cancel();
+		CheckoutIndex.getInstance().cancel();
 
 		resetClearCase();
 
+		ClearCaseStatistics.getInstance().unregisterMBean();
+
+		// remember the engine availability for the next session
+		savePluginPreferences();
+
 		saveCommentHistory();
 
 		super.stop(context);
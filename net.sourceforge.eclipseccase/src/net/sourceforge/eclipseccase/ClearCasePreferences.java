@@ -416,9 +416,54 @@ public class ClearCasePreferences extends AbstractPreferenceInitializer {
 				IClearCasePreferenceConstants.AUTOMATIC_MERGE,
 				value);
 	}
-	
-	
-	
+
+	/**
+	 * Returns the preference value for <code>ENGINE_STARTUP_TIMEOUT</code>.
+	 * 
+	 * @return the number of seconds to wait for the engine start-up
+	 */
+	public static int getEngineStartupTimeout() {
+		return ClearCasePlugin.getDefault().getPluginPreferences().getInt(
+				IClearCasePreferenceConstants.ENGINE_STARTUP_TIMEOUT);
+	}
+
+	/**
+	 * Returns the preference value for <code>ENGINE_SESSIONS</code>.
+	 * 
+	 * @return the maximum number of engine sessions used by one operation
+	 */
+	public static int getEngineSessions() {
+		return ClearCasePlugin.getDefault().getPluginPreferences().getInt(
+				IClearCasePreferenceConstants.ENGINE_SESSIONS);
+	}
+
+	/**
+	 * Returns the preference value for <code>CHECKOUT_INDEX_INTERVAL</code>.
+	 * 
+	 * @return the minutes between two queries for checkouts in other views
+	 *         (0 if disabled)
+	 */
+	public static int getCheckoutIndexInterval() {
+		return ClearCasePlugin.getDefault().getPluginPreferences().getInt(
+				IClearCasePreferenceConstants.CHECKOUT_INDEX_INTERVAL);
+	}
+
+	/**
+	 * Returns the preference value for <code>ENGINE_AVAILABLE</code>.
+	 * 
+	 * @return <code>false</code> if the engine could not be started in the
+	 *         last session
+	 */
+	public static boolean isEngineAvailable() {
+		return ClearCasePlugin.getDefault().getPluginPreferences().getBoolean(
+				IClearCasePreferenceConstants.ENGINE_AVAILABLE);
+	}
+
+	public static void setEngineAvailable(boolean value) {
+		ClearCasePlugin.getDefault().getPluginPreferences().setValue(
+				IClearCasePreferenceConstants.ENGINE_AVAILABLE, value);
+	}
+
 	/**
 	 * Clients should not call this method. It will be called automatically by
 	 * the preference initializer when the appropriate default preference node
@@ -503,6 +548,13 @@ public class ClearCasePreferences extends AbstractPreferenceInitializer {
 				false);
 		defaults.putBoolean(IClearCasePreferenceConstants.SILENT_PREVENT,false);//$NON-NLS-1$
 		defaults.putBoolean(IClearCasePreferenceConstants.AUTOMATIC_MERGE, false);
+		defaults.putInt(IClearCasePreferenceConstants.ENGINE_STARTUP_TIMEOUT,
+				30);
+		defaults.putBoolean(IClearCasePreferenceConstants.ENGINE_AVAILABLE,
+				true);
+		defaults.putInt(IClearCasePreferenceConstants.ENGINE_SESSIONS, 4);
+		defaults.putInt(IClearCasePreferenceConstants.CHECKOUT_INDEX_INTERVAL,
+				10);
 
 		setGraphicalToolTimeout();
 
@@ -15,8 +15,7 @@ package net.sourceforge.eclipseccase;
 import java.io.File;
 import java.text.MessageFormat;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sourceforge.clearcase.ClearCase;
 import net.sourceforge.clearcase.ClearCaseCLIImpl;
@@ -55,8 +54,6 @@ public class ClearCaseProvider extends RepositoryProvider {
 
 	UncheckOutOperation UNCHECK_OUT = new UncheckOutOperation();
 
-	CheckInOperation CHECK_IN = new CheckInOperation();
-
 	CheckOutOperation CHECKOUT = new CheckOutOperation();
 
 	UnHijackOperation UNHIJACK = new UnHijackOperation();
@@ -71,7 +68,8 @@ public class ClearCaseProvider extends RepositoryProvider {
 
 	private final IMoveDeleteHook moveHandler = new MoveHandler(this);
 
-	private String comment = ""; //$NON-NLS-1$
+	/** the comment for the operations of each thread */
+	private final ThreadLocal<String> comment = new ThreadLocal<String>();
 
 	public static final String ID = "net.sourceforge.eclipseccase.ClearcaseProvider"; //$NON-NLS-1$
 
@@ -92,11 +90,11 @@ public class ClearCaseProvider extends RepositoryProvider {
 
 	public static final String RESERVED = "reserved";
 
-	// is used to keep track of which views that has a file checked out when
-	// doing a move.
-	public static final ArrayList<String> checkedOutInOtherView = new ArrayList<String>();
+	/** set while the current thread runs an operation that refreshes itself */
+	private final ThreadLocal<Boolean> refreshSuppressed = new ThreadLocal<Boolean>();
 
-	boolean refreshResources = true;
+	/** locks the directories of running namespace operations */
+	final DirectoryLocks directoryLocks = new DirectoryLocks();
 
 	private OperationListener opListener = null;
 
@@ -106,6 +104,9 @@ public class ClearCaseProvider extends RepositoryProvider {
 
 	private static final int NO = 1;
 
+	/** the maximum number of elements passed to one cleartool command */
+	private static final int BATCH_SIZE = 100;
+
 	public ClearCaseProvider() {
 		super();
 	}
@@ -248,16 +249,25 @@ public class ClearCaseProvider extends RepositoryProvider {
 		StateCacheFactory.getInstance().get(resource).updateAsync(true);
 	}
 
-	/*
+	/**
+	 * Checks in resources. Files identical to their predecessor are not
+	 * checked in, unless identical checkins are allowed in the preferences.
+	 * They stay checked out and are returned, so the caller can offer to
+	 * undo their checkout.
+	 * 
 	 * @see SimpleAccessOperations#checkin(IResource[], int, IProgressMonitor)
+	 * @return the resources that were not checked in because they are
+	 *         identical to their predecessor
 	 */
-	public void checkin(IResource[] resources, int depth,
+	public IResource[] checkin(IResource[] resources, int depth,
 			IProgressMonitor progressMonitor) throws TeamException {
+		CheckInOperation operation = new CheckInOperation();
 		try {
-			execute(CHECK_IN, resources, depth, progressMonitor);
+			execute(operation, resources, depth, progressMonitor);
 		} finally {
 			setComment("");
 		}
+		return operation.getIdentical();
 	}
 
 	/*
@@ -413,6 +423,36 @@ public class ClearCaseProvider extends RepositoryProvider {
 		return ClearCasePlugin.getEngine().describe(element, flag, format);
 	}
 
+	/**
+	 * Returns the comment of the version of an element selected by the view.
+	 * Comments of checked in versions are cached. The version known to the
+	 * state cache is described, so the comment matches the cached version
+	 * even if the view selects another one meanwhile.
+	 * 
+	 * @param resource
+	 * @return the comment, one line per comment line
+	 */
+	public String getVersionComment(IResource resource) {
+		StateCache cache = getCache(resource);
+		String key = VersionCache.getKey(cache.getPath(), cache.version);
+		String comment = null == key ? null : VersionCache.getInstance()
+				.getComment(key);
+		if (null == comment) {
+			// the key is the version extended path
+			String[] output = describe(null == key ? resource.getLocation()
+					.toOSString() : key, ClearCase.FORMAT, "%c");
+			StringBuffer buffer = new StringBuffer();
+			for (int i = 0; i < output.length; i++) {
+				buffer.append(output[i] + "\n");
+			}
+			comment = buffer.toString();
+			if (null != key) {
+				VersionCache.getInstance().putComment(key, comment);
+			}
+		}
+		return comment;
+	}
+
 	public void compareWithVersion(String element1, String element2) {
 		ClearCasePlugin.getEngine().compareWithVersion(element1, element2);
 	}
@@ -432,43 +472,60 @@ public class ClearCaseProvider extends RepositoryProvider {
 	 * /main/dev/0 View:eraonel_w12b2 Status: unreserved
 	 * 
 	 * @param element
-	 * @return
+	 * @return the views other than the current one the element is checked out
+	 *         in
 	 */
-	public boolean isCheckedOutInAnyView(String element) {
+	public List<String> getCheckoutViews(String element) {
 		// UCM we do not need to know of another stream co.
-		if (ClearCasePreferences.isUCM()) {
-			return false;
-		}
+		if (ClearCasePreferences.isUCM())
+			return Collections.emptyList();
 
-		boolean isCheckedoutInOtherView = false;
-		checkedOutInOtherView.clear();
 		HashMap<Integer, String> args = new HashMap<Integer, String>();
-		args.put(Integer.valueOf(ClearCase.FORMAT),
-				"%En\tPredecessor: %[version_predecessor]p\tView: %Tf\tStatus: %Rf\n");
+		args.put(Integer.valueOf(ClearCase.FORMAT), CheckoutIndex.FORMAT);
 		String[] output = ClearCasePlugin.getEngine().findCheckouts(
 				ClearCase.FORMAT, args, new String[] { element });
-		// Check if line ends with these keywords.
-		Pattern pattern = Pattern.compile(".*View:\\s(.*)\\sStatus:.*");
-
-		if (output.length > 0) {
-			// we have file checked-out in other view.
-			isCheckedoutInOtherView = true;
-			for (int i = 0; i < output.length; i++) {
-				String line = output[i];
-				Matcher matcher = pattern.matcher(line);
-				if (matcher.find()) {
-					// Adding information to user.Filter out current view.
-					String view = matcher.group(1);
-					if (!view.equals(getViewName(element))) {
-						checkedOutInOtherView.add(view);
-					}
+		Map<String, List<String>> views = new HashMap<String, List<String>>();
+		CheckoutIndex.parse(output, getViewName(element), views);
+		// only the element was queried, so every line is about it, whatever
+		// form of its path cleartool printed
+		List<String> result = new ArrayList<String>();
+		for (List<String> elementViews : views.values()) {
+			for (String view : elementViews) {
+				if (!result.contains(view)) {
+					result.add(view);
 				}
-
 			}
-
 		}
+		return result;
+	}
+
+	/**
+	 * Returns the views other than the current one an element to move is
+	 * checked out in. The moves of a batch answer from the checkout index
+	 * instead of querying every element, unless the index is disabled.
+	 * 
+	 * @param source
+	 * @param batch
+	 *            the batch (maybe <code>null</code> for a single move)
+	 * @return the views
+	 */
+	private List<String> getCheckoutViews(IResource source, MoveBatch batch) {
+		String path = source.getLocation().toOSString();
+		if (batch == null || ClearCasePreferences.getCheckoutIndexInterval() <= 0)
+			return getCheckoutViews(path);
+		if (ClearCasePreferences.isUCM())
+			return Collections.emptyList();
+		return CheckoutIndex.getInstance().getViews(path);
+	}
 
-		return isCheckedoutInOtherView;
+	/**
+	 * Indicates if an element is checked out in another view.
+	 * 
+	 * @param element
+	 * @return <code>true</code> if checked out in another view
+	 */
+	public boolean isCheckedOutInAnyView(String element) {
+		return !getCheckoutViews(element).isEmpty();
 	}
 
 	public static String getViewName(IResource resource) {
@@ -515,6 +572,32 @@ public class ClearCaseProvider extends RepositoryProvider {
 		return res;
 	}
 
+	/**
+	 * Returns the name of the view containing the given path (or the given
+	 * view name itself) if it was already looked up. ClearCase is never asked.
+	 *
+	 * @param path
+	 *            a path or view name (maybe <code>null</code>)
+	 * @return the view name or an empty string if unknown
+	 */
+	public static String getKnownViewName(final String path) {
+		if (path == null)
+			return "";
+		if (viewAccessLookupTable.containsKey(path))
+			return path;
+		// walk up to the nearest looked up folder, one map lookup per segment
+		String prefix = path;
+		while (true) {
+			String res = viewLookupTable.get(prefix);
+			if (res != null)
+				return res;
+			int end = prefix.lastIndexOf(File.separatorChar);
+			if (end <= 0)
+				return "";
+			prefix = prefix.substring(0, end);
+		}
+	}
+
 	public static String[] getUsedViewNames() {
 		Set<String> views = new HashSet<String>();
 		for (String v : viewLookupTable.values()) {
@@ -571,9 +654,19 @@ public class ClearCaseProvider extends RepositoryProvider {
 	 * @return
 	 */
 	public String getVobName(IResource resource) throws TeamException {
-		String viewRoot = getViewRoot(resource);
+		String vob = getVobName(resource.getLocation(), getViewRoot(resource));
+		return vob == null ? "none" : vob;
+	}
+
+	/**
+	 * Returns the name of the vob that contains the specified location.
+	 * 
+	 * @param resourceLocation
+	 * @param viewRoot
+	 * @return the vob name (maybe <code>null</code> if outside a vob)
+	 */
+	private static String getVobName(IPath resourceLocation, String viewRoot) {
 		IPath viewLocation = new Path(viewRoot);
-		IPath resourceLocation = resource.getLocation();
 		// ignore device when dealing with dynamic views
 		if (viewRoot.length() == 0) {
 			viewLocation = viewLocation.setDevice(resourceLocation.getDevice());
@@ -588,7 +681,7 @@ public class ClearCaseProvider extends RepositoryProvider {
 			if (vobLocation.segmentCount() > 0)
 				return vobLocation.segment(0);
 		}
-		return "none";
+		return null;
 	}
 
 	/**
@@ -788,6 +881,23 @@ public class ClearCaseProvider extends RepositoryProvider {
 	 */
 	public IStatus move(IResource source, IResource destination,
 			IProgressMonitor monitor) {
+		return move(source, destination, null, monitor);
+	}
+
+	/**
+	 * Moves a resource as part of a batch of moves. The parent directories
+	 * are checked out by the batch and left checked out for the following
+	 * moves, the batch checks them in when it is finished.
+	 * 
+	 * @param source
+	 * @param destination
+	 * @param batch
+	 *            the batch (maybe <code>null</code> for a single move)
+	 * @param monitor
+	 * @return result status of the operation.
+	 */
+	IStatus move(IResource source, IResource destination, MoveBatch batch,
+			IProgressMonitor monitor) {
 		int returnCode = 1;// Used in messge dialog.
 		try {
 			monitor.beginTask("Moving " + source.getFullPath() + " to "
@@ -806,10 +916,11 @@ public class ClearCaseProvider extends RepositoryProvider {
 			IStatus result = OK_STATUS;
 			ClearCaseElementState[] state = null;
 
-			if (isCheckedOutInAnyView(source.getLocation().toOSString())) {
+			List<String> views = getCheckoutViews(source, batch);
+			if (!views.isEmpty()) {
 
 				StringBuffer sb = new StringBuffer();
-				for (String view : checkedOutInOtherView) {
+				for (String view : views) {
 					sb.append(view + "\t");
 				}
 				// Open message dialog and ask if we want to continue.
@@ -824,7 +935,16 @@ public class ClearCaseProvider extends RepositoryProvider {
 				}
 			}
 
-			if (ClearCasePreferences.isAutoCheckinParentAfterMoveAllowed()) {
+			if (batch != null) {
+				result = batch.checkoutParents(source, destination,
+						new SubProgressMonitor(monitor, 20));
+				if (!result.isOK())
+					return result;
+				state = ClearCasePlugin.getEngine().move(
+						source.getLocation().toOSString(),
+						destination.getLocation().toOSString(), getComment(),
+						ClearCase.FORCE | getCheckoutType(), opListener);
+			} else if (ClearCasePreferences.isAutoCheckinParentAfterMoveAllowed()) {
 				state = ClearCasePlugin.getEngine()
 						.move(source.getLocation().toOSString(),
 								destination.getLocation().toOSString(),
@@ -840,12 +960,20 @@ public class ClearCaseProvider extends RepositoryProvider {
 			}
 
 			StateCacheFactory.getInstance().remove(source);
-			updateState(source.getParent(), IResource.DEPTH_ZERO,
-					new SubProgressMonitor(monitor, 10));
-			updateState(destination.getParent(), IResource.DEPTH_ZERO,
-					new SubProgressMonitor(monitor, 10));
-			updateState(destination, IResource.DEPTH_INFINITE,
-					new SubProgressMonitor(monitor, 10));
+			if (batch == null) {
+				updateState(source.getParent(), IResource.DEPTH_ZERO,
+						new SubProgressMonitor(monitor, 10));
+				updateState(destination.getParent(), IResource.DEPTH_ZERO,
+						new SubProgressMonitor(monitor, 10));
+			}
+			if (destination.getType() == IResource.FILE) {
+				updateState(destination, state, new SubProgressMonitor(
+						monitor, 10));
+			} else {
+				// the members of moved folders need a refresh, too
+				updateState(destination, IResource.DEPTH_INFINITE,
+						new SubProgressMonitor(monitor, 10));
+			}
 
 			if (!state[0].isMoved())
 				return new Status(IStatus.ERROR, ID, TeamException.UNABLE,
@@ -893,7 +1021,7 @@ public class ClearCaseProvider extends RepositoryProvider {
 
 				monitor.worked(4);
 				if (!flag) {
-					updateState(resource.getParent(), IResource.DEPTH_ZERO,
+					updateState(resource.getParent(), elementState2,
 							new SubProgressMonitor(monitor, 10));
 				}
 				if (elementState2 == null) {
@@ -909,12 +1037,39 @@ public class ClearCaseProvider extends RepositoryProvider {
 		}
 	}
 
+	/**
+	 * Indicates if resources are refreshed after operations of the current
+	 * thread.
+	 * 
+	 * @return <code>true</code> unless disabled for the current thread
+	 */
+	boolean isRefreshResources() {
+		return refreshSuppressed.get() == null;
+	}
+
+	/**
+	 * Enables or disables refreshing resources after operations of the
+	 * current thread. Operations running in other threads are not affected.
+	 * 
+	 * @param refresh
+	 * @return the old value
+	 */
+	boolean setRefreshResources(boolean refresh) {
+		boolean old = isRefreshResources();
+		if (refresh) {
+			refreshSuppressed.remove();
+		} else {
+			refreshSuppressed.set(Boolean.TRUE);
+		}
+		return old;
+	}
+
 	// Notifies decorator that state has changed for an element
 	public void updateState(IResource resource, int depth,
 			IProgressMonitor monitor) {
 		try {
 			monitor.beginTask("Refreshing " + resource.getFullPath(), 20);
-			if (!refreshResources) {
+			if (!isRefreshResources()) {
 				StateCacheFactory.getInstance().removeSingle(resource);
 				monitor.worked(10);
 			} else {
@@ -937,6 +1092,88 @@ public class ClearCaseProvider extends RepositoryProvider {
 		}
 	}
 
+	/**
+	 * Updates the state of a resource from the states an engine call
+	 * returned. The engine is only queried again if no complete state was
+	 * returned for the resource or the resource is a symbolic link.
+	 * 
+	 * @param resource
+	 * @param states
+	 *            the states returned by the engine (maybe <code>null</code>)
+	 * @param monitor
+	 */
+	public void updateState(IResource resource,
+			ClearCaseElementState[] states, IProgressMonitor monitor) {
+		ClearCaseElementState state = null;
+		if (resource.getLocation() != null) {
+			state = findState(resource.getLocation().toOSString(), states);
+		}
+		if (state == null
+				|| StateCacheFactory.getInstance().getWithNoUpdate(resource)
+						.isSymbolicLink()) {
+			updateState(resource, IResource.DEPTH_ZERO, monitor);
+			return;
+		}
+		try {
+			monitor.beginTask("Refreshing " + resource.getFullPath(), 20);
+			if (!isRefreshResources()) {
+				StateCacheFactory.getInstance().removeSingle(resource);
+				monitor.worked(10);
+			} else {
+				resource.refreshLocal(IResource.DEPTH_ZERO,
+						new SubProgressMonitor(monitor, 10));
+			}
+
+			if (resource.exists()) {
+				StateCacheFactory.getInstance().getWithNoUpdate(resource)
+						.doUpdate(state);
+			} else {
+				StateCacheFactory.getInstance().refreshStateAsyncHighPriority(
+						new IResource[] { resource }, null);
+			}
+		} catch (CoreException ex) {
+			ClearCasePlugin.log(IStatus.ERROR,
+					"Error refreshing ClearCase state: " + ex.getMessage(), ex);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Updates the state of a resource after an operation on its final target
+	 * element (which differs from the resource's own state for symbolic
+	 * links).
+	 */
+	private void updateState(IResource resource, StateCache targetElement,
+			ClearCaseElementState[] states, IProgressMonitor monitor) {
+		// update state of target element first (if symlink)
+		if (!targetElement.equals(getCache(resource))) {
+			targetElement.doUpdate(findState(targetElement.getPath(), states));
+		}
+		updateState(resource, states, monitor);
+	}
+
+	/**
+	 * Returns the state returned for an element if it is complete. Commands
+	 * like move or a checkout through cleartool return a status record of the
+	 * command rather than the element state, these are not used.
+	 */
+	private static ClearCaseElementState findState(String path,
+			ClearCaseElementState[] states) {
+		if (states == null || path == null)
+			return null;
+		for (int i = 0; i < states.length; i++) {
+			if (states[i] != null && path.equals(states[i].element))
+				return isComplete(states[i]) ? states[i] : null;
+		}
+		return null;
+	}
+
+	private static boolean isComplete(ClearCaseElementState state) {
+		return state.isElement() && state.version != null
+				&& state.version.length() > 0;
+	}
+
 	private IStatus doUpdateState(IResource resource, int depth,
 			IProgressMonitor progressMonitor) {
 		IStatus result = execute(REFRESH_STATE, resource, depth,
@@ -964,16 +1201,18 @@ public class ClearCaseProvider extends RepositoryProvider {
 	}
 
 	/**
-	 * Gets the comment.
+	 * Gets the comment for the operations of the current thread.
 	 * 
 	 * @return Returns a String
 	 */
 	public String getComment() {
-		return comment;
+		String result = comment.get();
+		return result == null ? "" : result; //$NON-NLS-1$
 	}
 
 	/**
-	 * Sets the comment.
+	 * Sets the comment for the operations of the current thread. Operations
+	 * running in other threads keep their own comment.
 	 * 
 	 * @param comment
 	 *            The comment to set
@@ -982,7 +1221,11 @@ public class ClearCaseProvider extends RepositoryProvider {
 		// escape comment if enabled
 		// if (comment.trim().length() > 0 && ClearCasePlugin.isCommentEscape())
 		// comment = ClearCaseUtil.getEscaped(comment);
-		this.comment = comment;
+		if (comment == null || comment.length() == 0) {
+			this.comment.remove();
+		} else {
+			this.comment.set(comment);
+		}
 	}
 
 	// Out of sheer laziness, I appropriated the following code from the team
@@ -1058,153 +1301,144 @@ public class ClearCaseProvider extends RepositoryProvider {
 		}
 	}
 
-	private final class AddOperation implements IRecursiveOperation {
-
-		ArrayList<IResource> privateElement = new ArrayList<IResource>();
-		ArrayList<IResource> parentToCheckin = new ArrayList<IResource>();
+	/**
+	 * Adds view private resources and their view private parents to source
+	 * control. Every existing parent directory is checked out once, the
+	 * elements are created parents first and, if configured, all of them are
+	 * checked in together, deepest first.
+	 */
+	private final class AddOperation implements IPlannedOperation {
 
-		public IStatus visit(IResource resource, IProgressMonitor monitor) {
+		public IStatus visit(IResource[] resources, int depth,
+				IProgressMonitor monitor) {
+			MultiStatus result = new MultiStatus(getID(), TeamException.OK,
+					"OK", null);
 			try {
-				monitor.beginTask(
-						"Adding " + resource.getFullPath().toString(), 100);
-				IStatus result = OK_STATUS;
-				// Sanity check - can't add something that already is under VC
-				if (isClearCaseElement(resource))
-					// return status with severity OK
-					return new Status(
-							IStatus.OK,
-							ID,
-							TeamException.UNABLE,
-							MessageFormat
-									.format("Resource \"{0}\" is already under source control!",
-											new Object[] { resource
-													.getFullPath().toString() }),
-							null);
-				result = findPrivateElements(resource, monitor);
-
-				if (result.isOK()) {
-					Collections.reverse(privateElement);
-					for (Object element : privateElement) {
-						IResource myResource = (IResource) element;
-						if (myResource.getType() == IResource.FOLDER) {
-							result = makeFolderElement(myResource, monitor);
-						} else if (myResource.getType() == IResource.FILE) {
-							result = makeFileElement(myResource, monitor);
-						}
-
+				monitor.beginTask("Adding", 1000);
+				DirectoryPlan plan = new DirectoryPlan();
+				for (int i = 0; i < resources.length
+						&& !result.matches(IStatus.ERROR); i++) {
+					if (!isIgnored(resources[i])) {
+						collect(resources[i], depth, plan, result);
 					}
 				}
-
-				// Add operation checks out parent directory. Change state to
-				// checked-out. No resource changed event is sent since this is
-				// implicitly done by
-				// add.
-				IResource directory = resource.getParent();
-				try {
-					directory.refreshLocal(IResource.DEPTH_ZERO,
-							new SubProgressMonitor(monitor, 10));
-					updateState(directory, IResource.DEPTH_ZERO,
-							new SubProgressMonitor(monitor, 10));
-				} catch (CoreException e) {
-					System.out.println("We got an exception!");
-					e.printStackTrace();
-					result = new Status(IStatus.ERROR, ID,
-							TeamException.UNABLE, "Add failed: " + "Exception"
-									+ e.getMessage(), null);
+				monitor.worked(50);
+				if (plan.isEmpty() || result.matches(IStatus.ERROR))
+					return result;
+
+				// Add operation checks out the parent directories once.
+				List<IContainer> parents = plan.getExistingDirectories();
+				result.merge(checkoutDirectories(parents,
+						new SubProgressMonitor(monitor, 100)));
+				if (result.matches(IStatus.ERROR))
+					return result;
+
+				// create the elements, folders before their members
+				List<IResource> elements = plan.getResources();
+				int ticks = 650 / elements.size();
+				for (IResource element : elements) {
+					checkCanceled(monitor);
+					monitor.subTask("Adding " + element.getFullPath());
+					IStatus status;
+					if (element.getType() == IResource.FOLDER) {
+						status = makeFolderElement(element,
+								new SubProgressMonitor(monitor, ticks));
+					} else {
+						status = makeFileElement(element,
+								new SubProgressMonitor(monitor, ticks));
+					}
+					result.merge(status);
+					if (status.matches(IStatus.ERROR))
+						// the members of a failed folder would fail as well
+						return result;
 				}
 
-				// Add check recursive checkin of files.
-				if (ClearCasePreferences.isAddWithCheckin()
-						&& result == OK_STATUS) {
+				// Add check recursive checkin of files and their parents.
+				if (ClearCasePreferences.isAddWithCheckin() && result.isOK()) {
+					List<IResource> toCheckin = new ArrayList<IResource>(
+							elements);
+					toCheckin.addAll(parents);
+					Collections.sort(toCheckin, DirectoryPlan.BOTTOM_UP);
 					try {
-						for (Object element : privateElement) {
-							IResource res = (IResource) element;
-							IResource folder = res.getParent();
-							if (!parentToCheckin.contains(folder)) {
-								parentToCheckin.add(folder);
-							}
-
-							if (isCheckedOut(res)) {
-								checkin(new IResource[] { res },
-										IResource.DEPTH_ZERO,
-										new SubProgressMonitor(monitor, 10));
-							}
-
-						}
-
-						for (IResource parent : parentToCheckin) {
-							if (isCheckedOut(parent)) {
-								checkin(new IResource[] { parent },
-										IResource.DEPTH_ZERO,
-										new SubProgressMonitor(monitor, 10));
-							}
-						}
-
+						checkin(toCheckin
+								.toArray(new IResource[toCheckin.size()]),
+								IResource.DEPTH_ZERO, new SubProgressMonitor(
+										monitor, 200));
 					} catch (TeamException e) {
-						result = new Status(IStatus.ERROR, ID,
+						result.merge(new Status(IStatus.ERROR, ID,
 								TeamException.UNABLE,
 								"Checkin of resource failed: " + "Exception"
-										+ e.getMessage(), null);
+										+ e.getMessage(), null));
 					}
-
 				}
-
-				monitor.worked(40);
 				return result;
 			} finally {
 				monitor.done();
-				privateElement.clear();
-				parentToCheckin.clear();
 			}
 		}
 
 		/**
-		 * Recursively from bottom of file path to top until clearcase element
-		 * is found.
+		 * Plans the view private resources below a resource (as given by
+		 * depth).
+		 */
+		private void collect(IResource resource, int depth,
+				DirectoryPlan plan, MultiStatus result) {
+			if (isClearCaseElement(resource)) {
+				// Sanity check - can't add something that already is under VC
+				result.merge(new Status(IStatus.OK, ID, TeamException.UNABLE,
+						MessageFormat.format(
+								"Resource \"{0}\" is already under source control!",
+								new Object[] { resource.getFullPath()
+										.toString() }), null));
+			} else if (!plan.contains(resource)) {
+				IStatus status = findPrivateElements(resource, plan);
+				if (!status.isOK()) {
+					result.merge(status);
+					return;
+				}
+			}
+			if (resource.getType() == IResource.FILE
+					|| depth == IResource.DEPTH_ZERO)
+				return;
+			int childDepth = (depth == IResource.DEPTH_ONE) ? IResource.DEPTH_ZERO
+					: IResource.DEPTH_INFINITE;
+			IResource[] members = getMembers(resource);
+			for (int i = 0; i < members.length; i++) {
+				if (!isIgnored(members[i])) {
+					collect(members[i], childDepth, plan, result);
+				}
+			}
+		}
+
+		/**
+		 * Plans the resource and its parents up to the first clearcase
+		 * element.
 		 * 
 		 * @param resource
-		 * @param monitor
-		 * @return
+		 * @param plan
+		 * @return the status
 		 */
 		private IStatus findPrivateElements(IResource resource,
-				IProgressMonitor monitor) {
-			IStatus result = OK_STATUS;
-			IResource parent = resource.getParent();
-
-			// When resource is a project, try checkout its parent, and if
-			// that fails,
-			// then neither project nor workspace is in clearcase.
-			if (isClearCaseElement(parent)) {
-				privateElement.add(resource);
-				updateState(parent, IResource.DEPTH_ZERO,
-						new SubProgressMonitor(monitor, 10));// make sure state
-				// for parent is
-				// correct.
-				if (!isCheckedOut(parent)) {
-					ClearCaseElementState[] state = ClearCasePlugin.getEngine()
-							.checkout(
-									new String[] { parent.getLocation()
-											.toOSString() }, getComment(),
-									ClearCase.NONE, opListener);
-					if (state[0].isCheckedOut()) {
-						updateState(parent, IResource.DEPTH_ZERO,
-								new SubProgressMonitor(monitor, 10));
-					}
-
+				DirectoryPlan plan) {
+			List<IResource> privateElements = new ArrayList<IResource>();
+			for (IResource current = resource; !plan.contains(current); current = current
+					.getParent()) {
+				if (current.getType() == IResource.PROJECT)
+					// We reached project top and it is not a cc element.
+					return new Status(IStatus.ERROR, ID, TeamException.UNABLE,
+							"Add failed: " + "project folder "
+									+ current.getName()
+									+ " is not an element is not an cc element",
+							null);
+				privateElements.add(current);
+				if (isClearCaseElement(current.getParent())) {
+					break;
 				}
-
-			} else if (resource instanceof IProject
-					&& !(isClearCaseElement(resource))) {
-				// We reached project top and it is not a cc element.
-				result = new Status(IStatus.ERROR, ID, TeamException.UNABLE,
-						"Add failed: " + "project folder " + resource.getName()
-								+ " is not an element is not an cc element",
-						null);
-			} else {
-				privateElement.add(resource);
-				findPrivateElements(parent, new SubProgressMonitor(monitor, 10));
 			}
-			return result;
+			for (IResource privateElement : privateElements) {
+				plan.add(privateElement);
+			}
+			return OK_STATUS;
 		}
 	}
 
@@ -1236,8 +1470,8 @@ public class ClearCaseProvider extends RepositoryProvider {
 			result = new Status(IStatus.ERROR, ID, TeamException.UNABLE,
 					"Add failed: " + "Exception" + e.getMessage(), null);
 		}
-		updateState(resource, IResource.DEPTH_ZERO, new SubProgressMonitor(
-				monitor, 10));
+		updateState(resource, new ClearCaseElementState[] { state },
+				new SubProgressMonitor(monitor, 10));
 		if (result.isOK()) {
 			result = forceSetChgrp(resource);
 
@@ -1294,8 +1528,8 @@ public class ClearCaseProvider extends RepositoryProvider {
 			// not recognize the cc created resource directory.
 			resource.refreshLocal(IResource.DEPTH_ZERO, new SubProgressMonitor(
 					monitor, 10));
-			updateState(resource, IResource.DEPTH_ZERO, new SubProgressMonitor(
-					monitor, 10));
+			updateState(resource, new ClearCaseElementState[] { state },
+					new SubProgressMonitor(monitor, 10));
 
 		} catch (CoreException ce) {
 			System.out.println("We got an exception!");
@@ -1325,7 +1559,45 @@ public class ClearCaseProvider extends RepositoryProvider {
 		return result;
 	}
 
-	private final class UncheckOutOperation implements IRecursiveOperation {
+	private final class UncheckOutOperation implements IBatchOperation {
+
+		public IStatus check(IResource resource, StateCache targetElement) {
+			// Sanity check - can't process something that is not part of
+			// clearcase
+			if (targetElement == null || !targetElement.isClearCaseElement())
+				return new Status(
+						IStatus.WARNING,
+						ID,
+						TeamException.NO_REMOTE_RESOURCE,
+						MessageFormat
+								.format("Resource \"{0}\" is not a ClearCase element!",
+										new Object[] { resource.getFullPath()
+												.toString() }), null);
+			// Sanity check - can't uncheckout something that is not checked
+			// out
+			if (!targetElement.isCheckedOut())
+				// return severity OK
+				return new Status(IStatus.OK, ID,
+						TeamException.NOT_CHECKED_OUT, MessageFormat.format(
+								"Resource \"{0}\" is not checked out!",
+								new Object[] { targetElement.getPath() }),
+						null);
+			return null;
+		}
+
+		public ClearCaseElementState[] visit(IResource[] resources,
+				StateCache[] targetElements, IProgressMonitor monitor) {
+			return ClearCasePlugin.getEngine().uncheckout(
+					getPaths(targetElements), getFlags(), opListener);
+		}
+
+		private int getFlags() {
+			int flags = ClearCase.RECURSIVE;
+			if (ClearCasePreferences.isKeepChangesAfterUncheckout()) {
+				flags |= ClearCase.KEEP;
+			}
+			return flags;
+		}
 
 		public IStatus visit(final IResource resource,
 				final IProgressMonitor monitor) {
@@ -1333,42 +1605,17 @@ public class ClearCaseProvider extends RepositoryProvider {
 				monitor.beginTask("Uncheckout " + resource.getFullPath(), 100);
 				StateCache cache = getCache(resource);
 				final StateCache targetElement = getFinalTargetElement(cache);
-				// Sanity check - can't process something that is not part of
-				// clearcase
-				if (targetElement == null
-						|| !targetElement.isClearCaseElement())
-					return new Status(
-							IStatus.WARNING,
-							ID,
-							TeamException.NO_REMOTE_RESOURCE,
-							MessageFormat
-									.format("Resource \"{0}\" is not a ClearCase element!",
-											new Object[] { resource
-													.getFullPath().toString() }),
-							null);
-				// Sanity check - can't uncheckout something that is not checked
-				// out
-				if (!targetElement.isCheckedOut())
-					// return severity OK
-					return new Status(IStatus.OK, ID,
-							TeamException.NOT_CHECKED_OUT,
-							MessageFormat.format(
-									"Resource \"{0}\" is not checked out!",
-									new Object[] { targetElement.getPath() }),
-							null);
+				IStatus status = check(resource, targetElement);
+				if (status != null)
+					return status;
 				IStatus result = OK_STATUS;
 
 				// Yes continue checking out.
-				int flags = ClearCase.RECURSIVE;
-				if (ClearCasePreferences.isKeepChangesAfterUncheckout()) {
-					flags |= ClearCase.KEEP;
-				}
-
-				ClearCasePlugin.getEngine().uncheckout(
-						new String[] { targetElement.getPath() }, flags,
-						opListener);
+				ClearCaseElementState[] states = ClearCasePlugin.getEngine()
+						.uncheckout(new String[] { targetElement.getPath() },
+								getFlags(), opListener);
 				monitor.worked(40);
-				updateState(resource, IResource.DEPTH_ZERO,
+				updateState(resource, targetElement, states,
 						new SubProgressMonitor(monitor, 10));
 
 				// if (!status.status) {
@@ -1383,40 +1630,102 @@ public class ClearCaseProvider extends RepositoryProvider {
 		}
 	}
 
-	private final class DeleteOperation implements IIterativeOperation {
+	/**
+	 * Removes the names of elements. The elements are grouped by directory,
+	 * every directory is checked out once and gets one rmname command.
+	 */
+	private final class DeleteOperation implements IPlannedOperation {
 
-		public IStatus visit(IResource resource, int depth,
+		public IStatus visit(IResource[] resources, int depth,
 				IProgressMonitor monitor) {
+			MultiStatus result = new MultiStatus(getID(), TeamException.OK,
+					"OK", null);
 			try {
-				monitor.beginTask("Deleting " + resource.getFullPath(), 100);
-				// Sanity check - can't delete something that is not part of
-				// clearcase
-				if (!isClearCaseElement(resource))
-					return new Status(
-							IStatus.ERROR,
-							ID,
-							TeamException.NO_REMOTE_RESOURCE,
-							MessageFormat
-									.format("Resource \"{0}\" is not a ClearCase element!",
-											new Object[] { resource
-													.getFullPath().toString() }),
-							null);
-				IStatus result = checkoutParent(resource,
-						new SubProgressMonitor(monitor, 10));
-				if (result.isOK()) {
-					ClearCasePlugin.getEngine()
-							.delete(new String[] { resource.getLocation()
-									.toOSString() }, getComment(),
-									ClearCase.RECURSIVE | ClearCase.KEEP,
-									opListener);
-					monitor.worked(40);
-					updateState(resource, IResource.DEPTH_INFINITE,
-							new SubProgressMonitor(monitor, 10));
-					// if (!status.status) {
-					// result = new Status(IStatus.ERROR, ID,
-					// TeamException.UNABLE, "Delete failed: "
-					// + status.message, null);
-					// }
+				monitor.beginTask("Deleting", 1000);
+				DirectoryPlan plan = new DirectoryPlan();
+				List<IResource> projects = new ArrayList<IResource>();
+				for (int i = 0; i < resources.length; i++) {
+					IResource resource = resources[i];
+					if (isIgnored(resource)) {
+						continue;
+					}
+					// Sanity check - can't delete something that is not part
+					// of clearcase
+					if (!isClearCaseElement(resource)) {
+						result.merge(new Status(
+								IStatus.ERROR,
+								ID,
+								TeamException.NO_REMOTE_RESOURCE,
+								MessageFormat
+										.format("Resource \"{0}\" is not a ClearCase element!",
+												new Object[] { resource
+														.getFullPath()
+														.toString() }),
+								null));
+					} else if (resource.getType() == IResource.PROJECT) {
+						projects.add(resource);
+					} else {
+						plan.add(resource);
+					}
+				}
+				if (result.matches(IStatus.ERROR))
+					return result;
+				// deleting a folder deletes its members
+				plan.removeNested();
+
+				for (IResource project : projects) {
+					result.merge(deleteProject(project, new SubProgressMonitor(
+							monitor, 100 / projects.size())));
+				}
+				if (plan.isEmpty() || result.matches(IStatus.ERROR))
+					return result;
+
+				List<IContainer> directories = plan.getDirectories();
+				result.merge(checkoutDirectories(directories,
+						new SubProgressMonitor(monitor, 100)));
+				if (result.matches(IStatus.ERROR))
+					return result;
+
+				int ticks = 800 / directories.size();
+				for (IContainer directory : directories) {
+					checkCanceled(monitor);
+					result.merge(delete(plan.getMembers(directory),
+							new SubProgressMonitor(monitor, ticks)));
+				}
+				return result;
+			} finally {
+				monitor.done();
+			}
+		}
+
+		/**
+		 * Removes the names of elements of one directory.
+		 */
+		private IStatus delete(List<IResource> members, IProgressMonitor monitor) {
+			IStatus result = OK_STATUS;
+			try {
+				monitor.beginTask("Deleting", 10 * members.size() + 40);
+				for (int start = 0; start < members.size(); start += BATCH_SIZE) {
+					List<IResource> chunk = members.subList(start, Math.min(
+							start + BATCH_SIZE, members.size()));
+					String[] paths = new String[chunk.size()];
+					for (int i = 0; i < paths.length; i++) {
+						paths[i] = chunk.get(i).getLocation().toOSString();
+					}
+					try {
+						ClearCasePlugin.getEngine().delete(paths, getComment(),
+								ClearCase.RECURSIVE | ClearCase.KEEP,
+								opListener);
+					} catch (ClearCaseException e) {
+						result = new Status(IStatus.ERROR, ID,
+								TeamException.UNABLE, "Delete failed: "
+										+ e.getMessage(), null);
+					}
+				}
+				monitor.worked(40);
+				for (IResource member : members) {
+					updateState(member, IResource.DEPTH_INFINITE,
+							new SubProgressMonitor(monitor, 10));
 				}
 				return result;
 			} finally {
@@ -1424,9 +1733,173 @@ public class ClearCaseProvider extends RepositoryProvider {
 			}
 		}
 
+		/**
+		 * Deletes a project, its parent is outside of the workspace.
+		 */
+		private IStatus deleteProject(IResource resource,
+				IProgressMonitor monitor) {
+			try {
+				monitor.beginTask("Deleting " + resource.getFullPath(), 100);
+				IStatus result = checkoutParent(resource,
+						new SubProgressMonitor(monitor, 10));
+				if (result.isOK()) {
+					ClearCasePlugin.getEngine()
+							.delete(new String[] { resource.getLocation()
+									.toOSString() }, getComment(),
+									ClearCase.RECURSIVE | ClearCase.KEEP,
+									opListener);
+					monitor.worked(40);
+					updateState(resource, IResource.DEPTH_INFINITE,
+							new SubProgressMonitor(monitor, 10));
+				}
+				return result;
+			} finally {
+				monitor.done();
+			}
+		}
 	}
 
-	protected final class CheckInOperation implements IRecursiveOperation {
+	/**
+	 * Checks out the directories that are not checked out yet with one
+	 * command and updates their state from the result. If the command fails
+	 * the directories are checked out one by one.
+	 * 
+	 * @param directories
+	 * @param monitor
+	 * @return the status
+	 */
+	IStatus checkoutDirectories(List<IContainer> directories,
+			IProgressMonitor monitor) {
+		List<IContainer> toCheckout = new ArrayList<IContainer>();
+		for (IContainer directory : directories) {
+			StateCache cache = getCache(directory);
+			if (!cache.isCheckedOut() && !cache.isSymbolicLink()) {
+				toCheckout.add(directory);
+			}
+		}
+		if (toCheckout.isEmpty())
+			return OK_STATUS;
+		try {
+			monitor.beginTask("Checking out directories",
+					10 * toCheckout.size() + 10);
+			String[] paths = new String[toCheckout.size()];
+			for (int i = 0; i < paths.length; i++) {
+				paths[i] = toCheckout.get(i).getLocation().toOSString();
+			}
+			ClearCaseElementState[] states;
+			try {
+				states = ClearCasePlugin.getEngine().checkout(paths,
+						getComment(), getCheckoutType(), opListener);
+			} catch (ClearCaseException e) {
+				// the state cache may be outdated, use the slow path
+				MultiStatus result = new MultiStatus(getID(), TeamException.OK,
+						"OK", null);
+				for (IContainer directory : toCheckout) {
+					result.merge(checkoutDirectory(directory,
+							new SubProgressMonitor(monitor, 10)));
+				}
+				return result;
+			}
+			monitor.worked(10);
+			for (IContainer directory : toCheckout) {
+				updateState(directory, states, new SubProgressMonitor(monitor,
+						10));
+			}
+			return OK_STATUS;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private IStatus checkoutDirectory(IContainer directory,
+			IProgressMonitor monitor) {
+		StateCache cache = getCache(directory);
+		cache.doUpdate();
+		if (!cache.isClearCaseElement())
+			return new Status(IStatus.ERROR, ID, TeamException.UNABLE,
+					"Could not find a parent that is a clearcase element", null);
+		if (cache.isCheckedOut() || cache.isSymbolicLink())
+			return OK_STATUS;
+		try {
+			ClearCaseElementState[] states = ClearCasePlugin.getEngine()
+					.checkout(
+							new String[] { directory.getLocation()
+									.toOSString() }, getComment(),
+							getCheckoutType(), opListener);
+			updateState(directory, states, monitor);
+			return OK_STATUS;
+		} catch (ClearCaseException e) {
+			return new Status(IStatus.ERROR, ID, TeamException.UNABLE,
+					"Could not check out parent: " + e.getMessage(), null);
+		}
+	}
+
+	protected final class CheckInOperation implements IBatchOperation {
+
+		/** the resources skipped because they are unchanged */
+		private final List<IResource> identical = Collections
+				.synchronizedList(new ArrayList<IResource>());
+
+		/**
+		 * Returns the resources that were not checked in because they are
+		 * identical to their predecessor.
+		 * 
+		 * @return the identical resources
+		 */
+		IResource[] getIdentical() {
+			synchronized (identical) {
+				return identical.toArray(new IResource[identical.size()]);
+			}
+		}
+
+		public IStatus check(IResource resource, StateCache targetElement) {
+			// Sanity check - can't check in something that is not part of
+			// clearcase
+			if (targetElement == null || !targetElement.isClearCaseElement())
+				return new Status(
+						IStatus.WARNING,
+						ID,
+						TeamException.NO_REMOTE_RESOURCE,
+						MessageFormat
+								.format("Resource \"{0}\" is not a ClearCase element!",
+										new Object[] { resource.getFullPath()
+												.toString() }), null);
+			// Sanity check - can't checkin something that is not checked
+			// out
+			if (!targetElement.isCheckedOut())
+				// return status with severity OK
+				return new Status(IStatus.OK, ID,
+						TeamException.NOT_CHECKED_OUT, MessageFormat.format(
+								"Resource \"{0}\" is not checked out!",
+								new Object[] { targetElement.getPath() }),
+						null);
+			// compare with the predecessor locally instead of letting
+			// cleartool fail for every unchanged element
+			if (!ClearCasePreferences.isCheckinIdenticalAllowed()
+					&& ContentHash.isIdenticalToPredecessor(targetElement)) {
+				if (!identical.contains(resource)) {
+					identical.add(resource);
+				}
+				return new Status(IStatus.OK, ID,
+						TeamException.NOT_CHECKED_IN, MessageFormat.format(
+								Messages.getString("ClearCaseProvider.identicalContent"),
+								new Object[] { targetElement.getPath() }),
+						null);
+			}
+			return null;
+		}
+
+		public ClearCaseElementState[] visit(IResource[] resources,
+				StateCache[] targetElements, IProgressMonitor monitor) {
+			// errors like identical predecessors make the provider retry the
+			// failed elements one by one
+			int flags = ClearCase.PTIME;
+			if (ClearCasePreferences.isCheckinIdenticalAllowed()) {
+				flags |= ClearCase.IDENTICAL;
+			}
+			return ClearCasePlugin.getEngine().checkin(
+					getPaths(targetElements), getComment(), flags, opListener);
+		}
 
 		public IStatus visit(IResource resource, IProgressMonitor monitor) {
 			try {
@@ -1434,40 +1907,21 @@ public class ClearCaseProvider extends RepositoryProvider {
 				monitor.beginTask("Checkin in " + resource.getFullPath(), 100);
 				StateCache cache = getCache(resource);
 				final StateCache targetElement = getFinalTargetElement(cache);
-				IStatus result = OK_STATUS;
-				// Sanity check - can't check in something that is not part of
-				// clearcase
-				if (targetElement == null
-						|| !targetElement.isClearCaseElement())
-					return new Status(
-							IStatus.WARNING,
-							ID,
-							TeamException.NO_REMOTE_RESOURCE,
-							MessageFormat
-									.format("Resource \"{0}\" is not a ClearCase element!",
-											new Object[] { resource
-													.getFullPath().toString() }),
-							null);
-				// Sanity check - can't checkin something that is not checked
-				// out
-				if (!targetElement.isCheckedOut())
-					// return status with severity OK
-					return new Status(IStatus.OK, ID,
-							TeamException.NOT_CHECKED_OUT,
-							MessageFormat.format(
-									"Resource \"{0}\" is not checked out!",
-									new Object[] { targetElement.getPath() }),
-							null);
+				IStatus result = check(resource, targetElement);
+				if (result != null)
+					return result;
+				result = OK_STATUS;
+				ClearCaseElementState[] states = null;
 
 				if (ClearCasePreferences.isCheckinIdenticalAllowed()) {
-					ClearCasePlugin.getEngine().checkin(
+					states = ClearCasePlugin.getEngine().checkin(
 							new String[] { targetElement.getPath() },
 							getComment(),
 							ClearCase.PTIME | ClearCase.IDENTICAL, opListener);
 				} else {
 
 					try {
-						ClearCasePlugin.getEngine().checkin(
+						states = ClearCasePlugin.getEngine().checkin(
 								new String[] { targetElement.getPath() },
 								getComment(), ClearCase.PTIME, opListener);
 					} catch (ClearCaseException cce) {
@@ -1556,7 +2010,7 @@ public class ClearCaseProvider extends RepositoryProvider {
 				}
 
 				monitor.worked(40);
-				updateState(resource, IResource.DEPTH_ZERO,
+				updateState(resource, targetElement, states,
 						new SubProgressMonitor(monitor, 10));
 
 				return result;
@@ -1566,7 +2020,139 @@ public class ClearCaseProvider extends RepositoryProvider {
 		}
 	}
 
-	private final class CheckOutOperation implements IRecursiveOperation {
+	private final class CheckOutOperation implements IBatchOperation {
+
+		public IStatus check(IResource resource, StateCache targetElement) {
+			// Sanity check - can't checkout something that is not part of
+			// clearcase
+			if (targetElement == null || !targetElement.isClearCaseElement())
+				return new Status(
+						IStatus.WARNING,
+						ID,
+						TeamException.NO_REMOTE_RESOURCE,
+						MessageFormat
+								.format("Resource \"{0}\" is not a ClearCase element!",
+										new Object[] { resource.getFullPath()
+												.toString() }), null);
+
+			// Sanity check - can't checkout something that is already
+			// checked out
+			if (targetElement.isCheckedOut())
+				// return status with severity OK
+				return new Status(IStatus.OK, ID,
+						TeamException.NOT_CHECKED_IN, MessageFormat.format(
+								"Resource \"{0}\" is already checked out!",
+								new Object[] { targetElement.getPath() }),
+						null);
+			return null;
+		}
+
+		public ClearCaseElementState[] visit(IResource[] resources,
+				StateCache[] targetElements, IProgressMonitor monitor) {
+			// hijacked elements need another flag, so they get their own
+			// command
+			List<StateCache> hijacked = new ArrayList<StateCache>();
+			List<StateCache> others = new ArrayList<StateCache>();
+			// update if necessary
+			if (ClearCasePreferences.isCheckoutLatest()) {
+				updateOutdated(targetElements, monitor);
+			}
+			ContentHash.Recorder recorder = createRecorder();
+			for (int i = 0; i < targetElements.length; i++) {
+				recorder.add(targetElements[i]);
+				if (targetElements[i].isHijacked()) {
+					hijacked.add(targetElements[i]);
+				} else {
+					others.add(targetElements[i]);
+				}
+			}
+			monitor.subTask("Checking out " + targetElements.length
+					+ " elements");
+			List<ClearCaseElementState> states = new ArrayList<ClearCaseElementState>();
+			if (!others.isEmpty()) {
+				addAll(states, ClearCasePlugin.getEngine().checkout(
+						getPaths(others.toArray(new StateCache[others.size()])),
+						getComment(), getFlags(ClearCase.NONE), recorder));
+			}
+			if (!hijacked.isEmpty()) {
+				addAll(states, ClearCasePlugin.getEngine().checkout(
+						getPaths(hijacked.toArray(new StateCache[hijacked
+								.size()])), getComment(),
+						getFlags(ClearCase.HIJACKED), recorder));
+			}
+			return states.toArray(new ClearCaseElementState[states.size()]);
+		}
+
+		/**
+		 * Updates the snapshot view elements that are not loaded at their
+		 * latest version. One update preview of their common folder finds
+		 * them, so only outdated elements need an update of their own.
+		 */
+		private void updateOutdated(StateCache[] targetElements,
+				IProgressMonitor monitor) {
+			List<String> paths = new ArrayList<String>();
+			IPath folder = null;
+			for (int i = 0; i < targetElements.length; i++) {
+				if (!targetElements[i].isSnapShot())
+					continue;
+				String path = targetElements[i].getPath();
+				paths.add(path);
+				IPath parent = new Path(path).removeLastSegments(1);
+				if (folder == null) {
+					folder = parent;
+				} else if (folder.getDevice() == null ? parent.getDevice() == null
+						: folder.getDevice().equalsIgnoreCase(parent.getDevice())) {
+					folder = folder.uptoSegment(folder
+							.matchingFirstSegments(parent));
+				} else {
+					// different drives, no common folder
+					folder = Path.EMPTY;
+				}
+			}
+			if (paths.size() < 2 || folder.segmentCount() == 0) {
+				for (String path : paths) {
+					monitor.subTask("Updating " + path);
+					update(path, 0, false);
+				}
+				return;
+			}
+			ViewprivOperationListenerUP outdated = new ViewprivOperationListenerUP(
+					"Looking for outdated elements in " + folder.toOSString(),
+					monitor);
+			ClearCasePlugin.getEngine().getUpdateList(folder.toOSString(),
+					outdated);
+			for (String path : paths) {
+				if (outdated.isOutdated(path)) {
+					monitor.subTask("Updating " + path);
+					update(path, 0, false);
+				}
+			}
+		}
+
+		private void addAll(List<ClearCaseElementState> states,
+				ClearCaseElementState[] result) {
+			if (result != null) {
+				states.addAll(Arrays.asList(result));
+			}
+		}
+
+		/**
+		 * Creates the listener of a checkout that remembers the predecessors
+		 * of the checked out elements and, so unchanged files can be detected
+		 * on checkin, the content of the files.
+		 */
+		private ContentHash.Recorder createRecorder() {
+			return new ContentHash.Recorder(opListener, !ClearCasePreferences
+					.isCheckinIdenticalAllowed());
+		}
+
+		private int getFlags(int hijacked) {
+			return getCheckoutType()
+					| ClearCase.PTIME
+					| hijacked
+					| (ClearCasePreferences.isUseMasterForAdd() ? ClearCase.NMASTER
+							: ClearCase.NONE);
+		}
 
 		public IStatus visit(final IResource resource,
 				final IProgressMonitor monitor) {
@@ -1575,59 +2161,35 @@ public class ClearCaseProvider extends RepositoryProvider {
 				monitor.beginTask("Checking out " + resource.getFullPath(), 100);
 				StateCache cache = getCache(resource);
 				final StateCache targetElement = getFinalTargetElement(cache);
-				// Sanity check - can't checkout something that is not part of
-				// clearcase
-				if (targetElement == null
-						|| !targetElement.isClearCaseElement())
-					return new Status(
-							IStatus.WARNING,
-							ID,
-							TeamException.NO_REMOTE_RESOURCE,
-							MessageFormat
-									.format("Resource \"{0}\" is not a ClearCase element!",
-											new Object[] { resource
-													.getFullPath().toString() }),
-							null);
-
-				// Sanity check - can't checkout something that is already
-				// checked out
-				if (targetElement.isCheckedOut())
-					// return status with severity OK
-					return new Status(IStatus.OK, ID,
-							TeamException.NOT_CHECKED_IN, MessageFormat.format(
-									"Resource \"{0}\" is already checked out!",
-									new Object[] { targetElement.getPath() }),
-							null);
-
-				IStatus result = OK_STATUS;
+				IStatus result = check(resource, targetElement);
+				if (result != null)
+					return result;
+				result = OK_STATUS;
 
 				// update if necessary
 				if (ClearCasePreferences.isCheckoutLatest()
 						&& targetElement.isSnapShot()) {
 					monitor.subTask("Updating " + targetElement.getPath());
-					update(resource.getFullPath().toOSString(), 0, false);
+					update(targetElement.getPath(), 0, false);
 
 				}
 				monitor.worked(20);
 
 				// only checkout if update was successful
+				ClearCaseElementState[] states = null;
 				if (result == OK_STATUS) {
 					monitor.subTask("Checking out " + targetElement.getPath());
+					ContentHash.Recorder recorder = createRecorder();
+					recorder.add(targetElement);
 					try {
 
-						ClearCasePlugin
+						states = ClearCasePlugin
 								.getEngine()
 								.checkout(
 										new String[] { targetElement.getPath() },
 										getComment(),
-										getCheckoutType()
-												| ClearCase.PTIME
-												| (targetElement.isHijacked() ? ClearCase.HIJACKED
-														: ClearCase.NONE)
-												| (ClearCasePreferences
-														.isUseMasterForAdd() ? ClearCase.NMASTER
-														: ClearCase.NONE),
-										opListener);
+										getFlags(targetElement.isHijacked() ? ClearCase.HIJACKED
+												: ClearCase.NONE), recorder);
 					} catch (ClearCaseException cce) {
 						switch (cce.getErrorCode()) {
 						case ClearCase.ERROR_ELEMENT_HAS_CHECKOUTS:
@@ -1648,7 +2210,7 @@ public class ClearCaseProvider extends RepositoryProvider {
 														| (ClearCasePreferences
 																.isUseMasterForAdd() ? ClearCase.NMASTER
 																: ClearCase.NONE),
-												opListener);
+												recorder);
 								monitor.worked(40);
 								updateState(resource, IResource.DEPTH_ZERO,
 										new SubProgressMonitor(monitor, 10));
@@ -1683,12 +2245,8 @@ public class ClearCaseProvider extends RepositoryProvider {
 				}
 				monitor.worked(20);
 
-				// update state of target element first (if symlink)
-				if (!targetElement.equals(cache)) {
-					targetElement.doUpdate();
-				}
 				// update state
-				updateState(resource, IResource.DEPTH_ZERO,
+				updateState(resource, targetElement, states,
 						new SubProgressMonitor(monitor, 10));
 				return result;
 			} finally {
@@ -1887,6 +2445,58 @@ public class ClearCaseProvider extends RepositoryProvider {
 		public IStatus visit(IResource resource, IProgressMonitor progress);
 	}
 
+	/**
+	 * An operation that plans its work for all resources at once, e.g. to
+	 * process every affected directory only once.
+	 */
+	public static interface IPlannedOperation extends IOperation {
+
+		public IStatus visit(IResource[] resources, int depth,
+				IProgressMonitor progress);
+	}
+
+	/**
+	 * A recursive operation that can process many elements with one cleartool
+	 * command. The elements are selected from the state cache first, then
+	 * processed in chunks of {@link ClearCaseProvider#BATCH_SIZE}. If a chunk
+	 * fails, the elements it did not process are processed one by one with
+	 * {@link IRecursiveOperation#visit(IResource, IProgressMonitor)} to get a
+	 * status for each of them.
+	 * <p>
+	 * Every batch operation checks elements in or out, so an element was
+	 * processed by a failed command if its checkout state changed.
+	 * </p>
+	 */
+	public static interface IBatchOperation extends IRecursiveOperation {
+
+		/**
+		 * Checks from the state cache if an element has to be processed.
+		 * 
+		 * @param resource
+		 * @param targetElement
+		 *            the final element (<code>null</code> if a symbolic link
+		 *            can't be resolved)
+		 * @return <code>null</code> if the element has to be processed,
+		 *         otherwise the status to report for it
+		 */
+		public IStatus check(IResource resource, StateCache targetElement);
+
+		/**
+		 * Processes elements that passed {@link #check(IResource, StateCache)}
+		 * with as few engine calls as possible.
+		 * 
+		 * @param resources
+		 * @param targetElements
+		 *            the final elements of the resources
+		 * @param progress
+		 * @return the states returned by the engine (maybe <code>null</code>)
+		 * @throws ClearCaseException
+		 *             if the command failed for any of the elements
+		 */
+		public ClearCaseElementState[] visit(IResource[] resources,
+				StateCache[] targetElements, IProgressMonitor progress);
+	}
+
 	/**
 	 * Perform the given operation on the array of resources, each to the
 	 * specified depth. Throw an exception if a problem ocurs, otherwise remain
@@ -1903,6 +2513,49 @@ public class ClearCaseProvider extends RepositoryProvider {
 		// For each resource in the local resources array until we have errors.
 		try {
 			progress.beginTask("Processing", 1000 * resources.length);
+			if (operation instanceof IPlannedOperation) {
+				multiStatus.merge(((IPlannedOperation) operation).visit(
+						resources, depth, new SubProgressMonitor(progress,
+								1000 * resources.length)));
+			} else {
+				multiStatus.merge(executeSequential(operation, resources,
+						depth, new SubProgressMonitor(progress,
+								1000 * resources.length)));
+			}
+			// Finally, if any problems occurred, throw the exeption with all
+			// the statuses,
+			// but if there were no problems exit silently.
+			if (!multiStatus.isOK()) {
+				String message = multiStatus.matches(IStatus.ERROR) ? "There were errors that prevent the requested operation from finishing successfully."
+						: "The requested operation finished with warnings.";
+				throw new TeamException(new MultiStatus(
+						multiStatus.getPlugin(), multiStatus.getCode(),
+						multiStatus.getChildren(), message,
+						multiStatus.getException()));
+			}
+			// Cause all the resource changes to be broadcast to listeners.
+			// TeamPlugin.getManager().broadcastResourceStateChanges(resources);
+		} finally {
+			progress.done();
+		}
+	}
+
+	/**
+	 * Performs the given operation on the resources one after another until
+	 * the first error.
+	 */
+	private MultiStatus executeSequential(IOperation operation,
+			IResource[] resources, int depth, IProgressMonitor progress) {
+		MultiStatus multiStatus = new MultiStatus(getID(), TeamException.OK,
+				"OK", null);
+		try {
+			progress.beginTask("Processing", 1000 * resources.length);
+			if (operation instanceof IBatchOperation) {
+				multiStatus.merge(executeBatch((IBatchOperation) operation,
+						resources, depth, new SubProgressMonitor(progress,
+								1000 * resources.length)));
+				return multiStatus;
+			}
 			for (int i = 0; i < resources.length
 					&& !multiStatus.matches(IStatus.ERROR); i++) {
 				progress.subTask(resources[i].getFullPath().toString());
@@ -1912,28 +2565,15 @@ public class ClearCaseProvider extends RepositoryProvider {
 								(IRecursiveOperation) operation, resources[i],
 								depth, new SubProgressMonitor(progress, 1000)));
 					} else {
-						multiStatus
-								.merge(((IIterativeOperation) operation).visit(
-										resources[i], depth,
+						multiStatus.merge(((IIterativeOperation) operation)
+								.visit(resources[i], depth,
 										new SubProgressMonitor(progress, 1000)));
 					}
 				} else {
 					progress.worked(1000);
 				}
 			}
-			// Finally, if any problems occurred, throw the exeption with all
-			// the statuses,
-			// but if there were no problems exit silently.
-			if (!multiStatus.isOK()) {
-				String message = multiStatus.matches(IStatus.ERROR) ? "There were errors that prevent the requested operation from finishing successfully."
-						: "The requested operation finished with warnings.";
-				throw new TeamException(new MultiStatus(
-						multiStatus.getPlugin(), multiStatus.getCode(),
-						multiStatus.getChildren(), message,
-						multiStatus.getException()));
-			}
-			// Cause all the resource changes to be broadcast to listeners.
-			// TeamPlugin.getManager().broadcastResourceStateChanges(resources);
+			return multiStatus;
 		} finally {
 			progress.done();
 		}
@@ -2011,6 +2651,395 @@ public class ClearCaseProvider extends RepositoryProvider {
 		}
 	}
 
+	/**
+	 * Performs a batch operation on resources to the given depth. The
+	 * elements to process are collected first, then handed to the operation
+	 * in chunks.
+	 */
+	protected IStatus executeBatch(IBatchOperation operation,
+			IResource[] resources, int depth, IProgressMonitor progress) {
+		MultiStatus multiStatus = new MultiStatus(getID(), TeamException.OK,
+				"OK", null);
+		try {
+			progress.beginTask("Processing", 1000);
+			List<IResource> selected = new ArrayList<IResource>();
+			List<StateCache> targetElements = new ArrayList<StateCache>();
+			Set<String> paths = new HashSet<String>();
+			for (int i = 0; i < resources.length; i++) {
+				if (!isIgnored(resources[i])) {
+					collect(operation, resources[i], depth, selected,
+							targetElements, paths, multiStatus);
+				}
+			}
+			progress.worked(100);
+			if (multiStatus.matches(IStatus.ERROR))
+				return multiStatus;
+			List<Partition> partitions = partition(selected, targetElements);
+			if (partitions.size() > 1) {
+				multiStatus.merge(executeParallel(operation, partitions,
+						resources, depth, new SubProgressMonitor(progress, 900)));
+			} else {
+				multiStatus.merge(executeChunks(operation, selected,
+						targetElements, new SubProgressMonitor(progress, 900)));
+			}
+			return multiStatus;
+		} finally {
+			progress.done();
+		}
+	}
+
+	/**
+	 * Hands the selected elements to the operation chunk by chunk until the
+	 * first error.
+	 */
+	private IStatus executeChunks(IBatchOperation operation,
+			List<IResource> selected, List<StateCache> targetElements,
+			IProgressMonitor progress) {
+		MultiStatus multiStatus = new MultiStatus(getID(), TeamException.OK,
+				"OK", null);
+		try {
+			int chunks = (selected.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+			progress.beginTask("Processing", Math.max(chunks, 1));
+			for (int start = 0; start < selected.size()
+					&& !multiStatus.matches(IStatus.ERROR); start += BATCH_SIZE) {
+				checkCanceled(progress);
+				int end = Math.min(start + BATCH_SIZE, selected.size());
+				multiStatus.merge(executeChunk(operation, selected.subList(
+						start, end), targetElements.subList(start, end),
+						new SubProgressMonitor(progress, 1)));
+			}
+			return multiStatus;
+		} finally {
+			progress.done();
+		}
+	}
+
+	/**
+	 * The selected elements of a batch operation that belong to one view and
+	 * VOB.
+	 */
+	private static final class Partition {
+
+		final List<IResource> resources = new ArrayList<IResource>();
+
+		final List<StateCache> targetElements = new ArrayList<StateCache>();
+	}
+
+	/**
+	 * Splits the selected elements of a batch operation by the view and VOB
+	 * they belong to. Elements of different VOBs don't depend on each other,
+	 * so the partitions may be processed concurrently. Selections that fit
+	 * into one chunk are not worth the start of additional sessions.
+	 * 
+	 * @return the partitions ordered by view and VOB, or a single partition
+	 *         if the elements have to be processed sequentially
+	 */
+	private List<Partition> partition(List<IResource> selected,
+			List<StateCache> targetElements) {
+		Partition all = new Partition();
+		all.resources.addAll(selected);
+		all.targetElements.addAll(targetElements);
+		List<Partition> single = Collections.singletonList(all);
+		if (selected.size() <= BATCH_SIZE
+				|| ClearCasePreferences.getEngineSessions() < 2
+				|| !ClearCasePlugin.getDefault().isEngineSessionSupported())
+			return single;
+		String viewRoot;
+		try {
+			viewRoot = getViewRoot(selected.get(0));
+		} catch (TeamException e) {
+			return single;
+		}
+		Map<String, Partition> partitions = new TreeMap<String, Partition>();
+		for (int i = 0; i < selected.size(); i++) {
+			IPath location = new Path(targetElements.get(i).getPath());
+			String vob = getVobName(location, viewRoot);
+			String key = getViewName(selected.get(i)) + "/" //$NON-NLS-1$
+					+ (vob == null ? "" : vob); //$NON-NLS-1$
+			Partition partition = partitions.get(key);
+			if (partition == null) {
+				partition = new Partition();
+				partitions.put(key, partition);
+			}
+			partition.resources.add(selected.get(i));
+			partition.targetElements.add(targetElements.get(i));
+		}
+		return new ArrayList<Partition>(partitions.values());
+	}
+
+	/**
+	 * Performs a batch operation on several partitions concurrently, each
+	 * worker with its own engine session. Every partition stops at its first
+	 * error like a sequential execution. The results are merged in partition
+	 * order, so the outcome does not depend on the timing of the workers.
+	 * <p>
+	 * The caller holds the scheduling rule of the operation, so the workers
+	 * must not touch the workspace. They only update the state cache, the
+	 * resources are refreshed by the caller when all workers are done. If no
+	 * session can be started, the partitions are processed one after another
+	 * by the caller.
+	 * </p>
+	 */
+	private IStatus executeParallel(final IBatchOperation operation,
+			final List<Partition> partitions, IResource[] resources,
+			int depth, IProgressMonitor progress) {
+		List<ClearCaseInterface> sessions = new ArrayList<ClearCaseInterface>();
+		try {
+			int count = Math.min(partitions.size(), ClearCasePreferences
+					.getEngineSessions());
+			for (int i = 0; i < count; i++) {
+				sessions.add(ClearCasePlugin.getDefault().createEngineSession());
+			}
+		} catch (CoreException e) {
+			ClearCasePlugin.log(IStatus.WARNING, "Could only start "
+					+ sessions.size() + " engine sessions", e);
+		}
+		if (sessions.isEmpty()) {
+			MultiStatus multiStatus = new MultiStatus(getID(),
+					TeamException.OK, "OK", null);
+			try {
+				progress.beginTask("Processing", partitions.size());
+				for (int i = 0; i < partitions.size()
+						&& !multiStatus.matches(IStatus.ERROR); i++) {
+					Partition partition = partitions.get(i);
+					multiStatus.merge(executeChunks(operation,
+							partition.resources, partition.targetElements,
+							new SubProgressMonitor(progress, 1)));
+				}
+				return multiStatus;
+			} finally {
+				progress.done();
+			}
+		}
+
+		final IStatus[] results = new IStatus[partitions.size()];
+		final RuntimeException[] failure = new RuntimeException[1];
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger completed = new AtomicInteger();
+		// shared by the workers, only used for cancellation
+		final IProgressMonitor workerMonitor = new NullProgressMonitor();
+		final boolean refresh = isRefreshResources();
+		final String workerComment = getComment();
+		Thread[] workers = new Thread[sessions.size()];
+		for (int i = 0; i < workers.length; i++) {
+			final ClearCaseInterface session = sessions.get(i);
+			workers[i] = new Thread(new Runnable() {
+
+				public void run() {
+					ClearCasePlugin.setEngineSession(session);
+					setRefreshResources(false);
+					setComment(workerComment);
+					try {
+						for (int p = next.getAndIncrement(); p < results.length
+								&& !workerMonitor.isCanceled(); p = next
+								.getAndIncrement()) {
+							Partition partition = partitions.get(p);
+							results[p] = executeChunks(operation,
+									partition.resources,
+									partition.targetElements, workerMonitor);
+							completed.incrementAndGet();
+						}
+					} catch (RuntimeException e) {
+						synchronized (failure) {
+							if (failure[0] == null) {
+								failure[0] = e;
+							}
+						}
+						workerMonitor.setCanceled(true);
+					} finally {
+						setRefreshResources(true);
+						setComment(""); //$NON-NLS-1$
+						ClearCasePlugin.setEngineSession(null);
+						ClearCasePlugin.getDefault().disposeEngineSession(
+								session);
+					}
+				}
+			}, "ClearCase session " + (i + 1)); //$NON-NLS-1$
+			workers[i].start();
+		}
+
+		boolean interrupted = false;
+		try {
+			progress.beginTask("Processing", results.length + 1);
+			int reported = 0;
+			for (int i = 0; i < workers.length; i++) {
+				while (workers[i].isAlive()) {
+					try {
+						workers[i].join(100);
+					} catch (InterruptedException e) {
+						interrupted = true;
+						workerMonitor.setCanceled(true);
+					}
+					if (progress.isCanceled()) {
+						workerMonitor.setCanceled(true);
+					}
+					int done = completed.get();
+					progress.worked(done - reported);
+					reported = done;
+				}
+			}
+			if (refresh) {
+				// the workers have left this to the holder of the rule
+				for (int i = 0; i < resources.length; i++) {
+					try {
+						resources[i].refreshLocal(depth, null);
+					} catch (CoreException e) {
+						ClearCasePlugin.log(IStatus.ERROR,
+								"Error refreshing ClearCase state: "
+										+ e.getMessage(), e);
+					}
+				}
+			}
+			progress.worked(1);
+		} finally {
+			progress.done();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized (failure) {
+			if (failure[0] != null)
+				throw failure[0];
+		}
+		if (workerMonitor.isCanceled())
+			throw new OperationCanceledException();
+		MultiStatus multiStatus = new MultiStatus(getID(), TeamException.OK,
+				"OK", null);
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				multiStatus.merge(results[i]);
+			}
+		}
+		return multiStatus;
+	}
+
+	/**
+	 * Selects the resource and its members (as given by depth) that have to
+	 * be processed by the operation.
+	 */
+	private void collect(IBatchOperation operation, IResource resource,
+			int depth, List<IResource> selected,
+			List<StateCache> targetElements, Set<String> paths,
+			MultiStatus multiStatus) {
+		StateCache targetElement = getFinalTargetElement(getCache(resource));
+		IStatus status = operation.check(resource, targetElement);
+		if (status != null) {
+			multiStatus.merge(status);
+		} else if (paths.add(targetElement.getPath())) {
+			// symbolic links may point to an element selected already
+			selected.add(resource);
+			targetElements.add(targetElement);
+		}
+		if (resource.getType() == IResource.FILE
+				|| depth == IResource.DEPTH_ZERO)
+			return;
+		int childDepth = (depth == IResource.DEPTH_ONE) ? IResource.DEPTH_ZERO
+				: IResource.DEPTH_INFINITE;
+		IResource[] members = getMembers(resource);
+		for (int i = 0; i < members.length; i++) {
+			if (!isIgnored(members[i])) {
+				collect(operation, members[i], childDepth, selected,
+						targetElements, paths, multiStatus);
+			}
+		}
+	}
+
+	/**
+	 * Hands one chunk of elements to the operation and updates their state.
+	 * If the command fails, one checkout query finds the elements it did not
+	 * process. Only these are retried one by one, so every failure is
+	 * reported for its own element.
+	 */
+	private IStatus executeChunk(IBatchOperation operation,
+			List<IResource> resources, List<StateCache> targetElements,
+			IProgressMonitor monitor) {
+		if (resources.size() == 1)
+			return operation.visit(resources.get(0), monitor);
+		try {
+			monitor.beginTask("Processing", 10 * resources.size() + 10);
+			ClearCaseElementState[] states;
+			try {
+				states = operation.visit(resources
+						.toArray(new IResource[resources.size()]),
+						targetElements.toArray(new StateCache[targetElements
+								.size()]), new SubProgressMonitor(monitor, 10));
+			} catch (ClearCaseException e) {
+				return retryChunk(operation, resources, targetElements,
+						monitor);
+			}
+			for (int i = 0; i < resources.size(); i++) {
+				updateState(resources.get(i), targetElements.get(i), states,
+						new SubProgressMonitor(monitor, 10));
+			}
+			return OK_STATUS;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Retries the elements of a failed chunk that were not processed.
+	 */
+	private IStatus retryChunk(IBatchOperation operation,
+			List<IResource> resources, List<StateCache> targetElements,
+			IProgressMonitor monitor) {
+		Set<String> checkedOut = findCheckedOut(resources.get(0),
+				targetElements);
+		MultiStatus multiStatus = new MultiStatus(getID(), TeamException.OK,
+				"OK", null);
+		for (int i = 0; i < resources.size(); i++) {
+			StateCache targetElement = targetElements.get(i);
+			boolean processed;
+			if (checkedOut != null) {
+				processed = checkedOut.contains(CheckoutIndex
+						.normalize(targetElement.getPath())) != targetElement
+						.isCheckedOut();
+			} else {
+				// the query failed, ask for every element
+				targetElement.doUpdate();
+				processed = operation.check(resources.get(i), targetElement) != null;
+			}
+			if (processed) {
+				updateState(resources.get(i), IResource.DEPTH_ZERO,
+						new SubProgressMonitor(monitor, 10));
+			} else {
+				multiStatus.merge(operation.visit(resources.get(i),
+						new SubProgressMonitor(monitor, 10)));
+			}
+		}
+		return multiStatus;
+	}
+
+	/**
+	 * Returns the elements checked out in the view of the given resource.
+	 * 
+	 * @return the element paths, <code>null</code> if the query failed
+	 */
+	private Set<String> findCheckedOut(IResource resource,
+			List<StateCache> targetElements) {
+		HashMap<Integer, String> args = new HashMap<Integer, String>();
+		args.put(Integer.valueOf(ClearCase.FORMAT), CheckoutIndex.FORMAT);
+		try {
+			String[] output = ClearCasePlugin.getEngine().findCheckouts(
+					ClearCase.FORMAT,
+					args,
+					getPaths(targetElements
+							.toArray(new StateCache[targetElements.size()])));
+			return CheckoutIndex.parseCheckedOut(output, getViewName(resource));
+		} catch (ClearCaseException e) {
+			return null;
+		}
+	}
+
+	private static String[] getPaths(StateCache[] targetElements) {
+		String[] paths = new String[targetElements.length];
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = targetElements[i].getPath();
+		}
+		return paths;
+	}
+
 	protected IResource[] getMembers(IResource resource) {
 		if (resource.getType() != IResource.FILE) {
 			try {
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sourceforge.clearcase.events.OperationListener;
+
+import org.eclipse.core.resources.IResource;
+
+/**
+ * Compares the content of checked out files with their predecessor without
+ * running cleartool, so checkins of unchanged files can be skipped.
+ * <p>
+ * The content of a file right before its checkout is the content of the
+ * predecessor of the checkout. Its hash is recorded in the version cache
+ * for the predecessor version when the file is checked out, so the content
+ * of the predecessor doesn't have to be asked from cleartool on checkin.
+ * </p>
+ */
+class ContentHash {
+
+	private static final String ALGORITHM = "MD5"; //$NON-NLS-1$
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private static final String TRACE_ID = "ContentHash"; //$NON-NLS-1$
+
+	private ContentHash() {
+		// no instances
+	}
+
+	/**
+	 * Returns the content hash of a file.
+	 *
+	 * @param file
+	 * @return the hash or <code>null</code> if the file can't be read
+	 */
+	static String hash(File file) {
+		if (!file.isFile())
+			return null;
+		InputStream in = null;
+		try {
+			MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+			in = new FileInputStream(file);
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+			byte[] bytes = digest.digest();
+			char[] hex = new char[bytes.length * 2];
+			for (int i = 0; i < bytes.length; i++) {
+				hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+				hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			ClearCasePlugin.log(ALGORITHM + " not available", e); //$NON-NLS-1$
+			return null;
+		} catch (IOException e) {
+			if (ClearCasePlugin.DEBUG_STATE_CACHE) {
+				ClearCasePlugin.trace(TRACE_ID, "could not read " + file //$NON-NLS-1$
+						+ ": " + e.getMessage()); //$NON-NLS-1$
+			}
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indicates if a checked out file has the same content as its
+	 * predecessor.
+	 *
+	 * @param element
+	 *            a checked out file
+	 * @return <code>true</code> if identical, <code>false</code> if changed
+	 *         or if the content of the predecessor is not known
+	 */
+	static boolean isIdenticalToPredecessor(StateCache element) {
+		if (element.getResource().getType() != IResource.FILE)
+			return false;
+		String path = element.getPath();
+		String predecessorHash = VersionCache.getInstance().getHash(
+				VersionCache.getKey(path, element.getPredecessorVersion()));
+		return null != predecessorHash
+				&& predecessorHash.equals(hash(new File(path)));
+	}
+
+	/**
+	 * Watches the output of a checkout for the versions the checkouts
+	 * started from. They become the predecessors of the checked out
+	 * elements. If requested, the content of the files is hashed before the
+	 * checkout and kept for the version the checkout started from, but only
+	 * if the view selected this version before, otherwise the content
+	 * belongs to another version.
+	 */
+	static class Recorder implements OperationListener {
+
+		private static final Pattern CHECKED_OUT = Pattern
+				.compile("Checked out \"(.*)\" from version \"(.*)\"\\."); //$NON-NLS-1$
+
+		private final OperationListener listener;
+
+		private final boolean hashing;
+
+		private final Map<String, StateCache> elements = new HashMap<String, StateCache>();
+
+		private final Map<String, String> versions = new HashMap<String, String>();
+
+		private final Map<String, String> hashes = new HashMap<String, String>();
+
+		/**
+		 * Creates a new recorder.
+		 *
+		 * @param listener
+		 *            the listener the output is passed on to (maybe
+		 *            <code>null</code>)
+		 * @param hashing
+		 *            <code>true</code> to hash the content of the files
+		 */
+		Recorder(OperationListener listener, boolean hashing) {
+			this.listener = listener;
+			this.hashing = hashing;
+		}
+
+		/**
+		 * Adds an element that is about to be checked out. The content of
+		 * hijacked files is not the one of a version, so it is not hashed.
+		 *
+		 * @param element
+		 *            an element that is not checked out
+		 */
+		void add(StateCache element) {
+			String path = element.getPath();
+			if (null == path)
+				return;
+			elements.put(path, element);
+			versions.put(path, element.getVersion());
+			if (hashing && element.getResource().getType() == IResource.FILE
+					&& !element.isHijacked()) {
+				String hash = hash(new File(path));
+				if (null != hash) {
+					hashes.put(path, hash);
+				}
+			}
+		}
+
+		private void checkedOut(String path, String version) {
+			StateCache element = elements.get(path);
+			if (null == element)
+				return;
+			element.checkedOutFrom = version;
+			String hash = hashes.get(path);
+			String key = VersionCache.getKey(path, version);
+			if (null != hash && null != key
+					&& version.equals(versions.get(path))) {
+				VersionCache.getInstance().putHash(key, hash);
+			}
+		}
+
+		public void finishedOperation() {
+			if (listener != null) {
+				listener.finishedOperation();
+			}
+		}
+
+		public boolean isCanceled() {
+			return listener != null && listener.isCanceled();
+		}
+
+		public void ping() {
+			if (listener != null) {
+				listener.ping();
+			}
+		}
+
+		public void print(String msg) {
+			Matcher matcher = CHECKED_OUT.matcher(msg);
+			if (matcher.matches()) {
+				checkedOut(matcher.group(1), matcher.group(2));
+			}
+			if (listener != null) {
+				listener.print(msg);
+			}
+		}
+
+		public void printErr(String msg) {
+			if (listener != null) {
+				listener.printErr(msg);
+			}
+		}
+
+		public void printInfo(String msg) {
+			if (listener != null) {
+				listener.printInfo(msg);
+			}
+		}
+
+		public void startedOperation(int amountOfWork) {
+			if (listener != null) {
+				listener.startedOperation(amountOfWork);
+			}
+		}
+
+		public void worked(int ticks) {
+			if (listener != null) {
+				listener.worked(ticks);
+			}
+		}
+	}
+}
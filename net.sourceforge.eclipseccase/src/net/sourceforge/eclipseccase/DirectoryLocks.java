@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Serializes namespace operations (move, delete, checkout on edit) per
+ * directory instead of per provider.
+ * <p>
+ * A lock covers a set of directories. It is either acquired for all of them
+ * or waits, so two operations never deadlock on each other's directories. A
+ * directory may also be locked as a tree, which additionally covers
+ * everything below it, e.g. for a folder that is moved or deleted. Locks are
+ * reentrant, a thread never waits for a lock it holds itself.
+ * </p>
+ * <p>
+ * Although this class is public it is not intended to be used outside the
+ * Eclipse ClearCase integration.
+ * </p>
+ */
+public class DirectoryLocks {
+
+	/**
+	 * An acquired lock.
+	 */
+	public final class Lock {
+
+		private final Thread owner = Thread.currentThread();
+
+		private final List<IPath> directories;
+
+		private final List<IPath> trees;
+
+		Lock(List<IPath> directories, List<IPath> trees) {
+			this.directories = directories;
+			this.trees = trees;
+		}
+
+		/**
+		 * Releases the lock. Must be called exactly once by the thread that
+		 * acquired it.
+		 */
+		public void release() {
+			synchronized (DirectoryLocks.this) {
+				active.remove(this);
+				DirectoryLocks.this.notifyAll();
+			}
+		}
+
+		boolean conflicts(Lock other) {
+			for (IPath directory : other.directories) {
+				if (directories.contains(directory) || isInTree(directory))
+					return true;
+			}
+			for (IPath tree : other.trees) {
+				if (isInTree(tree))
+					return true;
+				for (IPath path : directories) {
+					if (tree.isPrefixOf(path))
+						return true;
+				}
+				for (IPath path : trees) {
+					if (tree.isPrefixOf(path))
+						return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean isInTree(IPath path) {
+			for (IPath tree : trees) {
+				if (tree.isPrefixOf(path))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private final List<Lock> active = new ArrayList<Lock>();
+
+	/**
+	 * Locks the given directories.
+	 * <p>
+	 * Waits until no other thread holds a conflicting lock. An interrupt does
+	 * not abort the wait, the interrupt status is restored afterwards.
+	 * </p>
+	 *
+	 * @param directories
+	 *            the directories to lock (<code>null</code> elements are
+	 *            ignored)
+	 * @param trees
+	 *            the directories to lock including everything below them
+	 *            (<code>null</code> elements are ignored)
+	 * @return the lock, to be released in a finally block
+	 */
+	Lock lock(IResource[] directories, IResource[] trees) {
+		Lock lock = new Lock(getPaths(directories), getPaths(trees));
+		boolean interrupted = false;
+		synchronized (this) {
+			while (isBlocked(lock)) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			active.add(lock);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return lock;
+	}
+
+	private boolean isBlocked(Lock lock) {
+		for (Lock other : active) {
+			if (other.owner != lock.owner && other.conflicts(lock))
+				return true;
+		}
+		return false;
+	}
+
+	private static List<IPath> getPaths(IResource[] resources) {
+		List<IPath> paths = new ArrayList<IPath>();
+		if (resources != null) {
+			for (int i = 0; i < resources.length; i++) {
+				if (resources[i] != null
+						&& !paths.contains(resources[i].getFullPath())) {
+					paths.add(resources[i].getFullPath());
+				}
+			}
+		}
+		return paths;
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IResource;
+
+/**
+ * Groups the resources of a namespace operation (add to source control,
+ * delete) by their parent directory, so that every directory has to be
+ * checked out and in only once.
+ */
+class DirectoryPlan {
+
+	/** orders resources by depth, parents before their members */
+	static final Comparator<IResource> TOP_DOWN = new Comparator<IResource>() {
+
+		public int compare(IResource r1, IResource r2) {
+			int depth = r1.getFullPath().segmentCount()
+					- r2.getFullPath().segmentCount();
+			if (depth != 0)
+				return depth;
+			return r1.getFullPath().toString().compareTo(
+					r2.getFullPath().toString());
+		}
+	};
+
+	/** orders resources by depth, members before their parents */
+	static final Comparator<IResource> BOTTOM_UP = Collections
+			.reverseOrder(TOP_DOWN);
+
+	private final Set<IResource> resources = new TreeSet<IResource>(TOP_DOWN);
+
+	private final Map<IContainer, List<IResource>> directories = new TreeMap<IContainer, List<IResource>>(
+			TOP_DOWN);
+
+	/**
+	 * Adds a resource to the plan.
+	 *
+	 * @param resource
+	 */
+	void add(IResource resource) {
+		if (!resources.add(resource))
+			return;
+		IContainer parent = resource.getParent();
+		List<IResource> members = directories.get(parent);
+		if (members == null) {
+			members = new ArrayList<IResource>();
+			directories.put(parent, members);
+		}
+		members.add(resource);
+	}
+
+	boolean contains(IResource resource) {
+		return resources.contains(resource);
+	}
+
+	boolean isEmpty() {
+		return resources.isEmpty();
+	}
+
+	/**
+	 * Removes all resources that are members of another planned resource,
+	 * e.g. because deleting a folder deletes its members as well.
+	 */
+	void removeNested() {
+		for (Iterator<IResource> i = resources.iterator(); i.hasNext();) {
+			IResource resource = i.next();
+			for (IContainer parent = resource.getParent(); parent != null; parent = parent
+					.getParent()) {
+				if (resources.contains(parent)) {
+					i.remove();
+					directories.get(resource.getParent()).remove(resource);
+					break;
+				}
+			}
+		}
+		for (Iterator<List<IResource>> i = directories.values().iterator(); i
+				.hasNext();) {
+			if (i.next().isEmpty()) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the planned resources.
+	 *
+	 * @return the resources, parents before their members
+	 */
+	List<IResource> getResources() {
+		return new ArrayList<IResource>(resources);
+	}
+
+	/**
+	 * Returns the directories containing planned resources.
+	 *
+	 * @return the directories, parents before their members
+	 */
+	List<IContainer> getDirectories() {
+		return new ArrayList<IContainer>(directories.keySet());
+	}
+
+	/**
+	 * Returns the directories containing planned resources that are not
+	 * planned themselves.
+	 *
+	 * @return the directories, parents before their members
+	 */
+	List<IContainer> getExistingDirectories() {
+		List<IContainer> result = new ArrayList<IContainer>();
+		for (IContainer directory : directories.keySet()) {
+			if (!resources.contains(directory)) {
+				result.add(directory);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the planned resources of a directory.
+	 *
+	 * @param directory
+	 * @return the resources
+	 */
+	List<IResource> getMembers(IContainer directory) {
+		List<IResource> members = directories.get(directory);
+		return members == null ? Collections.<IResource> emptyList()
+				: members;
+	}
+}
@@ -179,4 +179,27 @@ public interface IClearCasePreferenceConstants {
 	
 	String AUTOMATIC_MERGE = ClearCasePlugin.PLUGIN_ID + ".auto.merge";
 
+	/** ClearCase preference */
+	String ENGINE_STARTUP_TIMEOUT = ClearCasePlugin.PLUGIN_ID
+			+ ".engine.startupTimeout"; //$NON-NLS-1$
+
+	/**
+	 * ClearCase preference (the number of engine sessions operations spanning
+	 * several VOBs or views may run in parallel)
+	 */
+	String ENGINE_SESSIONS = ClearCasePlugin.PLUGIN_ID + ".engine.sessions"; //$NON-NLS-1$
+
+	/**
+	 * ClearCase preference (minutes between two queries for checkouts in other
+	 * views, 0 to disable)
+	 */
+	String CHECKOUT_INDEX_INTERVAL = ClearCasePlugin.PLUGIN_ID
+			+ ".checkoutIndexInterval"; //$NON-NLS-1$
+
+	/**
+	 * ClearCase preference (not shown in the UI, remembers the result of the
+	 * last engine start-up)
+	 */
+	String ENGINE_AVAILABLE = ClearCasePlugin.PLUGIN_ID + ".engine.available"; //$NON-NLS-1$
+
 }
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.statushandlers.StatusManager;
+
+/**
+ * Collects the moves of one workspace operation, e.g. a package rename that
+ * moves hundreds of files one by one.
+ * <p>
+ * The moves themselves are still executed one by one, so failures can be
+ * reported for every file. But the directories involved are checked out
+ * only once per batch and checked in with a single command when the
+ * workspace operation ends, instead of once per moved file.
+ * </p>
+ * <p>
+ * The end of the workspace operation is the first change notification that
+ * contains one of the moves of this batch. Notifications of other operations
+ * are ignored.
+ * </p>
+ */
+class MoveBatch extends Job implements IResourceChangeListener {
+
+	/** the time without moves after which a batch is finished anyway */
+	private static final long IDLE_DELAY = 1000;
+
+	private final ClearCaseProvider provider;
+
+	/** the directories checked out by this batch, members first */
+	private final Set<IContainer> checkedOut = new TreeSet<IContainer>(
+			DirectoryPlan.BOTTOM_UP);
+
+	/** the destinations of the moves registered with this batch */
+	private final Set<IPath> destinations = new HashSet<IPath>();
+
+	/** the number of running moves */
+	private int running;
+
+	private boolean closed;
+
+	/** set when the workspace operation has ended */
+	private boolean finished;
+
+	private long lastMove = System.currentTimeMillis();
+
+	/**
+	 * Creates a new batch and starts listening for the end of the current
+	 * workspace operation.
+	 *
+	 * @param provider
+	 */
+	MoveBatch(ClearCaseProvider provider) {
+		super("Checking in moved directories");
+		this.provider = provider;
+		setSystem(true);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this,
+				IResourceChangeEvent.POST_CHANGE);
+		schedule(IDLE_DELAY);
+	}
+
+	/**
+	 * Registers a move with this batch.
+	 *
+	 * @param destination
+	 *            the destination of the move
+	 * @return <code>false</code> if the batch is already finishing and a new
+	 *         one has to be used
+	 */
+	synchronized boolean begin(IResource destination) {
+		if (closed)
+			return false;
+		destinations.add(destination.getFullPath());
+		running++;
+		lastMove = System.currentTimeMillis();
+		return true;
+	}
+
+	/**
+	 * Unregisters a move registered with {@link #begin(IResource)}.
+	 */
+	synchronized void end() {
+		running--;
+		lastMove = System.currentTimeMillis();
+		notifyAll();
+	}
+
+	/**
+	 * Checks out the source and destination directory of a move unless they
+	 * are checked out already.
+	 *
+	 * @param source
+	 * @param destination
+	 * @param monitor
+	 * @return the status
+	 */
+	IStatus checkoutParents(IResource source, IResource destination,
+			IProgressMonitor monitor) {
+		List<IContainer> directories = new ArrayList<IContainer>();
+		directories.add(source.getParent());
+		if (!destination.getParent().equals(source.getParent())) {
+			directories.add(destination.getParent());
+		}
+		List<IContainer> toCheckout = new ArrayList<IContainer>();
+		for (IContainer directory : directories) {
+			StateCache cache = provider.getCache(directory);
+			if (!cache.isCheckedOut() && !cache.isSymbolicLink()) {
+				toCheckout.add(directory);
+			}
+		}
+		IStatus status = provider.checkoutDirectories(directories, monitor);
+		synchronized (this) {
+			for (IContainer directory : toCheckout) {
+				if (provider.getCache(directory).isCheckedOut()) {
+					checkedOut.add(directory);
+				}
+			}
+		}
+		return status;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+			return;
+		synchronized (this) {
+			if (finished || !containsMove(delta))
+				return;
+			finished = true;
+		}
+		schedule();
+	}
+
+	/**
+	 * Checks if a delta contains one of the moves of this batch.
+	 *
+	 * @param delta
+	 * @return <code>true</code> if a destination of this batch was moved
+	 */
+	private boolean containsMove(IResourceDelta delta) {
+		for (IPath destination : destinations) {
+			IResourceDelta member = delta.findMember(destination);
+			if (member != null
+					&& (member.getFlags() & IResourceDelta.MOVED_FROM) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		IResource[] directories;
+		synchronized (this) {
+			long idle = System.currentTimeMillis() - lastMove;
+			if (!finished && (running > 0 || idle < IDLE_DELAY)) {
+				schedule(Math.max(IDLE_DELAY - idle, 100));
+				return Status.OK_STATUS;
+			}
+			closed = true;
+			while (running > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			directories = checkedOut.toArray(new IResource[checkedOut.size()]);
+		}
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		if (directories.length == 0
+				|| !ClearCasePreferences.isAutoCheckinParentAfterMoveAllowed())
+			return Status.OK_STATUS;
+
+		// moves hold the scheduling rule while they wait for the directory
+		// locks, so the directories are refreshed only after the release
+		DirectoryLocks.Lock lock = provider.directoryLocks.lock(directories,
+				null);
+		boolean refreshing = provider.setRefreshResources(false);
+		try {
+			provider.checkin(directories, IResource.DEPTH_ZERO, monitor);
+			return Status.OK_STATUS;
+		} catch (TeamException e) {
+			// the moves have ended long ago, so nobody else will tell the user
+			if (!PlatformUI.isWorkbenchRunning())
+				return e.getStatus();
+			StatusManager.getManager().handle(e.getStatus(),
+					StatusManager.SHOW | StatusManager.LOG);
+			return Status.OK_STATUS;
+		} finally {
+			provider.setRefreshResources(refreshing);
+			lock.release();
+			refresh(directories);
+		}
+	}
+
+	/**
+	 * Refreshes the checked in directories, without holding any directory
+	 * lock.
+	 */
+	private static void refresh(IResource[] directories) {
+		for (int i = 0; i < directories.length; i++) {
+			try {
+				directories[i].refreshLocal(IResource.DEPTH_ZERO, null);
+			} catch (CoreException e) {
+				ClearCasePlugin.log(IStatus.ERROR,
+						"Error refreshing ClearCase state: " + e.getMessage(), e);
+			}
+		}
+	}
+}
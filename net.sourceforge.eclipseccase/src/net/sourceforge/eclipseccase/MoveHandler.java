@@ -25,6 +25,9 @@ public class MoveHandler implements IMoveDeleteHook {
 
 	ClearCaseProvider provider;
 
+	/** collects the moves of the running workspace operation */
+	private MoveBatch batch;
+
 	/**
 	 * Constructor for MoveHandler.
 	 */
@@ -32,6 +35,22 @@ public class MoveHandler implements IMoveDeleteHook {
 		this.provider = provider;
 	}
 
+	/**
+	 * Registers a move with the batch of the running workspace operation.
+	 * 
+	 * @param destination
+	 *            the destination of the move
+	 * @return the batch, {@link MoveBatch#end()} must be called when the move
+	 *         is done
+	 */
+	private synchronized MoveBatch beginMove(IResource destination) {
+		if (batch == null || !batch.begin(destination)) {
+			batch = new MoveBatch(provider);
+			batch.begin(destination);
+		}
+		return batch;
+	}
+
 	/*
 	 * @see IMoveDeleteHook#deleteFile(IResourceTree, IFile, int,
 	 * IProgressMonitor)
@@ -58,17 +77,17 @@ public class MoveHandler implements IMoveDeleteHook {
 		}
 
 		if (!failed) {
-			synchronized (provider) {
-				provider.refreshResources = false;
-
-				try {
-					provider.delete(new IResource[] { file }, monitor);
-				} catch (TeamException ex) {
-					failed = true;
-					status = ex.getStatus();
-				} finally {
-					provider.refreshResources = true;
-				}
+			DirectoryLocks.Lock lock = provider.directoryLocks.lock(
+					new IResource[] { file.getParent() }, null);
+			boolean refreshing = provider.setRefreshResources(false);
+			try {
+				provider.delete(new IResource[] { file }, monitor);
+			} catch (TeamException ex) {
+				failed = true;
+				status = ex.getStatus();
+			} finally {
+				provider.setRefreshResources(refreshing);
+				lock.release();
 			}
 		}
 
@@ -108,17 +127,18 @@ public class MoveHandler implements IMoveDeleteHook {
 		}
 
 		if (!failed) {
-			synchronized (provider) {
-				provider.refreshResources = false;
-
-				try {
-					provider.delete(new IResource[] { folder }, monitor);
-				} catch (TeamException ex) {
-					failed = true;
-					status = ex.getStatus();
-				} finally {
-					provider.refreshResources = true;
-				}
+			DirectoryLocks.Lock lock = provider.directoryLocks.lock(
+					new IResource[] { folder.getParent() },
+					new IResource[] { folder });
+			boolean refreshing = provider.setRefreshResources(false);
+			try {
+				provider.delete(new IResource[] { folder }, monitor);
+			} catch (TeamException ex) {
+				failed = true;
+				status = ex.getStatus();
+			} finally {
+				provider.setRefreshResources(refreshing);
+				lock.release();
 			}
 		}
 
@@ -169,17 +189,17 @@ public class MoveHandler implements IMoveDeleteHook {
 		}
 
 		if (!failed) {
-			synchronized (provider) {
-				provider.refreshResources = false;
-
-				try {
-					provider.delete(new IResource[] { project }, monitor);
-				} catch (TeamException ex) {
-					failed = true;
-					status = ex.getStatus();
-				} finally {
-					provider.refreshResources = true;
-				}
+			DirectoryLocks.Lock lock = provider.directoryLocks.lock(null,
+					new IResource[] { project });
+			boolean refreshing = provider.setRefreshResources(false);
+			try {
+				provider.delete(new IResource[] { project }, monitor);
+			} catch (TeamException ex) {
+				failed = true;
+				status = ex.getStatus();
+			} finally {
+				provider.setRefreshResources(refreshing);
+				lock.release();
 			}
 		}
 
@@ -236,55 +256,58 @@ public class MoveHandler implements IMoveDeleteHook {
 					| IResource.SHALLOW, monitor);
 			return true;
 		}
-		synchronized (provider) {
-			provider.refreshResources = false;
+		DirectoryLocks.Lock lock = provider.directoryLocks.lock(
+				new IResource[] { source.getParent(),
+						destination.getParent() }, null);
+		boolean refreshing = provider.setRefreshResources(false);
+		MoveBatch moveBatch = beginMove(destination);
+		try {
+			monitor.beginTask("Moving " + source.getName(), 100);
+
+			IStatus status = validateDest(destination,
+					new SubProgressMonitor(monitor, 40));
+
+			if ((IResource.FORCE & updateFlags) != 0
+					&& !tree.isSynchronized(source,
+							IResource.DEPTH_INFINITE)) {
+				status = new Status(IStatus.ERROR, ClearCaseProvider.ID,
+						TeamException.UNABLE, "Tree not synchronized", null);
+			}
 
-			try {
-				monitor.beginTask("Moving " + source.getName(), 100);
+			if (status.getCode() == IStatus.OK
+					&& (IResource.KEEP_HISTORY & updateFlags) != 0) {
+				tree.addToLocalHistory(source);
+			}
 
-				IStatus status = validateDest(destination,
+			if (status.getCode() == IStatus.OK) {
+				status = provider.move(source, destination, moveBatch,
 						new SubProgressMonitor(monitor, 40));
+			}
 
-				if ((IResource.FORCE & updateFlags) != 0
-						&& !tree.isSynchronized(source,
-								IResource.DEPTH_INFINITE)) {
-					status = new Status(IStatus.ERROR, ClearCaseProvider.ID,
-							TeamException.UNABLE, "Tree not synchronized", null);
-				}
-
-				if (status.getCode() == IStatus.OK
-						&& (IResource.KEEP_HISTORY & updateFlags) != 0) {
-					tree.addToLocalHistory(source);
-				}
-
-				if (status.getCode() == IStatus.OK) {
-					status = provider.move(source, destination,
-							new SubProgressMonitor(monitor, 40));
-				}
-
-				if (status.getCode() == IStatus.OK) {
-					tree.movedFile(source, destination);
-					tree.updateMovedFileTimestamp(destination, tree
-							.computeTimestamp(destination));
-				} else {
-					tree.failed(status);
-				}
-
-				//return true;
-			}catch(ClearCaseError e){
-				tree.failed(new Status(
-						IStatus.ERROR,
-						ID,
-						TeamException.UNABLE
-						,"An Error occurred! "+e.getMessage(), e));
-				
-			} finally {
-				provider.refreshResources = true;
-				monitor.done();
+			if (status.getCode() == IStatus.OK) {
+				tree.movedFile(source, destination);
+				tree.updateMovedFileTimestamp(destination, tree
+						.computeTimestamp(destination));
+			} else {
+				tree.failed(status);
 			}
+
+			//return true;
+		}catch(ClearCaseError e){
+			tree.failed(new Status(
+					IStatus.ERROR,
+					ID,
+					TeamException.UNABLE
+					,"An Error occurred! "+e.getMessage(), e));
 			
-			return true;
+		} finally {
+			moveBatch.end();
+			provider.setRefreshResources(refreshing);
+			lock.release();
+			monitor.done();
 		}
+		
+		return true;
 	}
 
 	/*
@@ -300,43 +323,47 @@ public class MoveHandler implements IMoveDeleteHook {
 			return true;
 		}
 
-		synchronized (provider) {
-			provider.refreshResources = false;
-
-			try {
-				monitor.beginTask("Moving " + source.getName(), 100);
+		DirectoryLocks.Lock lock = provider.directoryLocks.lock(
+				new IResource[] { source.getParent(),
+						destination.getParent() }, new IResource[] { source,
+						destination });
+		boolean refreshing = provider.setRefreshResources(false);
+		MoveBatch moveBatch = beginMove(destination);
+		try {
+			monitor.beginTask("Moving " + source.getName(), 100);
+
+			IStatus status = validateDest(destination,
+					new SubProgressMonitor(monitor, 40));
+
+			if ((IResource.FORCE & updateFlags) != 0
+					&& !tree.isSynchronized(source,
+							IResource.DEPTH_INFINITE)) {
+				status = new Status(IStatus.ERROR, ClearCaseProvider.ID,
+						TeamException.UNABLE, "Tree not synchronized", null);
+			}
+			if (status.getCode() == IStatus.OK
+					&& (IResource.KEEP_HISTORY & updateFlags) != 0) {
+				// Have to do this recursively for children?
+				// tree.addToLocalHistory(source);
+			}
 
-				IStatus status = validateDest(destination,
+			if (status.getCode() == IStatus.OK) {
+				status = provider.move(source, destination, moveBatch,
 						new SubProgressMonitor(monitor, 40));
+			}
 
-				if ((IResource.FORCE & updateFlags) != 0
-						&& !tree.isSynchronized(source,
-								IResource.DEPTH_INFINITE)) {
-					status = new Status(IStatus.ERROR, ClearCaseProvider.ID,
-							TeamException.UNABLE, "Tree not synchronized", null);
-				}
-				if (status.getCode() == IStatus.OK
-						&& (IResource.KEEP_HISTORY & updateFlags) != 0) {
-					// Have to do this recursively for children?
-					// tree.addToLocalHistory(source);
-				}
-
-				if (status.getCode() == IStatus.OK) {
-					status = provider.move(source, destination,
-							new SubProgressMonitor(monitor, 40));
-				}
-
-				if (status.getCode() == IStatus.OK) {
-					tree.movedFolderSubtree(source, destination);
-				} else {
-					tree.failed(status);
-				}
-
-				return true;
-			} finally {
-				provider.refreshResources = true;
-				monitor.done();
+			if (status.getCode() == IStatus.OK) {
+				tree.movedFolderSubtree(source, destination);
+			} else {
+				tree.failed(status);
 			}
+
+			return true;
+		} finally {
+			moveBatch.end();
+			provider.setRefreshResources(refreshing);
+			lock.release();
+			monitor.done();
 		}
 	}
 
@@ -49,6 +49,12 @@ public class StateCache implements Serializable {
 
 	String version;
 
+	/**
+	 * the version the current checkout started from, known only for
+	 * checkouts done by this plug-in
+	 */
+	transient String checkedOutFrom;
+
 	StateCache(IResource resource) {
 		if (null == resource)
 			throw new IllegalArgumentException("Resource must not be null!"); //$NON-NLS-1$
@@ -209,8 +215,10 @@ public class StateCache implements Serializable {
 				// resource does not exist in workspace (refresh needed)
 				flags = 0;
 				version = null;
+				checkedOutFrom = null;
 				symbolicLinkTarget = null;
 				updateTimeStamp = IResource.NULL_STAMP;
+				StateCacheFactory.getInstance().updateIndex(this);
 				scheduleRefreshLocal(false);
 				// when resource is added to workspace, a resource change
 				// notification is run, which in turn triggers a state update.
@@ -296,6 +304,9 @@ public class StateCache implements Serializable {
 						if (!newIsSymbolicLink) {
 							// for symlinks the checkout state is calculated
 							// later
+							if (!newIsCheckedOut) {
+								checkedOutFrom = null;
+							}
 							changed |= newIsCheckedOut != this.isCheckedOut();
 							setFlag(CHECKED_OUT, newIsCheckedOut);
 						}
@@ -307,7 +318,8 @@ public class StateCache implements Serializable {
 						changed |= newIsHijacked != this.isHijacked();
 						setFlag(HIJACKED, newIsHijacked);
 
-						boolean newIsEdited = false;
+						boolean newIsEdited = CheckoutIndex.getInstance()
+								.isCheckedOutInOtherView(osPath);
 						changed |= newIsEdited != this.isEdited();
 						setFlag(CHECKED_OUT_OTHER_VIEW, newIsEdited);
 
@@ -331,6 +343,7 @@ public class StateCache implements Serializable {
 					// resource is ignored by Team plug-ins
 					flags = 0;
 					version = null;
+					checkedOutFrom = null;
 					symbolicLinkTarget = null;
 					changed = false;
 					if (ClearCasePlugin.DEBUG_STATE_CACHE) {
@@ -343,6 +356,7 @@ public class StateCache implements Serializable {
 				updateTimeStamp = resource.getModificationStamp();
 			}
 
+			StateCacheFactory.getInstance().updateIndex(this);
 		}
 
 		// fire state change (lock must be released prior)
@@ -486,6 +500,19 @@ public class StateCache implements Serializable {
 		return getFlag(CHECKED_OUT_OTHER_VIEW);
 	}
 
+	/**
+	 * Sets if the resource is edited by someone else.
+	 * 
+	 * @param edited
+	 * @return <code>true</code> if the state changed
+	 */
+	synchronized boolean setEdited(boolean edited) {
+		if (edited == isEdited())
+			return false;
+		setFlag(CHECKED_OUT_OTHER_VIEW, edited);
+		return true;
+	}
+
 	/**
 	 * Returns the osPath.
 	 * 
@@ -510,8 +537,22 @@ public class StateCache implements Serializable {
 	 * @return String
 	 */
 	public String getPredecessorVersion() {
-		String predecessorVersion = ClearCasePlugin.getEngine()
-				.getPreviousVersion(resource.getLocation().toOSString());
+		// the predecessor of a checkout is the version it started from
+		String checkedOutFrom = this.checkedOutFrom;
+		if (null != checkedOutFrom && isCheckedOut())
+			return checkedOutFrom;
+		// the predecessor of a checked in version never changes
+		String key = VersionCache.getKey(osPath, version);
+		String predecessorVersion = null == key ? null : VersionCache
+				.getInstance().getPredecessor(key);
+		if (null == predecessorVersion) {
+			predecessorVersion = ClearCasePlugin.getEngine()
+					.getPreviousVersion(resource.getLocation().toOSString());
+			if (null != key && null != predecessorVersion) {
+				VersionCache.getInstance().putPredecessor(key,
+						predecessorVersion);
+			}
+		}
 		return predecessorVersion;
 	}
 
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -28,8 +29,11 @@ import java.util.Set;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import net.sourceforge.eclipseccase.statistics.ClearCaseStatistics;
+import net.sourceforge.eclipseccase.statistics.FlightRecorder;
 import net.sourceforge.eclipseccase.tools.XMLWriter;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
@@ -73,9 +77,30 @@ public class StateCacheFactory implements ISaveParticipant,
 	/** maps resources to caches */
 	Map<IResource, StateCache> cacheMap = new HashMap<IResource, StateCache>();
 
+	/** the resources by state, for the Checkouts view */
+	private final StateIndex index = new StateIndex();
+
 	/** the listeners */
 	private List<IResourceStateListener> listeners = new ArrayList<IResourceStateListener>();
 
+	/** the time after which the children of a container are prefetched again */
+	private static final long PREFETCH_INTERVAL = 5000;
+
+	/** the maximum number of remembered prefetched containers */
+	private static final int MAX_PREFETCHED = 64;
+
+	/** the containers whose children were prefetched recently */
+	private final Map<IContainer, Long> prefetched = new LinkedHashMap<IContainer, Long>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IContainer, Long> eldest) {
+			return size() > MAX_PREFETCHED;
+		}
+	};
+
 	/**
 	 * Hidden constructor.
 	 */
@@ -229,8 +254,10 @@ public class StateCacheFactory implements ISaveParticipant,
 	 */
 	public synchronized StateCache get(IResource resource) {
 		StateCache cache = getWithNoUpdate(resource);
+		boolean uninitialized = cache.isUninitialized();
+		ClearCaseStatistics.getInstance().recordCacheLookup(!uninitialized);
 		// schedule update if necessary
-		if (isInitialized() && cache.isUninitialized()) {
+		if (isInitialized() && uninitialized) {
 			cache.updateAsync(false);
 		}
 		return cache;
@@ -312,6 +339,31 @@ public class StateCacheFactory implements ISaveParticipant,
 		}
 	}
 
+	/**
+	 * Updates the "checked out in another view" state of all entries from the
+	 * checkout index. Listeners are notified once for all changed entries.
+	 * 
+	 * @param index
+	 */
+	void updateEdited(CheckoutIndex index) {
+		List<StateCache> caches;
+		synchronized (cacheMap) {
+			caches = new ArrayList<StateCache>(cacheMap.values());
+		}
+		operationBegin();
+		try {
+			for (StateCache s : caches) {
+				if (s.isClearCaseElement()
+						&& s.setEdited(index.isCheckedOutInOtherView(s
+								.getPath()))) {
+					fireStateChanged(s.getResource());
+				}
+			}
+		} finally {
+			operationEnd();
+		}
+	}
+
 	/**
 	 * Removes the state cache for the specified resource including all its
 	 * direct and indirect members.
@@ -341,6 +393,10 @@ public class StateCacheFactory implements ISaveParticipant,
 			}
 		}
 		removeSingle(resource);
+		if (resource.getType() != IResource.FILE) {
+			// members of deleted folders can't be visited anymore
+			index.removeTree(resource);
+		}
 	}
 
 	/**
@@ -354,6 +410,43 @@ public class StateCacheFactory implements ISaveParticipant,
 				cacheMap.remove(resource);
 			}
 		}
+		index.remove(resource);
+	}
+
+	/**
+	 * Updates the state index after a state transition of a state cache.
+	 * 
+	 * @param cache
+	 */
+	void updateIndex(StateCache cache) {
+		index.update(cache);
+	}
+
+	/**
+	 * Returns the resources known to be checked out in their view.
+	 * 
+	 * @return the checked out resources
+	 */
+	public IResource[] getCheckedOutResources() {
+		return index.getCheckedOut();
+	}
+
+	/**
+	 * Returns the resources known to be hijacked.
+	 * 
+	 * @return the hijacked resources
+	 */
+	public IResource[] getHijackedResources() {
+		return index.getHijacked();
+	}
+
+	/**
+	 * Returns the resources known to be view-private inside a VOB.
+	 * 
+	 * @return the view-private resources
+	 */
+	public IResource[] getViewPrivateResources() {
+		return index.getViewPrivate();
 	}
 
 	/*
@@ -472,7 +565,7 @@ public class StateCacheFactory implements ISaveParticipant,
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void writeStateCache(OutputStream os) throws IOException {
+	void writeStateCache(OutputStream os) throws IOException {
 
 		// create XML writer
 		XMLWriter writer = new XMLWriter(os);
@@ -518,6 +611,9 @@ public class StateCacheFactory implements ISaveParticipant,
 			writer.startAndEndTag(TAG_RESOURCE, attributes, true);
 		}
 
+		// metadata of versions
+		VersionCache.getInstance().write(writer);
+
 		// finish root TAG
 		writer.endTag(TAG_STATES);
 		writer.flush();
@@ -564,7 +660,7 @@ public class StateCacheFactory implements ISaveParticipant,
 	 * @throws Exception
 	 * @throws CoreException
 	 */
-	private void readStateCache(File stateFile) throws Exception {
+	void readStateCache(File stateFile) throws Exception {
 		if (ClearCasePlugin.DEBUG_STATE_CACHE) {
 			ClearCasePlugin.trace(TRACE_STATECACHEFACTORY,
 					"parsing: " + stateFile.getCanonicalPath()); //$NON-NLS-1$
@@ -628,6 +724,7 @@ public class StateCacheFactory implements ISaveParticipant,
 								synchronized (cacheMap) {
 									cacheMap.put(resource, cache);
 								}
+								index.update(cache);
 
 								// make sure we know the view name for all
 								// cached elements
@@ -647,6 +744,12 @@ public class StateCacheFactory implements ISaveParticipant,
 
 						}
 					}
+				} else if (isCorrectVersion
+						&& VersionCache.TAG_VERSION.equals(qName)) {
+
+					/* version node */
+
+					VersionCache.getInstance().read(attributes);
 				}
 			}
 		};
@@ -668,7 +771,8 @@ public class StateCacheFactory implements ISaveParticipant,
 	 * .eclipse.core.resources.IResourceChangeEvent)
 	 */
 	public void resourceChanged(IResourceChangeEvent event) {
-
+		long start = System.nanoTime();
+		int refreshCount = 0;
 		try {
 			IResourceDelta rootDelta = event.getDelta();
 			if (null != rootDelta) {
@@ -721,6 +825,7 @@ public class StateCacheFactory implements ISaveParticipant,
 					}
 				}
 
+				refreshCount = toRefresh.size();
 				if (!toRefresh.isEmpty()) {
 					refreshStateAsync(toRefresh.toArray(new IResource[toRefresh
 							.size()]));
@@ -730,6 +835,66 @@ public class StateCacheFactory implements ISaveParticipant,
 			ClearCasePlugin.log(IStatus.ERROR,
 					"Unable to do a update of resource", e); //$NON-NLS-1$
 		}
+		FlightRecorder.getInstance().record(FlightRecorder.CATEGORY_DELTA,
+				"resourceChanged", start, refreshCount + " to refresh"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Signals that resources are requested for display. Their pending state
+	 * refreshes are executed before all other refreshes.
+	 * <p>
+	 * The first request for a child of a container also prefetches the
+	 * states of its uninitialized siblings: a folder that is expanded shows
+	 * all of its children, so they are queued right behind the requested
+	 * resource before their own decoration requests arrive.
+	 * </p>
+	 * 
+	 * @param resources
+	 */
+	public void requestedForDisplay(IResource[] resources) {
+		List<StateCache> caches = new ArrayList<StateCache>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (int i = 0; i < resources.length; i++) {
+				IContainer parent = resources[i].getParent();
+				if (null != parent && parent.getType() != IResource.ROOT) {
+					Long last = prefetched.get(parent);
+					if (null == last
+							|| now - last.longValue() > PREFETCH_INTERVAL) {
+						prefetched.put(parent, Long.valueOf(now));
+						addUninitializedMembers(parent, caches);
+					}
+				}
+			}
+			// the requested resources run first
+			for (int i = 0; i < resources.length; i++) {
+				caches.add(getWithNoUpdate(resources[i]));
+			}
+		}
+		getJobQueue().prioritize(caches.toArray(new StateCache[caches.size()]));
+	}
+
+	/**
+	 * Adds the state caches of the uninitialized members of a container, last
+	 * member first (requests for display are executed most recent first).
+	 */
+	private void addUninitializedMembers(IContainer container,
+			List<StateCache> caches) {
+		IResource[] members;
+		try {
+			members = container.members();
+		} catch (CoreException e) {
+			// not accessible any more
+			return;
+		}
+		for (int i = members.length - 1; i >= 0; i--) {
+			if (Team.isIgnoredHint(members[i]))
+				continue;
+			StateCache cache = getWithNoUpdate(members[i]);
+			if (cache.isUninitialized()) {
+				caches.add(cache);
+			}
+		}
 	}
 
 	/**
@@ -765,7 +930,7 @@ public class StateCacheFactory implements ISaveParticipant,
 		for (int i = 0; i < resources.length; i++) {
 			StateCache cache = StateCacheFactory.getInstance().getWithNoUpdate(
 					resources[i]);
-			jobs[i] = new StateCacheJob(cache);
+			jobs[i] = new StateCacheJob(cache, priority);
 		}
 		getJobQueue().schedule(jobs);
 	}
@@ -29,12 +29,21 @@ class StateCacheJob implements Comparable<StateCacheJob> {
 	/** high priority */
 	static final int PRIORITY_HIGH = 1000;
 
+	/**
+	 * priority of resources requested for display, these are executed before
+	 * all others (see {@link StateCacheJobQueue#prioritize(StateCache[])})
+	 */
+	static final int PRIORITY_VISIBLE = 2000;
+
 	/** the state cache to refresh */
 	private StateCache stateCache;
 
 	/** the priority (higher value means higher priority) */
 	private int priority;
 
+	/** the time this job was queued (see {@link System#nanoTime()}) */
+	private long queuedTime;
+
 	/**
 	 * Creates a new job with default priority.
 	 * 
@@ -103,6 +112,22 @@ class StateCacheJob implements Comparable<StateCacheJob> {
 		return priority;
 	}
 
+	/**
+	 * Remembers the time this job was put into the queue.
+	 */
+	void markQueued() {
+		queuedTime = System.nanoTime();
+	}
+
+	/**
+	 * Returns how long this job is waiting in the queue.
+	 * 
+	 * @return the waiting time in nano seconds
+	 */
+	long getQueuedNanos() {
+		return System.nanoTime() - queuedTime;
+	}
+
 	/**
 	 * Executes this job
 	 * <p>
@@ -161,6 +186,7 @@ class StateCacheJob implements Comparable<StateCacheJob> {
 	 *            the priority
 	 * @see #PRIORITY_DEFAULT
 	 * @see #PRIORITY_HIGH
+	 * @see #PRIORITY_VISIBLE
 	 */
 	public void schedule(int jobPriority) {
 		priority = jobPriority;
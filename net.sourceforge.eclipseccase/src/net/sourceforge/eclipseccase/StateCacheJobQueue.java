@@ -13,6 +13,14 @@
 
 package net.sourceforge.eclipseccase;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
+import net.sourceforge.eclipseccase.statistics.ClearCaseStatistics;
+import net.sourceforge.eclipseccase.statistics.FlightRecorder;
+
 import org.apache.commons.collections.buffer.PriorityBuffer;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -39,17 +47,37 @@ class StateCacheJobQueue extends Job {
 	/** the default delay */
 	private static final int DEFAULT_DELAY = 150;
 
+	/**
+	 * the time after which a resource requested for display is refreshed with
+	 * default priority again (nano seconds)
+	 */
+	private static final long VISIBLE_TIMEOUT = 5000000000L;
+
 	private static final String TRACE_ID = "JobQueue"; //$NON-NLS-1$
 
-	/** the priority buffer */
+	/** the priority buffer, also the lock for the queued jobs */
 	private PriorityBuffer queue;
 
+	/** the jobs of resources requested for display, most recent first */
+	private final LinkedList<StateCacheJob> visible = new LinkedList<StateCacheJob>();
+
+	/**
+	 * the job to execute for each state cache; jobs in the buffer or the
+	 * visible list that are not in this map have been replaced and are
+	 * skipped
+	 */
+	private final Map<StateCache, StateCacheJob> queued = new HashMap<StateCache, StateCacheJob>();
+
 	/** the interrupted state */
 	private boolean interrupted = false;
 
 	/** the job manager */
 	private final IJobManager jobManager = Job.getJobManager();
 
+	/** the runtime statistics */
+	private final ClearCaseStatistics statistics = ClearCaseStatistics
+			.getInstance();
+
 	/** the system bundle */
 	private final Bundle systemBundle = Platform.getBundle("org.eclipse.osgi"); //$NON-NLS-1$
 
@@ -112,7 +140,7 @@ class StateCacheJobQueue extends Job {
 		}
 		// if we have items left in the queue, reschedule a run
 		synchronized (queue) {
-			if (!queue.isEmpty()) {
+			if (!queued.isEmpty()) {
 				if (ClearCasePlugin.DEBUG_UPDATE_QUEUE) {
 					ClearCasePlugin.trace(TRACE_ID, "run(): reschedule");
 				}
@@ -138,17 +166,17 @@ class StateCacheJobQueue extends Job {
 			throws CoreException, OperationCanceledException {
 
 		try {
-			monitor.beginTask(MESSAGE_QUEUE_NAME, queue.size());
+			monitor.beginTask(MESSAGE_QUEUE_NAME, queued.size());
 
 			// break from time to time to give time for UI update
 			// seems to make no difference? -> disable (use 50000)
 			int doneCnt = 0;
 
-			while (!queue.isEmpty() && doneCnt < 50000) {
+			while (!queued.isEmpty() && doneCnt < 50000) {
 
 				if (ClearCasePlugin.DEBUG_UPDATE_QUEUE) {
 					ClearCasePlugin.trace(TRACE_ID, "executePendingJobs: "
-							+ queue.size());
+							+ queued.size());
 				}
 				checkCanceled(monitor);
 
@@ -156,9 +184,8 @@ class StateCacheJobQueue extends Job {
 
 				// synchronize on the buffer but execute job outside lock
 				synchronized (queue) {
-					if (!queue.isEmpty()) {
-						job = (StateCacheJob) queue.remove();
-					}
+					job = next();
+					statistics.recordQueueDepth(queued.size());
 				}
 
 				// check if buffer was empty
@@ -166,6 +193,8 @@ class StateCacheJobQueue extends Job {
 					break;
 				}
 
+				statistics.recordQueueWait(job.getQueuedNanos());
+
 				// execute job
 				if (null != job.getStateCache().getResource()) {
 					if (ClearCasePlugin.DEBUG_UPDATE_QUEUE) {
@@ -176,7 +205,15 @@ class StateCacheJobQueue extends Job {
 					monitor.subTask(Messages
 							.getString("StateCacheJobQueue.task.refresh") //$NON-NLS-1$
 							+ job.getStateCache().getResource().getFullPath());
-					job.execute(new SubProgressMonitor(monitor, 1));
+					long start = System.nanoTime();
+					try {
+						job.execute(new SubProgressMonitor(monitor, 1));
+					} finally {
+						FlightRecorder.getInstance().record(
+								FlightRecorder.CATEGORY_STATE_CACHE,
+								"refresh", start, job.getStateCache() //$NON-NLS-1$
+										.getPath());
+					}
 					doneCnt++;
 				}
 			}
@@ -188,6 +225,60 @@ class StateCacheJobQueue extends Job {
 		}
 	}
 
+	/**
+	 * Removes the next job to execute. Resources requested for display come
+	 * first, the most recently requested one first. Requests that are too old
+	 * are moved back to the buffer with default priority, the user is not
+	 * looking at these resources any more.
+	 * <p>
+	 * The caller must hold the lock.
+	 * </p>
+	 * 
+	 * @return the job or <code>null</code> if there is none
+	 */
+	private StateCacheJob next() {
+		while (!visible.isEmpty()) {
+			StateCacheJob job = visible.removeFirst();
+			if (queued.get(job.getStateCache()) != job)
+				continue;
+			if (job.getQueuedNanos() > VISIBLE_TIMEOUT) {
+				// all remaining requests are older
+				visible.addFirst(job);
+				demoteVisible();
+				break;
+			}
+			queued.remove(job.getStateCache());
+			return job;
+		}
+		while (!queue.isEmpty()) {
+			StateCacheJob job = (StateCacheJob) queue.remove();
+			if (queued.get(job.getStateCache()) == job) {
+				queued.remove(job.getStateCache());
+				return job;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Moves all requests for display back to the buffer with default
+	 * priority. The caller must hold the lock.
+	 */
+	private void demoteVisible() {
+		for (StateCacheJob job : visible) {
+			if (queued.get(job.getStateCache()) == job) {
+				StateCacheJob demoted = new StateCacheJob(job.getStateCache());
+				demoted.markQueued();
+				queued.put(demoted.getStateCache(), demoted);
+				queue.add(demoted);
+			}
+		}
+		if (ClearCasePlugin.DEBUG_UPDATE_QUEUE) {
+			ClearCasePlugin.trace(TRACE_ID, "demoted " + visible.size()); //$NON-NLS-1$
+		}
+		visible.clear();
+	}
+
 	/**
 	 * Cancel the update if the user has canceled or if an update has been
 	 * interrupted.
@@ -237,7 +328,7 @@ class StateCacheJobQueue extends Job {
 
 			for (int i = 0; i < jobs.length; i++) {
 				StateCacheJob job = jobs[i];
-				if (queue.contains(job)) {
+				if (queued.containsKey(job.getStateCache())) {
 					if (ClearCasePlugin.DEBUG_UPDATE_QUEUE) {
 						ClearCasePlugin.trace(TRACE_ID,
 								"schedule: already in queue "
@@ -249,8 +340,9 @@ class StateCacheJobQueue extends Job {
 							ClearCasePlugin.trace(TRACE_ID,
 									"schedule: remove+add ");
 						}
-						// reschedule
-						queue.remove(job);
+						// reschedule, the queued job is skipped
+						job.markQueued();
+						queued.put(job.getStateCache(), job);
 						queue.add(job);
 						doSchedule = true;
 					}
@@ -260,10 +352,13 @@ class StateCacheJobQueue extends Job {
 								+ job.getStateCache().getPath());
 					}
 
+					job.markQueued();
+					queued.put(job.getStateCache(), job);
 					queue.add(job);
 					doSchedule = true;
 				}
 			}
+			statistics.recordQueueDepth(queued.size());
 		}
 
 		// schedule a queue "run"
@@ -274,6 +369,48 @@ class StateCacheJobQueue extends Job {
 		}
 	}
 
+	/**
+	 * Moves the queued refreshes of resources requested for display in front
+	 * of all other refreshes, so visible resources don't wait for a
+	 * background refresh of a whole project. Resources without a queued
+	 * refresh are refreshed only if their state is not known yet.
+	 * 
+	 * @param caches
+	 *            the state caches of the displayed resources
+	 */
+	public void prioritize(StateCache[] caches) {
+		boolean doSchedule = false;
+		synchronized (queue) {
+			for (int i = 0; i < caches.length; i++) {
+				StateCacheJob existing = queued.get(caches[i]);
+				if (null == existing && !caches[i].isUninitialized())
+					continue;
+				if (null != existing
+						&& StateCacheJob.PRIORITY_VISIBLE == existing
+								.getPriority()) {
+					// requested again, move to the front
+					for (Iterator<StateCacheJob> j = visible.iterator(); j
+							.hasNext();) {
+						if (j.next() == existing) {
+							j.remove();
+							break;
+						}
+					}
+				}
+				StateCacheJob job = new StateCacheJob(caches[i],
+						StateCacheJob.PRIORITY_VISIBLE);
+				job.markQueued();
+				queued.put(caches[i], job);
+				visible.addFirst(job);
+				doSchedule = true;
+			}
+		}
+		// the running queue picks the jobs up with its next job
+		if (doSchedule && getState() != RUNNING) {
+			scheduleQueueRun();
+		}
+	}
+
 	/**
 	 * Schedules this queue job.
 	 */
@@ -336,6 +473,9 @@ class StateCacheJobQueue extends Job {
 		if (clean) {
 			synchronized (queue) {
 				queue.clear();
+				visible.clear();
+				queued.clear();
+				statistics.recordQueueDepth(0);
 			}
 		}
 		return canceled;
@@ -394,6 +534,6 @@ class StateCacheJobQueue extends Job {
 	 */
 	public boolean isEmpty() {
 		// do not synchronize
-		return queue.isEmpty();
+		return queued.isEmpty();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Indexes the state caches by the states shown in the Checkouts view, so the
+ * checked out, hijacked and view-private resources can be listed without
+ * visiting every state cache.
+ * <p>
+ * The index is updated by the state cache on every state transition.
+ * </p>
+ */
+class StateIndex {
+
+	private final ConcurrentHashMap<IResource, Boolean> checkedOut = new ConcurrentHashMap<IResource, Boolean>();
+
+	private final ConcurrentHashMap<IResource, Boolean> hijacked = new ConcurrentHashMap<IResource, Boolean>();
+
+	private final ConcurrentHashMap<IResource, Boolean> viewPrivate = new ConcurrentHashMap<IResource, Boolean>();
+
+	/**
+	 * Updates the index from the current state of a state cache.
+	 *
+	 * @param cache
+	 */
+	void update(StateCache cache) {
+		IResource resource = cache.getResource();
+		if (null == resource)
+			return;
+		update(checkedOut, resource, cache.isCheckedOut());
+		update(hijacked, resource, cache.isHijacked());
+		update(viewPrivate, resource, cache.isViewprivate());
+	}
+
+	/**
+	 * Removes a resource from the index.
+	 *
+	 * @param resource
+	 */
+	void remove(IResource resource) {
+		checkedOut.remove(resource);
+		hijacked.remove(resource);
+		viewPrivate.remove(resource);
+	}
+
+	/**
+	 * Removes a resource and all resources below it from the index. The
+	 * resources are matched by their path, so this works for deleted folders,
+	 * too.
+	 *
+	 * @param resource
+	 */
+	void removeTree(IResource resource) {
+		IPath path = resource.getFullPath();
+		removeTree(checkedOut, path);
+		removeTree(hijacked, path);
+		removeTree(viewPrivate, path);
+	}
+
+	/**
+	 * Returns the checked out resources.
+	 *
+	 * @return a snapshot of the checked out resources
+	 */
+	IResource[] getCheckedOut() {
+		return toArray(checkedOut.keySet());
+	}
+
+	/**
+	 * Returns the hijacked resources.
+	 *
+	 * @return a snapshot of the hijacked resources
+	 */
+	IResource[] getHijacked() {
+		return toArray(hijacked.keySet());
+	}
+
+	/**
+	 * Returns the view-private resources inside the VOBs.
+	 *
+	 * @return a snapshot of the view-private resources
+	 */
+	IResource[] getViewPrivate() {
+		return toArray(viewPrivate.keySet());
+	}
+
+	private static void update(ConcurrentHashMap<IResource, Boolean> index,
+			IResource resource, boolean contained) {
+		if (contained) {
+			index.put(resource, Boolean.TRUE);
+		} else {
+			index.remove(resource);
+		}
+	}
+
+	private static void removeTree(
+			ConcurrentHashMap<IResource, Boolean> index, IPath path) {
+		for (Iterator<IResource> i = index.keySet().iterator(); i.hasNext();) {
+			if (path.isPrefixOf(i.next().getFullPath())) {
+				i.remove();
+			}
+		}
+	}
+
+	private static IResource[] toArray(Set<IResource> resources) {
+		// the set may change while copying
+		return resources.toArray(new IResource[0]);
+	}
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.eclipseccase.tools.XMLWriter;
+
+import org.xml.sax.Attributes;
+
+/**
+ * Caches the metadata of checked in versions, which never changes: the
+ * predecessor version, the version comment and the content hash.
+ * <p>
+ * Entries are keyed by the version extended path (<code>path@@version</code>)
+ * and filled lazily. The least recently used entries are evicted when the
+ * cache is full. The cache is persisted together with the state cache.
+ * Checked out versions are never cached, their metadata may still change.
+ * </p>
+ */
+class VersionCache {
+
+	/** the maximum number of cached versions */
+	static final int MAX_ENTRIES = 5000;
+
+	/** xml element name */
+	static final String TAG_VERSION = "versionInfo"; //$NON-NLS-1$
+
+	/** xml attribute name */
+	static final String ATTR_KEY = "key"; //$NON-NLS-1$
+
+	/** xml attribute name */
+	static final String ATTR_PREDECESSOR = "predecessor"; //$NON-NLS-1$
+
+	/** xml attribute name */
+	static final String ATTR_COMMENT = "comment"; //$NON-NLS-1$
+
+	/** xml attribute name */
+	static final String ATTR_HASH = "hash"; //$NON-NLS-1$
+
+	private static final String CHECKEDOUT = "CHECKEDOUT"; //$NON-NLS-1$
+
+	/**
+	 * The metadata of a version, <code>null</code> fields are not known yet.
+	 */
+	private static final class Entry {
+
+		String predecessor;
+
+		String comment;
+
+		String hash;
+	}
+
+	private static final VersionCache instance = new VersionCache();
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(
+			64, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private VersionCache() {
+		// singleton
+	}
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return the shared instance
+	 */
+	static VersionCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the key of a version.
+	 *
+	 * @param path
+	 *            the element path (maybe <code>null</code>)
+	 * @param version
+	 *            the version (maybe <code>null</code>)
+	 * @return the key or <code>null</code> if the version must not be cached
+	 */
+	static String getKey(String path, String version) {
+		if (path == null || version == null || version.length() == 0
+				|| version.indexOf(CHECKEDOUT) >= 0)
+			return null;
+		return path + "@@" + version; //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the cached predecessor of a version.
+	 *
+	 * @param key
+	 * @return the predecessor (<code>null</code> if not cached)
+	 */
+	synchronized String getPredecessor(String key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.predecessor;
+	}
+
+	/**
+	 * Caches the predecessor of a version.
+	 *
+	 * @param key
+	 * @param predecessor
+	 */
+	synchronized void putPredecessor(String key, String predecessor) {
+		getEntry(key).predecessor = predecessor;
+	}
+
+	/**
+	 * Returns the cached comment of a version.
+	 *
+	 * @param key
+	 * @return the comment (<code>null</code> if not cached)
+	 */
+	synchronized String getComment(String key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.comment;
+	}
+
+	/**
+	 * Caches the comment of a version.
+	 *
+	 * @param key
+	 * @param comment
+	 */
+	synchronized void putComment(String key, String comment) {
+		getEntry(key).comment = comment;
+	}
+
+	/**
+	 * Returns the cached content hash of a version.
+	 *
+	 * @param key
+	 * @return the hash (<code>null</code> if not cached)
+	 */
+	synchronized String getHash(String key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.hash;
+	}
+
+	/**
+	 * Caches the content hash of a version.
+	 *
+	 * @param key
+	 * @param hash
+	 */
+	synchronized void putHash(String key, String hash) {
+		getEntry(key).hash = hash;
+	}
+
+	private Entry getEntry(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(key, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Writes all entries, least recently used first.
+	 *
+	 * @param writer
+	 */
+	void write(XMLWriter writer) {
+		List<Map.Entry<String, Entry>> snapshot;
+		synchronized (this) {
+			snapshot = new ArrayList<Map.Entry<String, Entry>>(entries
+					.entrySet());
+		}
+		for (Map.Entry<String, Entry> entry : snapshot) {
+			HashMap<String, String> attributes = new HashMap<String, String>(4);
+			attributes.put(ATTR_KEY, entry.getKey());
+			if (null != entry.getValue().predecessor) {
+				attributes.put(ATTR_PREDECESSOR, entry.getValue().predecessor);
+			}
+			if (null != entry.getValue().comment) {
+				attributes.put(ATTR_COMMENT, entry.getValue().comment);
+			}
+			if (null != entry.getValue().hash) {
+				attributes.put(ATTR_HASH, entry.getValue().hash);
+			}
+			writer.startAndEndTag(TAG_VERSION, attributes, true);
+		}
+	}
+
+	/**
+	 * Restores an entry written by {@link #write(XMLWriter)}.
+	 *
+	 * @param attributes
+	 */
+	synchronized void read(Attributes attributes) {
+		String key = attributes.getValue(ATTR_KEY);
+		if (key == null)
+			return;
+		Entry entry = getEntry(key);
+		entry.predecessor = attributes.getValue(ATTR_PREDECESSOR);
+		entry.comment = attributes.getValue(ATTR_COMMENT);
+		entry.hash = attributes.getValue(ATTR_HASH);
+	}
+}
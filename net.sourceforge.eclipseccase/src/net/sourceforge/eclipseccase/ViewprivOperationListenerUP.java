@@ -0,0 +1,51 @@
+/**
+ * 
+ */
+package net.sourceforge.eclipseccase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Analyse the output lines of a "cleartool update -print" to gather elements
+ * of a snapshot view that are not loaded at the version selected by the
+ * config spec.
+ */
+public class ViewprivOperationListenerUP extends ViewprivOperationListener {
+
+	/** the paths relative to the view root, with '/' as separator */
+	private final Set<String> outdated = new HashSet<String>();
+
+	public ViewprivOperationListenerUP(String prefix, IProgressMonitor monitor) {
+		super(prefix, monitor);
+	}
+
+	@Override
+	protected void analyseLine(String line) {
+		if (!line.startsWith("Loading ")) {
+			return;
+		}
+		String filename = line.replaceFirst("^.*?\"(.*?)\".*", "$1");
+		outdated.add(filename.replace('\\', '/'));
+	}
+
+	/**
+	 * Indicates if an element would be loaded by an update.
+	 * 
+	 * @param path
+	 *            the absolute path of the element
+	 * @return <code>true</code> if the element is outdated
+	 */
+	public boolean isOutdated(String path) {
+		// the output is relative to the view root, compare from the end
+		String normalized = path.replace('\\', '/');
+		for (int slash = normalized.indexOf('/'); slash >= 0; slash = normalized
+				.indexOf('/', slash + 1)) {
+			if (outdated.contains(normalized.substring(slash + 1)))
+				return true;
+		}
+		return false;
+	}
+}
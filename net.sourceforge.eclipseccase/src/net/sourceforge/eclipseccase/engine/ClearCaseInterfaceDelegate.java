@@ -0,0 +1,601 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Vector;
+
+import net.sourceforge.clearcase.ClearCaseElementState;
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.clearcase.ElementHistory;
+import net.sourceforge.clearcase.MergeData;
+import net.sourceforge.clearcase.events.OperationListener;
+
+/**
+ * A ClearCase engine that forwards every call to another engine.
+ * <p>
+ * Each call is bracketed by {@link #beginCall(String, Object[])} and
+ * {@link #endCall(Object, Object)} (or {@link #failCall(Object, RuntimeException)}
+ * if the engine throws). Subclasses override these hooks to observe the
+ * traffic to the engine without having to re-implement the whole interface.
+ * </p>
+ */
+public class ClearCaseInterfaceDelegate extends ClearCaseInterface {
+
+	/** the engine doing the real work */
+	private final ClearCaseInterface delegate;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param delegate
+	 *            the engine all calls are forwarded to
+	 */
+	public ClearCaseInterfaceDelegate(ClearCaseInterface delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Returns the engine all calls are forwarded to.
+	 *
+	 * @return the delegate
+	 */
+	public ClearCaseInterface getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Called before a call is forwarded to the delegate.
+	 *
+	 * @param command
+	 *            the name of the engine method
+	 * @param args
+	 *            the call arguments
+	 * @return an object identifying the call, passed to the end hooks (maybe
+	 *         <code>null</code>)
+	 */
+	protected Object beginCall(String command, Object[] args) {
+		return null;
+	}
+
+	/**
+	 * Called after the delegate returned.
+	 *
+	 * @param call
+	 *            the object returned by {@link #beginCall(String, Object[])}
+	 * @param result
+	 *            the result (<code>null</code> for void methods)
+	 * @return the result to pass on to the caller
+	 */
+	protected <T> T endCall(Object call, T result) {
+		return result;
+	}
+
+	/**
+	 * Called if the delegate threw an exception.
+	 *
+	 * @param call
+	 *            the object returned by {@link #beginCall(String, Object[])}
+	 * @param e
+	 *            the exception
+	 * @return the exception to throw
+	 */
+	protected RuntimeException failCall(Object call, RuntimeException e) {
+		return e;
+	}
+
+	/**
+	 * Allows subclasses to observe the output of a call.
+	 *
+	 * @param call
+	 *            the object returned by {@link #beginCall(String, Object[])}
+	 * @param listener
+	 *            the listener given by the caller (maybe <code>null</code>)
+	 * @return the listener to pass on to the delegate
+	 */
+	protected OperationListener wrapListener(Object call,
+			OperationListener listener) {
+		return listener;
+	}
+
+	@Override
+	public ClearCaseElementState add(String element, boolean isDirectory,
+			String comment, int flags, OperationListener operationListener) {
+		Object call = beginCall("add", new Object[] { element, //$NON-NLS-1$
+				Boolean.valueOf(isDirectory), comment, Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.add(element, isDirectory, comment,
+					flags, wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] checkin(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		Object call = beginCall("checkin", new Object[] { elements, comment, //$NON-NLS-1$
+				Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.checkin(elements, comment, flags,
+					wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] checkout(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		Object call = beginCall("checkout", new Object[] { elements, comment, //$NON-NLS-1$
+				Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.checkout(elements, comment, flags,
+					wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] uncheckout(String[] elements, int flags,
+			OperationListener operationListener) {
+		Object call = beginCall("uncheckout", new Object[] { elements, //$NON-NLS-1$
+				Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.uncheckout(elements, flags,
+					wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] delete(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		Object call = beginCall("delete", new Object[] { elements, comment, //$NON-NLS-1$
+				Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.delete(elements, comment, flags,
+					wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] move(String element, String target,
+			String comment, int flags, OperationListener operationListener) {
+		Object call = beginCall("move", new Object[] { element, target, //$NON-NLS-1$
+				comment, Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.move(element, target, comment,
+					flags, wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] unreserved(String[] elements,
+			String comment, int flags, OperationListener operationListener) {
+		Object call = beginCall("unreserved", new Object[] { elements, //$NON-NLS-1$
+				comment, Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.unreserved(elements, comment, flags,
+					wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] reserved(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		Object call = beginCall("reserved", new Object[] { elements, comment, //$NON-NLS-1$
+				Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.reserved(elements, comment, flags,
+					wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] requestMastership(String element,
+			String comment, int flags) {
+		Object call = beginCall("requestMastership", new Object[] { element, //$NON-NLS-1$
+				comment, Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.requestMastership(element, comment,
+					flags));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState getElementState(String element) {
+		Object call = beginCall("getElementState", new Object[] { element }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getElementState(element));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String getPreviousVersion(String element) {
+		Object call = beginCall("getPreviousVersion", new Object[] { element }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getPreviousVersion(element));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String[] describe(String element, int flags, String format) {
+		Object call = beginCall("describe", new Object[] { element, //$NON-NLS-1$
+				Integer.valueOf(flags), format });
+		try {
+			return endCall(call, delegate.describe(element, flags, format));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String[] findCheckouts(int flags, HashMap<Integer, String> args,
+			String[] elements) {
+		Object call = beginCall("findCheckouts", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), args, elements });
+		try {
+			return endCall(call, delegate.findCheckouts(flags, args, elements));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public Vector<MergeData> findMerge(String element, String branch) {
+		Object call = beginCall("findMerge", new Object[] { element, branch }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.findMerge(element, branch));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState merge(String targetPath, String[] fromVersions,
+			String baseVersion, int flags) {
+		Object call = beginCall("merge", new Object[] { targetPath, //$NON-NLS-1$
+				fromVersions, baseVersion, Integer.valueOf(flags) });
+		try {
+			return endCall(call, delegate.merge(targetPath, fromVersions,
+					baseVersion, flags));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void update(String element, int flags, boolean workingDir) {
+		Object call = beginCall("update", new Object[] { element, //$NON-NLS-1$
+				Integer.valueOf(flags), Boolean.valueOf(workingDir) });
+		try {
+			delegate.update(element, flags, workingDir);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void get(int flags, HashMap<Integer, String> args, String version) {
+		Object call = beginCall("get", new Object[] { Integer.valueOf(flags), //$NON-NLS-1$
+				args, version });
+		try {
+			delegate.get(flags, args, version);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void setGroup(String element, String group,
+			OperationListener operationListener) {
+		Object call = beginCall("setGroup", new Object[] { element, group }); //$NON-NLS-1$
+		try {
+			delegate.setGroup(element, group, wrapListener(call,
+					operationListener));
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public boolean isDifferent(String element) {
+		Object call = beginCall("isDifferent", new Object[] { element }); //$NON-NLS-1$
+		try {
+			return endCall(call, Boolean.valueOf(delegate.isDifferent(element)))
+					.booleanValue();
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public Vector<ElementHistory> getElementHistory(String element) {
+		Object call = beginCall("getElementHistory", new Object[] { element }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getElementHistory(element));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String getViewName(String element) {
+		Object call = beginCall("getViewName", new Object[] { element }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getViewName(element));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String getViewType(String viewName) {
+		Object call = beginCall("getViewType", new Object[] { viewName }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getViewType(viewName));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String getViewLocation() {
+		Object call = beginCall("getViewLocation", new Object[0]); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getViewLocation());
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String getViewRoot(String element) {
+		Object call = beginCall("getViewRoot", new Object[] { element }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getViewRoot(element));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String getViewConfigSpec(String viewName) {
+		Object call = beginCall("getViewConfigSpec", new Object[] { viewName }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.getViewConfigSpec(viewName));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void setViewConfigSpec(String viewName, String configSpecFile,
+			String workingDir, OperationListener operationListener) {
+		Object call = beginCall("setViewConfigSpec", new Object[] { viewName, //$NON-NLS-1$
+				configSpecFile, workingDir });
+		try {
+			delegate.setViewConfigSpec(viewName, configSpecFile, workingDir,
+					wrapListener(call, operationListener));
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void getCheckedOutElements(String path, boolean isSnapshot,
+			OperationListener operationListener) {
+		Object call = beginCall("getCheckedOutElements", new Object[] { path, //$NON-NLS-1$
+				Boolean.valueOf(isSnapshot) });
+		try {
+			delegate.getCheckedOutElements(path, isSnapshot, wrapListener(call,
+					operationListener));
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void getViewLSPrivateList(String path,
+			OperationListener operationListener) {
+		Object call = beginCall("getViewLSPrivateList", new Object[] { path }); //$NON-NLS-1$
+		try {
+			delegate.getViewLSPrivateList(path, wrapListener(call,
+					operationListener));
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void getViewLSViewOnlyList(String path,
+			OperationListener operationListener) {
+		Object call = beginCall("getViewLSViewOnlyList", new Object[] { path }); //$NON-NLS-1$
+		try {
+			delegate.getViewLSViewOnlyList(path, wrapListener(call,
+					operationListener));
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void getUpdateList(String path, OperationListener operationListener) {
+		Object call = beginCall("getUpdateList", new Object[] { path }); //$NON-NLS-1$
+		try {
+			delegate.getUpdateList(path, wrapListener(call, operationListener));
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String[] getActivity(int flags, HashMap<Integer, String> args) {
+		Object call = beginCall("getActivity", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), args });
+		try {
+			return endCall(call, delegate.getActivity(flags, args));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] setActivity(int flags, String activity,
+			String viewName) {
+		Object call = beginCall("setActivity", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), activity, viewName });
+		try {
+			return endCall(call, delegate.setActivity(flags, activity,
+					viewName));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] mkActivity(int flags, String headline,
+			String activitySelector, String path) {
+		Object call = beginCall("mkActivity", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), headline, activitySelector, path });
+		try {
+			return endCall(call, delegate.mkActivity(flags, headline,
+					activitySelector, path));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String[] getStream(int flags, HashMap<Integer, String> args) {
+		Object call = beginCall("getStream", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), args });
+		try {
+			return endCall(call, delegate.getStream(flags, args));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String[] loadBrancheList(File workingDir) {
+		Object call = beginCall("loadBrancheList", new Object[] { workingDir }); //$NON-NLS-1$
+		try {
+			return endCall(call, delegate.loadBrancheList(workingDir));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public String[] searchFilesInBranch(String branchName, File workingDir,
+			OperationListener operationListener) {
+		Object call = beginCall("searchFilesInBranch", new Object[] { //$NON-NLS-1$
+				branchName, workingDir });
+		try {
+			return endCall(call, delegate.searchFilesInBranch(branchName,
+					workingDir, wrapListener(call, operationListener)));
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void showVersionTree(String element, File workingDir) {
+		Object call = beginCall("showVersionTree", new Object[] { element, //$NON-NLS-1$
+				workingDir });
+		try {
+			delegate.showVersionTree(element, workingDir);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void showFindMerge(File workingDir) {
+		Object call = beginCall("showFindMerge", new Object[] { workingDir }); //$NON-NLS-1$
+		try {
+			delegate.showFindMerge(workingDir);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void compareWithPredecessor(String element) {
+		Object call = beginCall("compareWithPredecessor", //$NON-NLS-1$
+				new Object[] { element });
+		try {
+			delegate.compareWithPredecessor(element);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void compareWithVersion(String element1, String element2) {
+		Object call = beginCall("compareWithVersion", new Object[] { element1, //$NON-NLS-1$
+				element2 });
+		try {
+			delegate.compareWithVersion(element1, element2);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void describeVersionGUI(String element) {
+		Object call = beginCall("describeVersionGUI", new Object[] { element }); //$NON-NLS-1$
+		try {
+			delegate.describeVersionGUI(element);
+			endCall(call, null);
+		} catch (RuntimeException e) {
+			throw failCall(call, e);
+		}
+	}
+
+	@Override
+	public void setDebugLevel(int level) {
+		delegate.setDebugLevel(level);
+	}
+
+	@Override
+	public void dispose() {
+		delegate.dispose();
+	}
+}
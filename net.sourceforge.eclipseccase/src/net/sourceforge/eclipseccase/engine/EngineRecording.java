@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import net.sourceforge.clearcase.ClearCaseElementState;
+
+/**
+ * The file format of recorded engine traffic.
+ * <p>
+ * A recording is a UTF-8 text file with one block per engine call:
+ * </p>
+ *
+ * <pre>
+ * call &lt;command&gt; &lt;start offset us&gt; &lt;duration us&gt;
+ * arg &lt;value&gt;
+ * out print|err|info &lt;line&gt;
+ * result &lt;value&gt;          (or: error &lt;code&gt; &lt;message&gt;)
+ * end
+ * </pre>
+ * <p>
+ * Values are typed by a one letter prefix (<code>s:</code> string,
+ * <code>i:</code> integer, <code>b:</code> boolean, <code>S:</code> string
+ * array, <code>E:</code> element state, <code>A:</code> element state array,
+ * <code>M:</code> argument map, <code>F:</code> file, <code>V:</code> vector,
+ * <code>-</code> null). Vectors of merge data and history entries are only
+ * recorded by size and replayed empty.
+ * </p>
+ */
+public class EngineRecording {
+
+	/** the first line of every recording */
+	public static final String HEADER = "# eclipse-ccase engine recording 1"; //$NON-NLS-1$
+
+	/** output line kind */
+	public static final String OUT_PRINT = "print"; //$NON-NLS-1$
+
+	/** output line kind */
+	public static final String OUT_ERR = "err"; //$NON-NLS-1$
+
+	/** output line kind */
+	public static final String OUT_INFO = "info"; //$NON-NLS-1$
+
+	private static final String NULL = "-"; //$NON-NLS-1$
+
+	private static final String ESCAPED_NULL = "\\0"; //$NON-NLS-1$
+
+	/**
+	 * A recorded engine call.
+	 */
+	public static final class Record {
+
+		String command;
+
+		long startMicros;
+
+		long durationMicros;
+
+		final List<String> args = new ArrayList<String>();
+
+		final List<String[]> output = new ArrayList<String[]>();
+
+		/** the encoded result, <code>null</code> for void calls */
+		String result;
+
+		/** the error code if the call failed */
+		int errorCode;
+
+		String errorMessage;
+
+		boolean failed;
+
+		boolean replayed;
+
+		public String getCommand() {
+			return command;
+		}
+
+		public long getDurationMicros() {
+			return durationMicros;
+		}
+
+		/**
+		 * Returns the key used to match a call during replay.
+		 *
+		 * @return the command and the encoded arguments
+		 */
+		String getKey() {
+			StringBuffer key = new StringBuffer(command);
+			for (String arg : args) {
+				key.append('\n').append(arg);
+			}
+			return key.toString();
+		}
+
+		/**
+		 * Writes this record.
+		 *
+		 * @param writer
+		 * @throws IOException
+		 */
+		void write(Writer writer) throws IOException {
+			writer.write("call " + command + " " + startMicros + " " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ durationMicros + "\n"); //$NON-NLS-1$
+			for (String arg : args) {
+				writer.write("arg " + arg + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			for (String[] line : output) {
+				writer.write("out " + line[0] + " " + escape(line[1]) + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			if (failed) {
+				writer.write("error " + errorCode + " " //$NON-NLS-1$ //$NON-NLS-2$
+						+ escape(errorMessage) + "\n"); //$NON-NLS-1$
+			} else if (result != null) {
+				writer.write("result " + result + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			writer.write("end\n"); //$NON-NLS-1$
+		}
+	}
+
+	private EngineRecording() {
+		// static helpers only
+	}
+
+	/**
+	 * Reads a recording.
+	 *
+	 * @param reader
+	 * @return the records in the order they were written
+	 * @throws IOException
+	 *             if the recording can't be read or is malformed
+	 */
+	public static List<Record> read(Reader reader) throws IOException {
+		BufferedReader in = new BufferedReader(reader);
+		List<Record> records = new ArrayList<Record>();
+		String line = in.readLine();
+		if (!HEADER.equals(line))
+			throw new IOException("not an engine recording"); //$NON-NLS-1$
+		Record record = null;
+		while ((line = in.readLine()) != null) {
+			if (line.startsWith("call ")) { //$NON-NLS-1$
+				String[] parts = line.split(" "); //$NON-NLS-1$
+				record = new Record();
+				record.command = parts[1];
+				record.startMicros = Long.parseLong(parts[2]);
+				record.durationMicros = Long.parseLong(parts[3]);
+			} else if (record == null) {
+				throw new IOException("unexpected line: " + line); //$NON-NLS-1$
+			} else if (line.startsWith("arg ")) { //$NON-NLS-1$
+				record.args.add(line.substring(4));
+			} else if (line.startsWith("out ")) { //$NON-NLS-1$
+				int space = line.indexOf(' ', 4);
+				record.output.add(new String[] { line.substring(4, space),
+						unescape(line.substring(space + 1)) });
+			} else if (line.startsWith("result ")) { //$NON-NLS-1$
+				record.result = line.substring(7);
+			} else if (line.startsWith("error ")) { //$NON-NLS-1$
+				int space = line.indexOf(' ', 6);
+				record.failed = true;
+				record.errorCode = Integer.parseInt(line.substring(6, space));
+				record.errorMessage = unescape(line.substring(space + 1));
+			} else if ("end".equals(line)) { //$NON-NLS-1$
+				records.add(record);
+				record = null;
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Encodes a value.
+	 *
+	 * @param value
+	 * @param anonymizer
+	 *            applied to all paths (maybe <code>null</code>)
+	 * @return the encoded value
+	 */
+	static String encode(Object value, PathAnonymizer anonymizer) {
+		if (value == null)
+			return NULL;
+		if (value instanceof String)
+			return "s:" + escape(anonymize((String) value, anonymizer)); //$NON-NLS-1$
+		if (value instanceof Integer)
+			return "i:" + value; //$NON-NLS-1$
+		if (value instanceof Boolean)
+			return "b:" + value; //$NON-NLS-1$
+		if (value instanceof File)
+			return "F:" //$NON-NLS-1$
+					+ escape(anonymize(((File) value).getPath(), anonymizer));
+		if (value instanceof String[]) {
+			StringBuffer buffer = new StringBuffer("S:"); //$NON-NLS-1$
+			String[] strings = (String[]) value;
+			for (int i = 0; i < strings.length; i++) {
+				if (i > 0) {
+					buffer.append('\t');
+				}
+				buffer.append(escape(anonymize(strings[i], anonymizer)));
+			}
+			return buffer.toString();
+		}
+		if (value instanceof ClearCaseElementState)
+			return "E:" + encodeState((ClearCaseElementState) value, anonymizer); //$NON-NLS-1$
+		if (value instanceof ClearCaseElementState[]) {
+			StringBuffer buffer = new StringBuffer("A:"); //$NON-NLS-1$
+			ClearCaseElementState[] states = (ClearCaseElementState[]) value;
+			for (int i = 0; i < states.length; i++) {
+				if (i > 0) {
+					buffer.append('\t');
+				}
+				buffer.append(escape(encodeState(states[i], anonymizer)));
+			}
+			return buffer.toString();
+		}
+		if (value instanceof Map<?, ?>) {
+			StringBuffer buffer = new StringBuffer("M:"); //$NON-NLS-1$
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first) {
+					buffer.append('\t');
+				}
+				first = false;
+				buffer.append(entry.getKey()).append('=').append(
+						escape(anonymize((String) entry.getValue(),
+								anonymizer)));
+			}
+			return buffer.toString();
+		}
+		if (value instanceof Vector<?>)
+			return "V:" + ((Vector<?>) value).size(); //$NON-NLS-1$
+		return "s:" + escape(anonymize(value.toString(), anonymizer)); //$NON-NLS-1$
+	}
+
+	private static String encodeState(ClearCaseElementState state,
+			PathAnonymizer anonymizer) {
+		if (state == null)
+			return ESCAPED_NULL;
+		return escape(anonymize(state.element, anonymizer)) + '|'
+				+ state.state + '|'
+				+ escape(anonymizer == null ? state.version : anonymizer
+						.anonymizeVersion(state.version)) + '|'
+				+ escape(anonymize(state.linkTarget, anonymizer));
+	}
+
+	/**
+	 * Decodes a value.
+	 *
+	 * @param encoded
+	 * @return the value
+	 */
+	static Object decode(String encoded) {
+		if (encoded == null || NULL.equals(encoded))
+			return null;
+		char type = encoded.charAt(0);
+		String value = encoded.substring(2);
+		switch (type) {
+		case 's':
+			return unescape(value);
+		case 'i':
+			return Integer.valueOf(value);
+		case 'b':
+			return Boolean.valueOf(value);
+		case 'F':
+			return new File(unescape(value));
+		case 'S': {
+			if (value.length() == 0)
+				return new String[0];
+			String[] parts = value.split("\t", -1); //$NON-NLS-1$
+			for (int i = 0; i < parts.length; i++) {
+				parts[i] = unescape(parts[i]);
+			}
+			return parts;
+		}
+		case 'E':
+			return decodeState(value);
+		case 'A': {
+			if (value.length() == 0)
+				return new ClearCaseElementState[0];
+			String[] parts = value.split("\t", -1); //$NON-NLS-1$
+			ClearCaseElementState[] states = new ClearCaseElementState[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				states[i] = decodeState(unescape(parts[i]));
+			}
+			return states;
+		}
+		case 'M': {
+			HashMap<Integer, String> map = new HashMap<Integer, String>();
+			if (value.length() > 0) {
+				for (String entry : value.split("\t", -1)) { //$NON-NLS-1$
+					int eq = entry.indexOf('=');
+					map.put(Integer.valueOf(entry.substring(0, eq)),
+							unescape(entry.substring(eq + 1)));
+				}
+			}
+			return map;
+		}
+		case 'V':
+			return new Vector<Object>();
+		default:
+			throw new IllegalArgumentException("unknown value " + encoded); //$NON-NLS-1$
+		}
+	}
+
+	private static ClearCaseElementState decodeState(String value) {
+		if (value == null || ESCAPED_NULL.equals(value))
+			return null;
+		String[] fields = value.split("\\|", -1); //$NON-NLS-1$
+		ClearCaseElementState state = new ClearCaseElementState(
+				unescape(fields[0]), Integer.parseInt(fields[1]));
+		state.version = unescape(fields[2]);
+		state.linkTarget = unescape(fields[3]);
+		return state;
+	}
+
+	private static String anonymize(String value, PathAnonymizer anonymizer) {
+		return anonymizer == null || value == null ? value : anonymizer
+				.anonymize(value);
+	}
+
+	/**
+	 * Escapes line breaks, tabs, field separators and <code>null</code>.
+	 *
+	 * @param value
+	 * @return the escaped value
+	 */
+	static String escape(String value) {
+		if (value == null)
+			return ESCAPED_NULL;
+		StringBuffer buffer = new StringBuffer(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				buffer.append("\\\\"); //$NON-NLS-1$
+				break;
+			case '\n':
+				buffer.append("\\n"); //$NON-NLS-1$
+				break;
+			case '\r':
+				buffer.append("\\r"); //$NON-NLS-1$
+				break;
+			case '\t':
+				buffer.append("\\t"); //$NON-NLS-1$
+				break;
+			case '|':
+				buffer.append("\\p"); //$NON-NLS-1$
+				break;
+			default:
+				buffer.append(c);
+			}
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Reverts {@link #escape(String)}.
+	 *
+	 * @param value
+	 * @return the original value
+	 */
+	static String unescape(String value) {
+		if (ESCAPED_NULL.equals(value))
+			return null;
+		if (value.indexOf('\\') < 0)
+			return value;
+		StringBuffer buffer = new StringBuffer(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				switch (next) {
+				case 'n':
+					buffer.append('\n');
+					break;
+				case 'r':
+					buffer.append('\r');
+					break;
+				case 't':
+					buffer.append('\t');
+					break;
+				case 'p':
+					buffer.append('|');
+					break;
+				default:
+					buffer.append(next);
+				}
+			} else {
+				buffer.append(c);
+			}
+		}
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.eclipseccase.ClearCaseProvider;
+import net.sourceforge.eclipseccase.statistics.ClearCaseStatistics;
+import net.sourceforge.eclipseccase.statistics.FlightRecorder;
+
+/**
+ * A ClearCase engine that records count, errors and latency of every call in
+ * the {@link ClearCaseStatistics} and the {@link FlightRecorder}.
+ */
+public class InstrumentedClearCase extends ClearCaseInterfaceDelegate {
+
+	/**
+	 * A running call.
+	 */
+	private static final class Call {
+
+		final String command;
+
+		final Object[] args;
+
+		final long start = System.nanoTime();
+
+		Call(String command, Object[] args) {
+			this.command = command;
+			this.args = args;
+		}
+	}
+
+	private final ClearCaseStatistics statistics = ClearCaseStatistics
+			.getInstance();
+
+	private final FlightRecorder recorder = FlightRecorder.getInstance();
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param delegate
+	 *            the engine to instrument
+	 */
+	public InstrumentedClearCase(ClearCaseInterface delegate) {
+		super(delegate);
+	}
+
+	@Override
+	protected Object beginCall(String command, Object[] args) {
+		return new Call(command, args);
+	}
+
+	@Override
+	protected <T> T endCall(Object call, T result) {
+		record((Call) call, false);
+		return result;
+	}
+
+	@Override
+	protected RuntimeException failCall(Object call, RuntimeException e) {
+		record((Call) call, true);
+		return e;
+	}
+
+	private void record(Call call, boolean failed) {
+		long end = System.nanoTime();
+		String path = firstPath(call.args);
+		statistics.recordCommand(call.command, ClearCaseProvider
+				.getKnownViewName(path), end - call.start, failed);
+		recorder.record(FlightRecorder.CATEGORY_ENGINE, call.command,
+				call.start, end, failed ? "failed: " + path : path); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the first path like argument of a call.
+	 *
+	 * @param args
+	 * @return the path or <code>null</code>
+	 */
+	static String firstPath(Object[] args) {
+		for (int i = 0; i < args.length; i++) {
+			Object arg = args[i];
+			if (arg instanceof String)
+				return (String) arg;
+			if (arg instanceof String[] && ((String[]) arg).length > 0)
+				return ((String[]) arg)[0];
+		}
+		return null;
+	}
+}
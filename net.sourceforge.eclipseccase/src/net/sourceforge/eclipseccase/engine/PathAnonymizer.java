@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces the segments of all paths in a text by stable tokens so recordings
+ * can be shared without revealing project structure.
+ * <p>
+ * The same segment is always mapped to the same token, file extensions, drive
+ * letters, numbers and the version tree keywords are kept. The branch names
+ * after the <code>@@</code> of an extended path are replaced as well, so
+ * recorded versions still look like versions. Comments and view tags are
+ * replaced by tokens of their own, a view tag is replaced wherever it appears
+ * once it is known.
+ * </p>
+ */
+public class PathAnonymizer {
+
+	/** absolute windows or unix paths and UNC names */
+	private static final Pattern PATH = Pattern
+			.compile("([A-Za-z]:[\\\\/]|\\\\\\\\|/)[^\\s\"'<>|]*"); //$NON-NLS-1$
+
+	private static final Pattern SEPARATOR = Pattern.compile("[\\\\/]"); //$NON-NLS-1$
+
+	/** the view tag in the output of a checkout query */
+	private static final Pattern VIEW_LABEL = Pattern.compile("View: ?([\\w.-]+)"); //$NON-NLS-1$
+
+	private static final Set<String> KEPT = new HashSet<String>();
+
+	static {
+		KEPT.add("main"); //$NON-NLS-1$
+		KEPT.add("CHECKEDOUT"); //$NON-NLS-1$
+		KEPT.add("LATEST"); //$NON-NLS-1$
+		KEPT.add("vobs"); //$NON-NLS-1$
+		KEPT.add("view"); //$NON-NLS-1$
+		KEPT.add("."); //$NON-NLS-1$
+		KEPT.add(".."); //$NON-NLS-1$
+	}
+
+	private final Map<String, String> tokens = new HashMap<String, String>();
+
+	private final Map<String, String> comments = new HashMap<String, String>();
+
+	private final Map<String, String> viewTags = new HashMap<String, String>();
+
+	/** matches all known view tags, <code>null</code> if there are none */
+	private Pattern knownViewTags;
+
+	/**
+	 * Anonymizes all paths and known view tags in a text.
+	 *
+	 * @param text
+	 * @return the text with anonymized paths
+	 */
+	public synchronized String anonymize(String text) {
+		Matcher labels = VIEW_LABEL.matcher(text);
+		while (labels.find()) {
+			anonymizeViewTag(labels.group(1));
+		}
+		Matcher matcher = PATH.matcher(text);
+		StringBuffer result = new StringBuffer(text.length());
+		while (matcher.find()) {
+			matcher.appendReplacement(result, Matcher
+					.quoteReplacement(anonymizePath(matcher.group())));
+		}
+		matcher.appendTail(result);
+		if (knownViewTags == null)
+			return result.toString();
+		// paths are done, their view tag segments are replaced already
+		matcher = knownViewTags.matcher(result);
+		result = new StringBuffer(result.length());
+		while (matcher.find()) {
+			matcher.appendReplacement(result, Matcher
+					.quoteReplacement(viewTags.get(matcher.group())));
+		}
+		matcher.appendTail(result);
+		return result.toString();
+	}
+
+	/**
+	 * Anonymizes a version like <code>/main/feature/3</code>. The branch
+	 * names are replaced, version numbers and keywords are kept.
+	 *
+	 * @param version
+	 *            the version (maybe <code>null</code>)
+	 * @return the anonymized version
+	 */
+	public synchronized String anonymizeVersion(String version) {
+		return version == null ? null : anonymizeSegments(version);
+	}
+
+	/**
+	 * Replaces a comment by a stable token. Empty comments are kept.
+	 *
+	 * @param comment
+	 *            the comment (maybe <code>null</code>)
+	 * @return the anonymized comment
+	 */
+	public synchronized String anonymizeComment(String comment) {
+		if (comment == null || comment.length() == 0)
+			return comment;
+		String token = comments.get(comment);
+		if (token == null) {
+			token = "comment" + comments.size(); //$NON-NLS-1$
+			comments.put(comment, token);
+		}
+		return token;
+	}
+
+	/**
+	 * Replaces a view tag by a stable token. The tag is replaced in all texts
+	 * anonymized afterwards.
+	 *
+	 * @param viewTag
+	 *            the view tag (maybe <code>null</code>)
+	 * @return the anonymized view tag
+	 */
+	public synchronized String anonymizeViewTag(String viewTag) {
+		if (viewTag == null || viewTag.length() == 0)
+			return viewTag;
+		String token = viewTags.get(viewTag);
+		if (token == null) {
+			token = "view" + viewTags.size(); //$NON-NLS-1$
+			viewTags.put(viewTag, token);
+			StringBuffer pattern = new StringBuffer("(?<![\\w.-])("); //$NON-NLS-1$
+			boolean first = true;
+			for (String tag : viewTags.keySet()) {
+				if (!first) {
+					pattern.append('|');
+				}
+				first = false;
+				pattern.append(Pattern.quote(tag));
+			}
+			knownViewTags = Pattern.compile(pattern.append(")(?![\\w.-])") //$NON-NLS-1$
+					.toString());
+		}
+		return token;
+	}
+
+	private String anonymizePath(String path) {
+		int extended = path.indexOf("@@"); //$NON-NLS-1$
+		if (extended < 0)
+			return anonymizeSegments(path);
+		return anonymizeSegments(path.substring(0, extended)) + "@@" //$NON-NLS-1$
+				+ anonymizeSegments(path.substring(extended + 2));
+	}
+
+	private String anonymizeSegments(String path) {
+		StringBuffer result = new StringBuffer(path.length());
+		Matcher separators = SEPARATOR.matcher(path);
+		int start = 0;
+		while (separators.find()) {
+			result.append(anonymizeSegment(path.substring(start, separators
+					.start())));
+			result.append(separators.group());
+			start = separators.end();
+		}
+		result.append(anonymizeSegment(path.substring(start)));
+		return result.toString();
+	}
+
+	private String anonymizeSegment(String segment) {
+		if (segment.length() == 0 || KEPT.contains(segment)
+				|| isDriveOrNumber(segment))
+			return segment;
+		String token = viewTags.get(segment);
+		if (token != null)
+			return token;
+		token = tokens.get(segment);
+		if (token == null) {
+			int dot = segment.lastIndexOf('.');
+			String extension = dot > 0 ? segment.substring(dot) : ""; //$NON-NLS-1$
+			token = "p" + tokens.size() + extension; //$NON-NLS-1$
+			tokens.put(segment, token);
+		}
+		return token;
+	}
+
+	private static boolean isDriveOrNumber(String segment) {
+		if (segment.length() == 2 && segment.charAt(1) == ':')
+			return true;
+		for (int i = 0; i < segment.length(); i++) {
+			if (!Character.isDigit(segment.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+}
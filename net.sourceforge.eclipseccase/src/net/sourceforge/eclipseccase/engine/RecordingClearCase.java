@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseException;
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.clearcase.events.OperationListener;
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+import net.sourceforge.eclipseccase.engine.EngineRecording.Record;
+
+/**
+ * A ClearCase engine that writes every call with its arguments, output,
+ * result and timing to an {@link EngineRecording}. The recording can be
+ * served back by the {@link ReplayClearCase}.
+ */
+public class RecordingClearCase extends ClearCaseInterfaceDelegate {
+
+	/**
+	 * A running call.
+	 */
+	private final class Call {
+
+		final Record record = new Record();
+
+		final long start = System.nanoTime();
+
+		Call(String command, Object[] args) {
+			record.command = command;
+			record.startMicros = (start - origin) / 1000;
+			for (int i = 0; i < args.length; i++) {
+				Object arg = args[i];
+				if (anonymizer != null && arg instanceof String) {
+					if (isArgument(COMMENT_ARGS, command, i)) {
+						arg = anonymizer.anonymizeComment((String) arg);
+					} else if (isArgument(VIEW_TAG_ARGS, command, i)) {
+						arg = anonymizer.anonymizeViewTag((String) arg);
+					}
+				}
+				record.args.add(EngineRecording.encode(arg, anonymizer));
+			}
+		}
+
+		void output(String kind, String line) {
+			synchronized (record) {
+				record.output.add(new String[] { kind,
+						anonymizer == null ? line : anonymizer.anonymize(line) });
+			}
+		}
+	}
+
+	/**
+	 * Captures the output of a call and forwards it to the caller's listener.
+	 */
+	private static final class CapturingListener implements OperationListener {
+
+		private final Call call;
+
+		private final OperationListener listener;
+
+		CapturingListener(Call call, OperationListener listener) {
+			this.call = call;
+			this.listener = listener;
+		}
+
+		public void finishedOperation() {
+			if (listener != null) {
+				listener.finishedOperation();
+			}
+		}
+
+		public boolean isCanceled() {
+			return listener != null && listener.isCanceled();
+		}
+
+		public void ping() {
+			if (listener != null) {
+				listener.ping();
+			}
+		}
+
+		public void print(String msg) {
+			call.output(EngineRecording.OUT_PRINT, msg);
+			if (listener != null) {
+				listener.print(msg);
+			}
+		}
+
+		public void printErr(String msg) {
+			call.output(EngineRecording.OUT_ERR, msg);
+			if (listener != null) {
+				listener.printErr(msg);
+			}
+		}
+
+		public void printInfo(String msg) {
+			call.output(EngineRecording.OUT_INFO, msg);
+			if (listener != null) {
+				listener.printInfo(msg);
+			}
+		}
+
+		public void startedOperation(int amountOfWork) {
+			if (listener != null) {
+				listener.startedOperation(amountOfWork);
+			}
+		}
+
+		public void worked(int ticks) {
+			if (listener != null) {
+				listener.worked(ticks);
+			}
+		}
+	}
+
+	/** the index of the comment argument by command */
+	private static final Map<String, Integer> COMMENT_ARGS = new HashMap<String, Integer>();
+
+	/** the index of the view tag argument by command */
+	private static final Map<String, Integer> VIEW_TAG_ARGS = new HashMap<String, Integer>();
+
+	static {
+		COMMENT_ARGS.put("add", Integer.valueOf(2)); //$NON-NLS-1$
+		COMMENT_ARGS.put("checkin", Integer.valueOf(1)); //$NON-NLS-1$
+		COMMENT_ARGS.put("checkout", Integer.valueOf(1)); //$NON-NLS-1$
+		COMMENT_ARGS.put("delete", Integer.valueOf(1)); //$NON-NLS-1$
+		COMMENT_ARGS.put("move", Integer.valueOf(2)); //$NON-NLS-1$
+		COMMENT_ARGS.put("unreserved", Integer.valueOf(1)); //$NON-NLS-1$
+		COMMENT_ARGS.put("reserved", Integer.valueOf(1)); //$NON-NLS-1$
+		COMMENT_ARGS.put("requestMastership", Integer.valueOf(1)); //$NON-NLS-1$
+		COMMENT_ARGS.put("mkActivity", Integer.valueOf(1)); //$NON-NLS-1$
+		VIEW_TAG_ARGS.put("getViewType", Integer.valueOf(0)); //$NON-NLS-1$
+		VIEW_TAG_ARGS.put("getViewConfigSpec", Integer.valueOf(0)); //$NON-NLS-1$
+		VIEW_TAG_ARGS.put("setViewConfigSpec", Integer.valueOf(0)); //$NON-NLS-1$
+		VIEW_TAG_ARGS.put("setActivity", Integer.valueOf(2)); //$NON-NLS-1$
+	}
+
+	private final Writer writer;
+
+	private final PathAnonymizer anonymizer;
+
+	private final long origin = System.nanoTime();
+
+	/** set after the first write error, recording stops then */
+	private boolean broken;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param delegate
+	 *            the engine to record
+	 * @param writer
+	 *            the recording is written to, closed on {@link #dispose()}
+	 * @param anonymizer
+	 *            applied to all paths, versions, comments and view tags
+	 *            (maybe <code>null</code> to record them as they are)
+	 * @throws IOException
+	 */
+	public RecordingClearCase(ClearCaseInterface delegate, Writer writer,
+			PathAnonymizer anonymizer) throws IOException {
+		super(delegate);
+		this.writer = writer;
+		this.anonymizer = anonymizer;
+		writer.write(EngineRecording.HEADER + "\n"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected Object beginCall(String command, Object[] args) {
+		return new Call(command, args);
+	}
+
+	@Override
+	protected OperationListener wrapListener(Object call,
+			OperationListener listener) {
+		return new CapturingListener((Call) call, listener);
+	}
+
+	@Override
+	protected <T> T endCall(Object call, T result) {
+		Call c = (Call) call;
+		c.record.durationMicros = (System.nanoTime() - c.start) / 1000;
+		if (result != null) {
+			Object recorded = result;
+			if (anonymizer != null && "getViewName".equals(c.record.command)) { //$NON-NLS-1$
+				recorded = anonymizer.anonymizeViewTag((String) result);
+			} else if (anonymizer != null
+					&& "getPreviousVersion".equals(c.record.command)) { //$NON-NLS-1$
+				recorded = anonymizer.anonymizeVersion((String) result);
+			}
+			c.record.result = EngineRecording.encode(recorded, anonymizer);
+		}
+		write(c.record);
+		return result;
+	}
+
+	@Override
+	protected RuntimeException failCall(Object call, RuntimeException e) {
+		Call c = (Call) call;
+		c.record.durationMicros = (System.nanoTime() - c.start) / 1000;
+		c.record.failed = true;
+		c.record.errorCode = e instanceof ClearCaseException ? ((ClearCaseException) e)
+				.getErrorCode()
+				: ClearCase.ERROR_EXCEPTION;
+		String message = e.getMessage() == null ? e.toString() : e
+				.getMessage();
+		c.record.errorMessage = anonymizer == null ? message : anonymizer
+				.anonymize(message);
+		write(c.record);
+		return e;
+	}
+
+	private static boolean isArgument(Map<String, Integer> args,
+			String command, int index) {
+		Integer commandIndex = args.get(command);
+		return commandIndex != null && commandIndex.intValue() == index;
+	}
+
+	private synchronized void write(Record record) {
+		if (broken)
+			return;
+		try {
+			synchronized (record) {
+				record.write(writer);
+			}
+			writer.flush();
+		} catch (IOException e) {
+			broken = true;
+			ClearCasePlugin.log("Could not write engine recording", e); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void dispose() {
+		try {
+			super.dispose();
+		} finally {
+			synchronized (this) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					// ignore, everything was flushed
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,436 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseElementState;
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.clearcase.ElementHistory;
+import net.sourceforge.clearcase.MergeData;
+import net.sourceforge.clearcase.events.OperationListener;
+import net.sourceforge.eclipseccase.engine.EngineRecording.Record;
+
+/**
+ * A ClearCase engine that serves the calls of an {@link EngineRecording}
+ * back, e.g. to reproduce performance problems of a real ClearCase
+ * installation without cleartool.
+ * <p>
+ * A call is answered by the first unused record with the same command and
+ * arguments. If there is none the next unused record of the same command is
+ * taken, so recordings still replay if paths differ slightly. The recorded
+ * output is sent to the listener, the recorded latency is waited for
+ * (multiplied by the latency scale) and recorded errors are thrown again.
+ * </p>
+ */
+public class ReplayClearCase extends ClearCaseInterface {
+
+	/** unused records by command and arguments */
+	private final Map<String, LinkedList<Record>> byKey = new HashMap<String, LinkedList<Record>>();
+
+	/** unused records by command */
+	private final Map<String, LinkedList<Record>> byCommand = new HashMap<String, LinkedList<Record>>();
+
+	private final double latencyScale;
+
+	private int misses;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param records
+	 *            the recorded calls
+	 * @param latencyScale
+	 *            the factor applied to the recorded latencies,
+	 *            <code>0</code> to answer immediately
+	 */
+	public ReplayClearCase(List<Record> records, double latencyScale) {
+		this.latencyScale = latencyScale;
+		for (Record record : records) {
+			queue(byKey, record.getKey()).add(record);
+			queue(byCommand, record.command).add(record);
+		}
+	}
+
+	private static LinkedList<Record> queue(
+			Map<String, LinkedList<Record>> map, String key) {
+		LinkedList<Record> queue = map.get(key);
+		if (queue == null) {
+			queue = new LinkedList<Record>();
+			map.put(key, queue);
+		}
+		return queue;
+	}
+
+	/**
+	 * Returns the number of calls that had no record left.
+	 *
+	 * @return the number of failed lookups
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	private synchronized Record next(String command, Object[] args) {
+		Record probe = new Record();
+		probe.command = command;
+		for (int i = 0; i < args.length; i++) {
+			probe.args.add(EngineRecording.encode(args[i], null));
+		}
+		Record record = poll(byKey.get(probe.getKey()));
+		if (record == null) {
+			record = poll(byCommand.get(command));
+		}
+		if (record == null) {
+			misses++;
+		} else {
+			record.replayed = true;
+		}
+		return record;
+	}
+
+	private static Record poll(LinkedList<Record> queue) {
+		if (queue == null)
+			return null;
+		Record record;
+		do {
+			record = queue.poll();
+		} while (record != null && record.replayed);
+		return record;
+	}
+
+	/**
+	 * Replays a call.
+	 *
+	 * @param command
+	 *            the name of the engine method
+	 * @param args
+	 *            the arguments, as passed by the
+	 *            {@link ClearCaseInterfaceDelegate}
+	 * @param listener
+	 *            receives the recorded output (maybe <code>null</code>)
+	 * @return the recorded result
+	 */
+	private Object replay(String command, Object[] args,
+			OperationListener listener) {
+		Record record = next(command, args);
+		if (record == null) {
+			ClearCase.error(ClearCase.ERROR_EXCEPTION,
+					"no recorded call left for " + command); //$NON-NLS-1$
+		}
+		long millis = (long) (record.durationMicros * latencyScale / 1000);
+		if (millis > 0) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (listener != null) {
+			for (String[] line : record.output) {
+				if (EngineRecording.OUT_ERR.equals(line[0])) {
+					listener.printErr(line[1]);
+				} else if (EngineRecording.OUT_INFO.equals(line[0])) {
+					listener.printInfo(line[1]);
+				} else {
+					listener.print(line[1]);
+				}
+			}
+		}
+		if (record.failed) {
+			ClearCase.error(record.errorCode, record.errorMessage);
+		}
+		return EngineRecording.decode(record.result);
+	}
+
+	private boolean replayBoolean(String command, Object[] args) {
+		Object result = replay(command, args, null);
+		return result instanceof Boolean && ((Boolean) result).booleanValue();
+	}
+
+	/*
+	 * ClearCaseInterface
+	 */
+
+	@Override
+	public ClearCaseElementState add(String element, boolean isDirectory,
+			String comment, int flags, OperationListener operationListener) {
+		return (ClearCaseElementState) replay("add", new Object[] { element, //$NON-NLS-1$
+				Boolean.valueOf(isDirectory), comment, Integer.valueOf(flags) },
+				operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] checkin(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("checkin", new Object[] { //$NON-NLS-1$
+				elements, comment, Integer.valueOf(flags) }, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] checkout(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("checkout", new Object[] { //$NON-NLS-1$
+				elements, comment, Integer.valueOf(flags) }, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] uncheckout(String[] elements, int flags,
+			OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("uncheckout", new Object[] { //$NON-NLS-1$
+				elements, Integer.valueOf(flags) }, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] delete(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("delete", new Object[] { //$NON-NLS-1$
+				elements, comment, Integer.valueOf(flags) }, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] move(String element, String target,
+			String comment, int flags, OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("move", new Object[] { //$NON-NLS-1$
+				element, target, comment, Integer.valueOf(flags) },
+				operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] unreserved(String[] elements,
+			String comment, int flags, OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("unreserved", new Object[] { //$NON-NLS-1$
+				elements, comment, Integer.valueOf(flags) }, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] reserved(String[] elements, String comment,
+			int flags, OperationListener operationListener) {
+		return (ClearCaseElementState[]) replay("reserved", new Object[] { //$NON-NLS-1$
+				elements, comment, Integer.valueOf(flags) }, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] requestMastership(String element,
+			String comment, int flags) {
+		return (ClearCaseElementState[]) replay("requestMastership", //$NON-NLS-1$
+				new Object[] { element, comment, Integer.valueOf(flags) },
+				null);
+	}
+
+	@Override
+	public ClearCaseElementState getElementState(String element) {
+		return (ClearCaseElementState) replay("getElementState", //$NON-NLS-1$
+				new Object[] { element }, null);
+	}
+
+	@Override
+	public String getPreviousVersion(String element) {
+		return (String) replay("getPreviousVersion", new Object[] { element }, //$NON-NLS-1$
+				null);
+	}
+
+	@Override
+	public String[] describe(String element, int flags, String format) {
+		return (String[]) replay("describe", new Object[] { element, //$NON-NLS-1$
+				Integer.valueOf(flags), format }, null);
+	}
+
+	@Override
+	public String[] findCheckouts(int flags, HashMap<Integer, String> args,
+			String[] elements) {
+		return (String[]) replay("findCheckouts", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), args, elements }, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Vector<MergeData> findMerge(String element, String branch) {
+		return (Vector<MergeData>) replay("findMerge", new Object[] { //$NON-NLS-1$
+				element, branch }, null);
+	}
+
+	@Override
+	public ClearCaseElementState merge(String targetPath,
+			String[] fromVersions, String baseVersion, int flags) {
+		return (ClearCaseElementState) replay("merge", new Object[] { //$NON-NLS-1$
+				targetPath, fromVersions, baseVersion, Integer.valueOf(flags) },
+				null);
+	}
+
+	@Override
+	public void update(String element, int flags, boolean workingDir) {
+		replay("update", new Object[] { element, Integer.valueOf(flags), //$NON-NLS-1$
+				Boolean.valueOf(workingDir) }, null);
+	}
+
+	@Override
+	public void get(int flags, HashMap<Integer, String> args, String version) {
+		replay("get", new Object[] { Integer.valueOf(flags), args, version }, //$NON-NLS-1$
+				null);
+	}
+
+	@Override
+	public void setGroup(String element, String group,
+			OperationListener operationListener) {
+		replay("setGroup", new Object[] { element, group }, operationListener); //$NON-NLS-1$
+	}
+
+	@Override
+	public boolean isDifferent(String element) {
+		return replayBoolean("isDifferent", new Object[] { element }); //$NON-NLS-1$
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Vector<ElementHistory> getElementHistory(String element) {
+		return (Vector<ElementHistory>) replay("getElementHistory", //$NON-NLS-1$
+				new Object[] { element }, null);
+	}
+
+	@Override
+	public String getViewName(String element) {
+		return (String) replay("getViewName", new Object[] { element }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public String getViewType(String viewName) {
+		return (String) replay("getViewType", new Object[] { viewName }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public String getViewLocation() {
+		return (String) replay("getViewLocation", new Object[0], null); //$NON-NLS-1$
+	}
+
+	@Override
+	public String getViewRoot(String element) {
+		return (String) replay("getViewRoot", new Object[] { element }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public String getViewConfigSpec(String viewName) {
+		return (String) replay("getViewConfigSpec", new Object[] { viewName }, //$NON-NLS-1$
+				null);
+	}
+
+	@Override
+	public void setViewConfigSpec(String viewName, String configSpecFile,
+			String workingDir, OperationListener operationListener) {
+		replay("setViewConfigSpec", new Object[] { viewName, configSpecFile, //$NON-NLS-1$
+				workingDir }, operationListener);
+	}
+
+	@Override
+	public void getCheckedOutElements(String path, boolean isSnapshot,
+			OperationListener operationListener) {
+		replay("getCheckedOutElements", new Object[] { path, //$NON-NLS-1$
+				Boolean.valueOf(isSnapshot) }, operationListener);
+	}
+
+	@Override
+	public void getViewLSPrivateList(String path,
+			OperationListener operationListener) {
+		replay("getViewLSPrivateList", new Object[] { path }, //$NON-NLS-1$
+				operationListener);
+	}
+
+	@Override
+	public void getViewLSViewOnlyList(String path,
+			OperationListener operationListener) {
+		replay("getViewLSViewOnlyList", new Object[] { path }, //$NON-NLS-1$
+				operationListener);
+	}
+
+	@Override
+	public void getUpdateList(String path, OperationListener operationListener) {
+		replay("getUpdateList", new Object[] { path }, operationListener); //$NON-NLS-1$
+	}
+
+	@Override
+	public String[] getActivity(int flags, HashMap<Integer, String> args) {
+		return (String[]) replay("getActivity", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), args }, null);
+	}
+
+	@Override
+	public ClearCaseElementState[] setActivity(int flags, String activity,
+			String viewName) {
+		return (ClearCaseElementState[]) replay("setActivity", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), activity, viewName }, null);
+	}
+
+	@Override
+	public ClearCaseElementState[] mkActivity(int flags, String headline,
+			String activitySelector, String path) {
+		return (ClearCaseElementState[]) replay("mkActivity", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), headline, activitySelector, path },
+				null);
+	}
+
+	@Override
+	public String[] getStream(int flags, HashMap<Integer, String> args) {
+		return (String[]) replay("getStream", new Object[] { //$NON-NLS-1$
+				Integer.valueOf(flags), args }, null);
+	}
+
+	@Override
+	public String[] loadBrancheList(File workingDir) {
+		return (String[]) replay("loadBrancheList", //$NON-NLS-1$
+				new Object[] { workingDir }, null);
+	}
+
+	@Override
+	public String[] searchFilesInBranch(String branchName, File workingDir,
+			OperationListener operationListener) {
+		return (String[]) replay("searchFilesInBranch", new Object[] { //$NON-NLS-1$
+				branchName, workingDir }, operationListener);
+	}
+
+	@Override
+	public void showVersionTree(String element, File workingDir) {
+		replay("showVersionTree", new Object[] { element, workingDir }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public void showFindMerge(File workingDir) {
+		replay("showFindMerge", new Object[] { workingDir }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public void compareWithPredecessor(String element) {
+		replay("compareWithPredecessor", new Object[] { element }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public void compareWithVersion(String element1, String element2) {
+		replay("compareWithVersion", new Object[] { element1, element2 }, //$NON-NLS-1$
+				null);
+	}
+
+	@Override
+	public void describeVersionGUI(String element) {
+		replay("describeVersionGUI", new Object[] { element }, null); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setDebugLevel(int level) {
+		// nothing to debug
+	}
+
+	@Override
+	public void dispose() {
+		// nothing to release
+	}
+}
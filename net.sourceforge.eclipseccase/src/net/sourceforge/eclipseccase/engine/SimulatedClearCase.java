@@ -0,0 +1,1209 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import net.sourceforge.clearcase.ClearCase;
+import net.sourceforge.clearcase.ClearCaseElementState;
+import net.sourceforge.clearcase.ClearCaseInterface;
+import net.sourceforge.clearcase.ElementHistory;
+import net.sourceforge.clearcase.MergeData;
+import net.sourceforge.clearcase.events.OperationListener;
+
+/**
+ * An in-memory ClearCase engine for tests and benchmarks.
+ * <p>
+ * The simulator keeps a model of views, elements with their versions,
+ * checkouts, hijacked and view-private files and UCM activities. It never
+ * touches the file system and never starts cleartool. Every command can be
+ * slowed down by a configurable latency and made to fail on demand, so
+ * performance tests run deterministically on any machine.
+ * </p>
+ * <p>
+ * The model is either built with the methods of this class or with a script
+ * (see {@link #runScript(Reader)}). Paths are used exactly as given; a path
+ * belongs to the view with the longest matching root.
+ * </p>
+ */
+public class SimulatedClearCase extends ClearCaseInterface {
+
+	/** the main branch */
+	private static final String MAIN = "/main"; //$NON-NLS-1$
+
+	/** the version selector of a checked out element */
+	private static final String CHECKEDOUT = "/CHECKEDOUT"; //$NON-NLS-1$
+
+	/** matches every command in latency and failure settings */
+	public static final String ALL_COMMANDS = "*"; //$NON-NLS-1$
+
+	/**
+	 * A simulated view.
+	 */
+	static final class View {
+
+		final String name;
+
+		final String root;
+
+		final boolean snapshot;
+
+		String activity = ""; //$NON-NLS-1$
+
+		String stream = ""; //$NON-NLS-1$
+
+		String configSpec = "element * CHECKEDOUT\nelement * /main/LATEST\n"; //$NON-NLS-1$
+
+		View(String name, String root, boolean snapshot) {
+			this.name = name;
+			this.root = root;
+			this.snapshot = snapshot;
+		}
+	}
+
+	/**
+	 * A simulated element.
+	 */
+	static final class Element {
+
+		final boolean directory;
+
+		int latestVersion;
+
+		/** the version loaded in snapshot views */
+		int loadedVersion;
+
+		/** view name holding the checkout (<code>null</code> if checked in) */
+		String checkoutView;
+
+		boolean reserved;
+
+		boolean hijacked;
+
+		Element(boolean directory, int latestVersion) {
+			this.directory = directory;
+			this.latestVersion = latestVersion;
+			this.loadedVersion = latestVersion;
+		}
+	}
+
+	/**
+	 * A simulated UCM activity.
+	 */
+	static final class Activity {
+
+		final String name;
+
+		final String headline;
+
+		final String stream;
+
+		Activity(String name, String headline, String stream) {
+			this.name = name;
+			this.headline = headline;
+			this.stream = stream;
+		}
+	}
+
+	/** views by name */
+	private final Map<String, View> views = new HashMap<String, View>();
+
+	/** elements by path, sorted so that children follow their parent */
+	private final TreeMap<String, Element> elements = new TreeMap<String, Element>();
+
+	private final Set<String> viewPrivate = new HashSet<String>();
+
+	private final Map<String, Activity> activities = new HashMap<String, Activity>();
+
+	/** the view used for commands without a path argument */
+	private String currentView;
+
+	private final Map<String, Long> latencies = new HashMap<String, Long>();
+
+	private final Map<String, int[]> pendingFailures = new HashMap<String, int[]>();
+
+	private final Map<String, Integer> failureRates = new HashMap<String, Integer>();
+
+	private final Random random = new Random(0);
+
+	/**
+	 * Creates an empty simulator.
+	 */
+	public SimulatedClearCase() {
+		super();
+	}
+
+	/*
+	 * Model setup
+	 */
+
+	/**
+	 * Adds a view. The first view added becomes the current view.
+	 *
+	 * @param name
+	 * @param root
+	 *            the path of the view root
+	 * @param snapshot
+	 *            <code>true</code> for a snapshot view
+	 */
+	public synchronized void createView(String name, String root,
+			boolean snapshot) {
+		views.put(name, new View(name, root, snapshot));
+		if (currentView == null) {
+			currentView = name;
+		}
+	}
+
+	/**
+	 * Sets the view used for commands that have no path argument.
+	 *
+	 * @param name
+	 */
+	public synchronized void setCurrentView(String name) {
+		currentView = name;
+	}
+
+	/**
+	 * Adds a checked in element.
+	 *
+	 * @param path
+	 * @param directory
+	 * @param versions
+	 *            the number of the latest version on the main branch
+	 */
+	public synchronized void createElement(String path, boolean directory,
+			int versions) {
+		viewPrivate.remove(path);
+		elements.put(path, new Element(directory, versions));
+	}
+
+	/**
+	 * Adds a view-private file.
+	 *
+	 * @param path
+	 */
+	public synchronized void createViewPrivate(String path) {
+		viewPrivate.add(path);
+	}
+
+	/**
+	 * Marks an element as hijacked.
+	 *
+	 * @param path
+	 */
+	public synchronized void hijack(String path) {
+		element(path).hijacked = true;
+	}
+
+	/**
+	 * Checks out an element in the given view, e.g. to simulate a checkout
+	 * done by somebody else.
+	 *
+	 * @param path
+	 * @param viewName
+	 * @param reserved
+	 */
+	public synchronized void checkoutInView(String path, String viewName,
+			boolean reserved) {
+		Element element = element(path);
+		element.checkoutView = viewName;
+		element.reserved = reserved;
+	}
+
+	/**
+	 * Adds a new version of an element, e.g. to simulate a checkin done by
+	 * somebody else. Snapshot views keep the old version loaded until they are
+	 * updated.
+	 *
+	 * @param path
+	 */
+	public synchronized void createVersion(String path) {
+		element(path).latestVersion++;
+	}
+
+	/**
+	 * Adds an activity.
+	 *
+	 * @param name
+	 * @param headline
+	 * @param stream
+	 */
+	public synchronized void createActivity(String name, String headline,
+			String stream) {
+		activities.put(name, new Activity(name, headline, stream));
+	}
+
+	/**
+	 * Sets the stream a view is attached to.
+	 *
+	 * @param viewName
+	 * @param stream
+	 */
+	public synchronized void setStream(String viewName, String stream) {
+		view(viewName).stream = stream;
+	}
+
+	/**
+	 * Sets the latency of a command.
+	 *
+	 * @param command
+	 *            the engine method name or {@link #ALL_COMMANDS}
+	 * @param millis
+	 */
+	public synchronized void setLatency(String command, long millis) {
+		latencies.put(command, Long.valueOf(millis));
+	}
+
+	/**
+	 * Lets the next calls of a command fail.
+	 *
+	 * @param command
+	 *            the engine method name or {@link #ALL_COMMANDS}
+	 * @param count
+	 *            the number of calls to fail
+	 * @param errorCode
+	 *            the ClearCase error code to report
+	 */
+	public synchronized void failNext(String command, int count, int errorCode) {
+		pendingFailures.put(command, new int[] { count, errorCode });
+	}
+
+	/**
+	 * Lets a percentage of the calls of a command fail. The random sequence
+	 * is seeded, so runs are repeatable.
+	 *
+	 * @param command
+	 *            the engine method name or {@link #ALL_COMMANDS}
+	 * @param percent
+	 *            0..100
+	 */
+	public synchronized void setFailureRate(String command, int percent) {
+		failureRates.put(command, Integer.valueOf(percent));
+	}
+
+	/**
+	 * Builds the model from a script. Each line holds one command, empty
+	 * lines and lines starting with <code>#</code> are ignored:
+	 *
+	 * <pre>
+	 * view &lt;name&gt; snapshot|dynamic &lt;root&gt;
+	 * cview &lt;name&gt;
+	 * dir &lt;path&gt; [version]
+	 * file &lt;path&gt; [version]
+	 * private &lt;path&gt;
+	 * hijack &lt;path&gt;
+	 * checkout &lt;path&gt; &lt;view&gt; [unreserved]
+	 * version &lt;path&gt;
+	 * stream &lt;view&gt; &lt;stream&gt;
+	 * activity &lt;name&gt; &lt;stream&gt; [headline]
+	 * setactivity &lt;view&gt; &lt;activity&gt;
+	 * latency &lt;command|*&gt; &lt;millis&gt;
+	 * fail &lt;command|*&gt; &lt;count&gt; [errorCode]
+	 * failrate &lt;command|*&gt; &lt;percent&gt;
+	 * </pre>
+	 *
+	 * Paths must not contain white space.
+	 *
+	 * @param script
+	 * @throws IOException
+	 *             if the script can't be read or contains an invalid line
+	 */
+	public void runScript(Reader script) throws IOException {
+		BufferedReader reader = new BufferedReader(script);
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) //$NON-NLS-1$
+				continue;
+			try {
+				runScriptLine(line);
+			} catch (RuntimeException e) {
+				IOException ioe = new IOException("line " + lineNumber + ": " //$NON-NLS-1$ //$NON-NLS-2$
+						+ line);
+				ioe.initCause(e);
+				throw ioe;
+			}
+		}
+	}
+
+	private void runScriptLine(String line) {
+		StringTokenizer tokens = new StringTokenizer(line);
+		String command = tokens.nextToken();
+		List<String> args = new ArrayList<String>();
+		while (tokens.hasMoreTokens()) {
+			args.add(tokens.nextToken());
+		}
+		if ("view".equals(command)) { //$NON-NLS-1$
+			createView(args.get(0), args.get(2), "snapshot".equals(args.get(1))); //$NON-NLS-1$
+		} else if ("cview".equals(command)) { //$NON-NLS-1$
+			setCurrentView(args.get(0));
+		} else if ("dir".equals(command) || "file".equals(command)) { //$NON-NLS-1$ //$NON-NLS-2$
+			createElement(args.get(0), "dir".equals(command), //$NON-NLS-1$
+					args.size() > 1 ? Integer.parseInt(args.get(1)) : 1);
+		} else if ("private".equals(command)) { //$NON-NLS-1$
+			createViewPrivate(args.get(0));
+		} else if ("hijack".equals(command)) { //$NON-NLS-1$
+			hijack(args.get(0));
+		} else if ("checkout".equals(command)) { //$NON-NLS-1$
+			checkoutInView(args.get(0), args.get(1), !(args.size() > 2 && "unreserved" //$NON-NLS-1$
+					.equals(args.get(2))));
+		} else if ("version".equals(command)) { //$NON-NLS-1$
+			createVersion(args.get(0));
+		} else if ("stream".equals(command)) { //$NON-NLS-1$
+			setStream(args.get(0), args.get(1));
+		} else if ("activity".equals(command)) { //$NON-NLS-1$
+			StringBuffer headline = new StringBuffer();
+			for (int i = 2; i < args.size(); i++) {
+				if (headline.length() > 0) {
+					headline.append(' ');
+				}
+				headline.append(args.get(i));
+			}
+			createActivity(args.get(0), headline.toString(), args.get(1));
+		} else if ("setactivity".equals(command)) { //$NON-NLS-1$
+			synchronized (this) {
+				view(args.get(0)).activity = args.get(1);
+			}
+		} else if ("latency".equals(command)) { //$NON-NLS-1$
+			setLatency(args.get(0), Long.parseLong(args.get(1)));
+		} else if ("fail".equals(command)) { //$NON-NLS-1$
+			failNext(args.get(0), Integer.parseInt(args.get(1)),
+					args.size() > 2 ? Integer.parseInt(args.get(2))
+							: ClearCase.ERROR_EXCEPTION);
+		} else if ("failrate".equals(command)) { //$NON-NLS-1$
+			setFailureRate(args.get(0), Integer.parseInt(args.get(1)));
+		} else
+			throw new IllegalArgumentException("unknown command " + command); //$NON-NLS-1$
+	}
+
+	/*
+	 * Model queries (for assertions in tests)
+	 */
+
+	/**
+	 * Indicates if the element is checked out in the view containing it.
+	 *
+	 * @param path
+	 * @return <code>true</code> if checked out
+	 */
+	public synchronized boolean isCheckedOut(String path) {
+		Element element = elements.get(path);
+		return element != null && element.checkoutView != null
+				&& element.checkoutView.equals(viewNameOf(path));
+	}
+
+	/**
+	 * Returns the latest version of an element.
+	 *
+	 * @param path
+	 * @return the version, e.g. <code>/main/3</code>, or <code>null</code> if
+	 *         the path is no element
+	 */
+	public synchronized String getLatestVersion(String path) {
+		Element element = elements.get(path);
+		return element == null ? null : MAIN + "/" + element.latestVersion; //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the version of an element loaded in snapshot views.
+	 *
+	 * @param path
+	 * @return the version, e.g. <code>/main/3</code>, or <code>null</code> if
+	 *         the path is no element
+	 */
+	public synchronized String getLoadedVersion(String path) {
+		Element element = elements.get(path);
+		return element == null ? null : MAIN + "/" + element.loadedVersion; //$NON-NLS-1$
+	}
+
+	/**
+	 * Indicates if the path is an element.
+	 *
+	 * @param path
+	 * @return <code>true</code> if the path is an element
+	 */
+	public synchronized boolean isElement(String path) {
+		return elements.containsKey(path);
+	}
+
+	/*
+	 * Simulation helpers
+	 */
+
+	/**
+	 * Applies latency and failure injection for a command. Called before the
+	 * model lock is taken so that slow commands may overlap.
+	 *
+	 * @param command
+	 */
+	private void simulate(String command) {
+		long latency;
+		int errorCode = 0;
+		synchronized (this) {
+			Long value = latencies.get(command);
+			if (value == null) {
+				value = latencies.get(ALL_COMMANDS);
+			}
+			latency = value == null ? 0 : value.longValue();
+
+			int[] failure = pendingFailures.get(command);
+			if (failure == null) {
+				failure = pendingFailures.get(ALL_COMMANDS);
+			}
+			if (failure != null && failure[0] > 0) {
+				failure[0]--;
+				errorCode = failure[1];
+			} else {
+				Integer rate = failureRates.get(command);
+				if (rate == null) {
+					rate = failureRates.get(ALL_COMMANDS);
+				}
+				if (rate != null && random.nextInt(100) < rate.intValue()) {
+					errorCode = ClearCase.ERROR_EXCEPTION;
+				}
+			}
+		}
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (errorCode != 0) {
+			fail(errorCode, "simulated failure of " + command); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Reports an error the way the real engine does.
+	 *
+	 * @param errorCode
+	 * @param message
+	 * @return never returns normally
+	 */
+	private static RuntimeException fail(int errorCode, String message) {
+		ClearCase.error(errorCode, message);
+		// not reached, ClearCase.error always throws
+		return new IllegalStateException(message);
+	}
+
+	private View view(String name) {
+		View view = views.get(name);
+		if (view == null)
+			throw fail(ClearCase.ERROR_EXCEPTION, "unknown view " + name); //$NON-NLS-1$
+		return view;
+	}
+
+	private Element element(String path) {
+		Element element = elements.get(path);
+		if (element == null)
+			throw fail(ClearCase.ERROR_EXCEPTION, "not a vob object: " + path); //$NON-NLS-1$
+		return element;
+	}
+
+	private View viewOf(String path) {
+		View result = null;
+		if (path == null)
+			return null;
+		for (View view : views.values()) {
+			if (isBelow(path, view.root)
+					&& (result == null || view.root.length() > result.root
+							.length())) {
+				result = view;
+			}
+		}
+		return result;
+	}
+
+	private String viewNameOf(String path) {
+		View view = viewOf(path);
+		return view == null ? null : view.name;
+	}
+
+	/**
+	 * Returns the name of the view containing a path, failing like cleartool
+	 * for paths outside every view.
+	 */
+	private String requireViewNameOf(String path) {
+		String view = viewNameOf(path);
+		if (view == null)
+			throw fail(ClearCase.ERROR_EXCEPTION, "not inside a view: " + path); //$NON-NLS-1$
+		return view;
+	}
+
+	private View currentView() {
+		return currentView == null ? null : views.get(currentView);
+	}
+
+	private static boolean isBelow(String path, String root) {
+		return path.equals(root)
+				|| (path.startsWith(root) && path.length() > root.length() && isSeparator(path
+						.charAt(root.length())));
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '/' || c == '\\';
+	}
+
+	private static String parentOf(String path) {
+		return new File(path).getParent();
+	}
+
+	private ClearCaseElementState stateOf(String path) {
+		Element element = elements.get(path);
+		View view = viewOf(path);
+		if (view == null)
+			return new ClearCaseElementState(path, ClearCase.OUTSIDE_VOB);
+		if (element == null)
+			return new ClearCaseElementState(path, ClearCase.VIEW_PRIVATE);
+
+		int state = ClearCase.IS_ELEMENT;
+		boolean checkedOut = view.name.equals(element.checkoutView);
+		state |= checkedOut ? ClearCase.CHECKED_OUT : ClearCase.CHECKED_IN;
+		if (element.hijacked && !checkedOut) {
+			state |= ClearCase.HIJACKED;
+		}
+		ClearCaseElementState result = new ClearCaseElementState(path, state);
+		result.version = checkedOut ? MAIN + CHECKEDOUT : MAIN + "/" //$NON-NLS-1$
+				+ (view.snapshot ? element.loadedVersion
+						: element.latestVersion);
+		return result;
+	}
+
+	private ClearCaseElementState[] statesOf(String[] paths) {
+		ClearCaseElementState[] result = new ClearCaseElementState[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			result[i] = stateOf(paths[i]);
+		}
+		return result;
+	}
+
+	private void requireCheckedOutParent(String path) {
+		String parent = parentOf(path);
+		Element element = parent == null ? null : elements.get(parent);
+		if (element == null
+				|| !requireViewNameOf(path).equals(element.checkoutView))
+			throw fail(ClearCase.ERROR_EXCEPTION,
+					"parent directory must be checked out: " + parent); //$NON-NLS-1$
+	}
+
+	private static void print(OperationListener listener, String message) {
+		if (listener != null) {
+			listener.print(message);
+		}
+	}
+
+	/*
+	 * ClearCaseInterface
+	 */
+
+	@Override
+	public ClearCaseElementState add(String element, boolean isDirectory,
+			String comment, int flags, OperationListener operationListener) {
+		simulate("add"); //$NON-NLS-1$
+		synchronized (this) {
+			if (elements.containsKey(element))
+				throw fail(ClearCase.ERROR_EXCEPTION, "element exists: " //$NON-NLS-1$
+						+ element);
+			requireCheckedOutParent(element);
+			viewPrivate.remove(element);
+			Element created = new Element(isDirectory, 0);
+			if ((flags & ClearCase.CHECKIN) != 0) {
+				created.latestVersion = 1;
+				created.loadedVersion = 1;
+			} else {
+				created.checkoutView = viewNameOf(element);
+				created.reserved = true;
+			}
+			elements.put(element, created);
+			print(operationListener, "Created element \"" + element + "\"."); //$NON-NLS-1$ //$NON-NLS-2$
+			return stateOf(element);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] checkin(String[] paths, String comment,
+			int flags, OperationListener operationListener) {
+		simulate("checkin"); //$NON-NLS-1$
+		synchronized (this) {
+			for (String path : paths) {
+				if (!isCheckedOut(path))
+					throw fail(ClearCase.ERROR_EXCEPTION, "not checked out: " //$NON-NLS-1$
+							+ path);
+			}
+			for (String path : paths) {
+				Element element = elements.get(path);
+				element.latestVersion++;
+				element.loadedVersion = element.latestVersion;
+				element.checkoutView = null;
+				element.hijacked = false;
+				print(operationListener, "Checked in \"" + path //$NON-NLS-1$
+						+ "\" version \"" + MAIN + "/" + element.latestVersion //$NON-NLS-1$ //$NON-NLS-2$
+						+ "\"."); //$NON-NLS-1$
+			}
+			return statesOf(paths);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] checkout(String[] paths, String comment,
+			int flags, OperationListener operationListener) {
+		simulate("checkout"); //$NON-NLS-1$
+		synchronized (this) {
+			boolean unreserved = (flags & ClearCase.UNRESERVED) != 0;
+			for (String path : paths) {
+				Element element = element(path);
+				String view = requireViewNameOf(path);
+				if (view.equals(element.checkoutView))
+					throw fail(ClearCase.ERROR_EXCEPTION,
+							"already checked out: " + path); //$NON-NLS-1$
+				if (!unreserved && element.checkoutView != null
+						&& element.reserved)
+					throw fail(ClearCase.ERROR_ELEMENT_HAS_CHECKOUTS,
+							"element has a reserved checkout: " + path); //$NON-NLS-1$
+			}
+			for (String path : paths) {
+				Element element = elements.get(path);
+				element.checkoutView = viewNameOf(path);
+				element.reserved = !unreserved;
+				if ((flags & ClearCase.HIJACKED) == 0) {
+					element.hijacked = false;
+				}
+				print(operationListener, "Checked out \"" + path //$NON-NLS-1$
+						+ "\" from version \"" + MAIN + "/" //$NON-NLS-1$ //$NON-NLS-2$
+						+ element.latestVersion + "\"."); //$NON-NLS-1$
+			}
+			return statesOf(paths);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] uncheckout(String[] paths, int flags,
+			OperationListener operationListener) {
+		simulate("uncheckout"); //$NON-NLS-1$
+		synchronized (this) {
+			for (String path : paths) {
+				if (!isCheckedOut(path))
+					throw fail(ClearCase.ERROR_EXCEPTION, "not checked out: " //$NON-NLS-1$
+							+ path);
+			}
+			for (String path : paths) {
+				Element element = elements.get(path);
+				element.checkoutView = null;
+				if (element.latestVersion == 0) {
+					// uncheckout of a new element removes it
+					elements.remove(path);
+					viewPrivate.add(path);
+				}
+				print(operationListener, "Checkout cancelled for \"" + path //$NON-NLS-1$
+						+ "\"."); //$NON-NLS-1$
+			}
+			return statesOf(paths);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] delete(String[] paths, String comment,
+			int flags, OperationListener operationListener) {
+		simulate("delete"); //$NON-NLS-1$
+		synchronized (this) {
+			for (String path : paths) {
+				element(path);
+				requireCheckedOutParent(path);
+			}
+			for (String path : paths) {
+				removeTree(path);
+				print(operationListener, "Removed \"" + path + "\"."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return statesOf(paths);
+		}
+	}
+
+	private void removeTree(String path) {
+		for (String child : childrenOf(path)) {
+			elements.remove(child);
+		}
+		elements.remove(path);
+	}
+
+	private List<String> childrenOf(String path) {
+		List<String> result = new ArrayList<String>();
+		for (String candidate : elements.tailMap(path).keySet()) {
+			if (!candidate.startsWith(path))
+				break;
+			if (isBelow(candidate, path) && !candidate.equals(path)) {
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public ClearCaseElementState[] move(String element, String target,
+			String comment, int flags, OperationListener operationListener) {
+		simulate("move"); //$NON-NLS-1$
+		synchronized (this) {
+			Element moved = element(element);
+			requireCheckedOutParent(element);
+			requireCheckedOutParent(target);
+			if (elements.containsKey(target))
+				throw fail(ClearCase.ERROR_EXCEPTION, "target exists: " //$NON-NLS-1$
+						+ target);
+			for (String child : childrenOf(element)) {
+				elements.put(target + child.substring(element.length()),
+						elements.remove(child));
+			}
+			elements.remove(element);
+			elements.put(target, moved);
+			print(operationListener, "Moved \"" + element + "\" to \"" //$NON-NLS-1$ //$NON-NLS-2$
+					+ target + "\"."); //$NON-NLS-1$
+			// like cleartool, report the move itself first
+			return new ClearCaseElementState[] {
+					new ClearCaseElementState(element, ClearCase.MOVED),
+					stateOf(target) };
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] unreserved(String[] paths, String comment,
+			int flags, OperationListener operationListener) {
+		simulate("unreserved"); //$NON-NLS-1$
+		return setReserved(paths, false, operationListener);
+	}
+
+	@Override
+	public ClearCaseElementState[] reserved(String[] paths, String comment,
+			int flags, OperationListener operationListener) {
+		simulate("reserved"); //$NON-NLS-1$
+		return setReserved(paths, true, operationListener);
+	}
+
+	private synchronized ClearCaseElementState[] setReserved(String[] paths,
+			boolean reserved, OperationListener operationListener) {
+		for (String path : paths) {
+			if (!isCheckedOut(path))
+				throw fail(ClearCase.ERROR_EXCEPTION, "not checked out: " //$NON-NLS-1$
+						+ path);
+			elements.get(path).reserved = reserved;
+			print(operationListener, "Changed checkout status of \"" + path //$NON-NLS-1$
+					+ "\" to " + (reserved ? "reserved." : "unreserved.")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return statesOf(paths);
+	}
+
+	@Override
+	public ClearCaseElementState[] requestMastership(String element,
+			String comment, int flags) {
+		simulate("requestMastership"); //$NON-NLS-1$
+		synchronized (this) {
+			element(element);
+			return new ClearCaseElementState[] { new ClearCaseElementState(
+					element, ClearCase.MASTERSHIP_CHANGED) };
+		}
+	}
+
+	@Override
+	public ClearCaseElementState getElementState(String element) {
+		simulate("getElementState"); //$NON-NLS-1$
+		synchronized (this) {
+			return stateOf(element);
+		}
+	}
+
+	@Override
+	public String getPreviousVersion(String element) {
+		simulate("getPreviousVersion"); //$NON-NLS-1$
+		synchronized (this) {
+			Element e = element(element);
+			int predecessor = isCheckedOut(element) ? e.latestVersion
+					: Math.max(0, e.latestVersion - 1);
+			return MAIN + "/" + predecessor; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public String[] describe(String element, int flags, String format) {
+		simulate("describe"); //$NON-NLS-1$
+		synchronized (this) {
+			// version extended paths describe the given version
+			int versionIndex = element.indexOf("@@"); //$NON-NLS-1$
+			String path = versionIndex < 0 ? element : element.substring(0,
+					versionIndex);
+			ClearCaseElementState state = stateOf(path);
+			if (!state.isElement())
+				return new String[0];
+			return new String[] { versionIndex < 0 ? path + "@@" //$NON-NLS-1$
+					+ state.version : element };
+		}
+	}
+
+	@Override
+	public String[] findCheckouts(int flags, HashMap<Integer, String> args,
+			String[] paths) {
+		simulate("findCheckouts"); //$NON-NLS-1$
+		synchronized (this) {
+			List<String> candidates = new ArrayList<String>();
+			for (String path : paths) {
+				candidates.add(path);
+				if ((flags & ClearCase.RECURSIVE) != 0) {
+					candidates.addAll(childrenOf(path));
+				}
+			}
+			List<String> result = new ArrayList<String>();
+			for (String path : candidates) {
+				Element element = elements.get(path);
+				if (element == null || element.checkoutView == null)
+					continue;
+				if ((flags & ClearCase.FORMAT) != 0) {
+					result.add(path + "\tPredecessor: " + MAIN + "/" //$NON-NLS-1$ //$NON-NLS-2$
+							+ element.latestVersion + "\tView: " //$NON-NLS-1$
+							+ element.checkoutView + "\tStatus: " //$NON-NLS-1$
+							+ (element.reserved ? "reserved" : "unreserved")); //$NON-NLS-1$ //$NON-NLS-2$
+				} else {
+					result.add(path);
+				}
+			}
+			return result.toArray(new String[result.size()]);
+		}
+	}
+
+	@Override
+	public Vector<MergeData> findMerge(String element, String branch) {
+		simulate("findMerge"); //$NON-NLS-1$
+		return new Vector<MergeData>();
+	}
+
+	@Override
+	public ClearCaseElementState merge(String targetPath,
+			String[] fromVersions, String baseVersion, int flags) {
+		simulate("merge"); //$NON-NLS-1$
+		synchronized (this) {
+			return stateOf(targetPath);
+		}
+	}
+
+	@Override
+	public void update(String element, int flags, boolean workingDir) {
+		simulate("update"); //$NON-NLS-1$
+		synchronized (this) {
+			// an update keeps hijacked files and checkouts
+			List<String> paths = childrenOf(element);
+			paths.add(element);
+			for (String path : paths) {
+				Element updated = elements.get(path);
+				if (updated != null && !updated.hijacked
+						&& updated.checkoutView == null) {
+					updated.loadedVersion = updated.latestVersion;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void get(int flags, HashMap<Integer, String> args, String version) {
+		simulate("get"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setGroup(String element, String group,
+			OperationListener operationListener) {
+		simulate("setGroup"); //$NON-NLS-1$
+	}
+
+	@Override
+	public boolean isDifferent(String element) {
+		simulate("isDifferent"); //$NON-NLS-1$
+		synchronized (this) {
+			Element e = elements.get(element);
+			return e != null && (e.hijacked || isCheckedOut(element));
+		}
+	}
+
+	@Override
+	public Vector<ElementHistory> getElementHistory(String element) {
+		simulate("getElementHistory"); //$NON-NLS-1$
+		return new Vector<ElementHistory>();
+	}
+
+	@Override
+	public String getViewName(String element) {
+		simulate("getViewName"); //$NON-NLS-1$
+		synchronized (this) {
+			String name = viewNameOf(element);
+			return name == null ? "" : name; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public String getViewType(String viewName) {
+		simulate("getViewType"); //$NON-NLS-1$
+		synchronized (this) {
+			return view(viewName).snapshot ? VIEW_TYPE_SNAPSHOT
+					: VIEW_TYPE_DYNAMIC;
+		}
+	}
+
+	@Override
+	public String getViewLocation() {
+		simulate("getViewLocation"); //$NON-NLS-1$
+		synchronized (this) {
+			View view = currentView();
+			return view == null ? "" : view.root; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public String getViewRoot(String element) {
+		simulate("getViewRoot"); //$NON-NLS-1$
+		synchronized (this) {
+			View view = viewOf(element);
+			return view == null || !view.snapshot ? "" : view.root; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public String getViewConfigSpec(String viewName) {
+		simulate("getViewConfigSpec"); //$NON-NLS-1$
+		synchronized (this) {
+			return view(viewName).configSpec;
+		}
+	}
+
+	@Override
+	public void setViewConfigSpec(String viewName, String configSpecFile,
+			String workingDir, OperationListener operationListener) {
+		simulate("setViewConfigSpec"); //$NON-NLS-1$
+		synchronized (this) {
+			view(viewName);
+		}
+	}
+
+	@Override
+	public void getCheckedOutElements(String path, boolean isSnapshot,
+			OperationListener operationListener) {
+		simulate("getCheckedOutElements"); //$NON-NLS-1$
+		List<String> lines = new ArrayList<String>();
+		synchronized (this) {
+			String view = viewNameOf(path);
+			for (Map.Entry<String, Element> entry : elements.tailMap(path)
+					.entrySet()) {
+				if (!entry.getKey().startsWith(path))
+					break;
+				if (isBelow(entry.getKey(), path)
+						&& entry.getValue().checkoutView != null
+						&& entry.getValue().checkoutView.equals(view)) {
+					lines.add(entry.getKey());
+				}
+			}
+		}
+		// report outside the lock like the streaming engine does
+		for (String line : lines) {
+			print(operationListener, line);
+		}
+	}
+
+	@Override
+	public void getViewLSPrivateList(String path,
+			OperationListener operationListener) {
+		simulate("getViewLSPrivateList"); //$NON-NLS-1$
+		reportViewPrivate(path, operationListener);
+	}
+
+	@Override
+	public void getViewLSViewOnlyList(String path,
+			OperationListener operationListener) {
+		simulate("getViewLSViewOnlyList"); //$NON-NLS-1$
+		reportViewPrivate(path, operationListener);
+	}
+
+	private void reportViewPrivate(String path,
+			OperationListener operationListener) {
+		List<String> lines = new ArrayList<String>();
+		synchronized (this) {
+			for (String file : viewPrivate) {
+				if (isBelow(file, path)) {
+					lines.add(file);
+				}
+			}
+		}
+		for (String line : lines) {
+			print(operationListener, line);
+		}
+	}
+
+	@Override
+	public void getUpdateList(String path, OperationListener operationListener) {
+		simulate("getUpdateList"); //$NON-NLS-1$
+		List<String> lines = new ArrayList<String>();
+		synchronized (this) {
+			View view = viewOf(path);
+			if (view != null) {
+				for (Map.Entry<String, Element> entry : elements.entrySet()) {
+					Element element = entry.getValue();
+					if (!isBelow(entry.getKey(), path)
+							|| entry.getKey().equals(view.root))
+						continue;
+					String relative = entry.getKey().substring(
+							view.root.length() + 1);
+					if (element.hijacked) {
+						lines.add("Keeping hijacked object \"" + relative //$NON-NLS-1$
+								+ "\" - base"); //$NON-NLS-1$
+					} else if (view.snapshot && element.checkoutView == null
+							&& element.loadedVersion < element.latestVersion) {
+						lines.add("Loading \"" + relative + "\" (0 bytes)."); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				}
+			}
+		}
+		for (String line : lines) {
+			print(operationListener, line);
+		}
+	}
+
+	@Override
+	public String[] getActivity(int flags, HashMap<Integer, String> args) {
+		simulate("getActivity"); //$NON-NLS-1$
+		synchronized (this) {
+			View view = null;
+			if (args != null && args.get(Integer.valueOf(ClearCase.VIEW)) != null) {
+				view = views.get(args.get(Integer.valueOf(ClearCase.VIEW)));
+			} else {
+				view = currentView();
+			}
+			if ((flags & ClearCase.CACT) != 0)
+				return view == null || view.activity.length() == 0 ? new String[0]
+						: new String[] { view.activity };
+			List<String> result = new ArrayList<String>();
+			for (Activity activity : activities.values()) {
+				if (view == null || view.stream.length() == 0
+						|| view.stream.equals(activity.stream)) {
+					result.add(activity.name);
+				}
+			}
+			return result.toArray(new String[result.size()]);
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] setActivity(int flags, String activity,
+			String viewName) {
+		simulate("setActivity"); //$NON-NLS-1$
+		synchronized (this) {
+			if (!activities.containsKey(activity))
+				throw fail(ClearCase.ERROR_EXCEPTION, "unknown activity " //$NON-NLS-1$
+						+ activity);
+			view(viewName).activity = activity;
+			return new ClearCaseElementState[] { new ClearCaseElementState(
+					activity, ClearCase.ACTIVITY_SET) };
+		}
+	}
+
+	@Override
+	public ClearCaseElementState[] mkActivity(int flags, String headline,
+			String activitySelector, String path) {
+		simulate("mkActivity"); //$NON-NLS-1$
+		synchronized (this) {
+			View view = path == null ? currentView() : viewOf(path);
+			String stream = view == null ? "" : view.stream; //$NON-NLS-1$
+			activities.put(activitySelector, new Activity(activitySelector,
+					headline, stream));
+			if (view != null && (flags & ClearCase.NSET) == 0) {
+				view.activity = activitySelector;
+			}
+			return new ClearCaseElementState[] { new ClearCaseElementState(
+					activitySelector, ClearCase.ACTIVITY_CREATED) };
+		}
+	}
+
+	@Override
+	public String[] getStream(int flags, HashMap<Integer, String> args) {
+		simulate("getStream"); //$NON-NLS-1$
+		synchronized (this) {
+			View view = currentView();
+			if (args != null && args.get(Integer.valueOf(ClearCase.VIEW)) != null) {
+				view = views.get(args.get(Integer.valueOf(ClearCase.VIEW)));
+			}
+			return view == null || view.stream.length() == 0 ? new String[0]
+					: new String[] { view.stream };
+		}
+	}
+
+	@Override
+	public String[] loadBrancheList(File workingDir) {
+		simulate("loadBrancheList"); //$NON-NLS-1$
+		return new String[] { MAIN.substring(1) };
+	}
+
+	@Override
+	public String[] searchFilesInBranch(String branchName, File workingDir,
+			OperationListener operationListener) {
+		simulate("searchFilesInBranch"); //$NON-NLS-1$
+		synchronized (this) {
+			if (!MAIN.substring(1).equals(branchName))
+				return new String[0];
+			List<String> result = new ArrayList<String>();
+			for (String path : elements.keySet()) {
+				if (isBelow(path, workingDir.getPath())) {
+					result.add(path);
+				}
+			}
+			return result.toArray(new String[result.size()]);
+		}
+	}
+
+	@Override
+	public void showVersionTree(String element, File workingDir) {
+		simulate("showVersionTree"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void showFindMerge(File workingDir) {
+		simulate("showFindMerge"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void compareWithPredecessor(String element) {
+		simulate("compareWithPredecessor"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void compareWithVersion(String element1, String element2) {
+		simulate("compareWithVersion"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void describeVersionGUI(String element) {
+		simulate("describeVersionGUI"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setDebugLevel(int level) {
+		// nothing to debug
+	}
+
+	@Override
+	public void dispose() {
+		// nothing to release
+	}
+}
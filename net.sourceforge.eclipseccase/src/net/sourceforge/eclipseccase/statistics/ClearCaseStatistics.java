@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.sourceforge.eclipseccase.ClearCasePlugin;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Collects runtime statistics of the ClearCase plugin: engine calls per
+ * command and view, the refresh queue and the state cache.
+ * <p>
+ * All recording methods are lock free and cheap compared to the cleartool
+ * calls they measure. The statistics can be queried through this class or
+ * over JMX (see {@link #registerMBean()}).
+ * </p>
+ */
+public class ClearCaseStatistics implements ClearCaseStatisticsMBean {
+
+	/** the JMX name */
+	public static final String OBJECT_NAME = "net.sourceforge.eclipseccase:type=Statistics"; //$NON-NLS-1$
+
+	private static final ClearCaseStatistics instance = new ClearCaseStatistics();
+
+	private final ConcurrentMap<String, CommandStatistics> commands = new ConcurrentHashMap<String, CommandStatistics>();
+
+	private final ConcurrentMap<String, CommandStatistics> viewCommands = new ConcurrentHashMap<String, CommandStatistics>();
+
+	private final AtomicInteger queueDepth = new AtomicInteger();
+
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+
+	private final AtomicLong cacheHits = new AtomicLong();
+
+	private final AtomicLong cacheMisses = new AtomicLong();
+
+	private ObjectName registeredName;
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return the statistics
+	 */
+	public static ClearCaseStatistics getInstance() {
+		return instance;
+	}
+
+	private ClearCaseStatistics() {
+		// singleton
+	}
+
+	/**
+	 * Records a finished engine call.
+	 *
+	 * @param command
+	 *            the command name
+	 * @param view
+	 *            the view the command ran in (maybe <code>null</code> or
+	 *            empty if unknown)
+	 * @param nanos
+	 *            the duration of the call
+	 * @param failed
+	 *            <code>true</code> if the call threw an exception
+	 */
+	public void recordCommand(String command, String view, long nanos,
+			boolean failed) {
+		lookup(commands, command, command, null).record(nanos, failed);
+		if (view != null && view.length() > 0) {
+			lookup(viewCommands, command + '@' + view, command, view).record(
+					nanos, failed);
+		}
+	}
+
+	private static CommandStatistics lookup(
+			ConcurrentMap<String, CommandStatistics> map, String key,
+			String command, String view) {
+		CommandStatistics stats = map.get(key);
+		if (stats == null) {
+			CommandStatistics created = new CommandStatistics(command, view);
+			stats = map.putIfAbsent(key, created);
+			if (stats == null) {
+				stats = created;
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Records the current size of the refresh queue.
+	 *
+	 * @param depth
+	 *            the number of queued jobs
+	 */
+	public void recordQueueDepth(int depth) {
+		queueDepth.set(depth);
+		int current = maxQueueDepth.get();
+		while (depth > current && !maxQueueDepth.compareAndSet(current, depth)) {
+			current = maxQueueDepth.get();
+		}
+	}
+
+	/**
+	 * Records how long a refresh job waited in the queue.
+	 *
+	 * @param nanos
+	 *            the waiting time
+	 */
+	public void recordQueueWait(long nanos) {
+		queueWait.recordNanos(nanos);
+	}
+
+	/**
+	 * Records a state cache lookup.
+	 *
+	 * @param hit
+	 *            <code>true</code> if the cached state was usable
+	 */
+	public void recordCacheLookup(boolean hit) {
+		if (hit) {
+			cacheHits.incrementAndGet();
+		} else {
+			cacheMisses.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the statistics of all commands over all views.
+	 *
+	 * @return the statistics sorted by command name
+	 */
+	public List<CommandStatistics> getCommandStatistics() {
+		return sorted(commands.values());
+	}
+
+	/**
+	 * Returns the statistics per command and view.
+	 *
+	 * @return the statistics sorted by command and view name
+	 */
+	public List<CommandStatistics> getViewStatistics() {
+		return sorted(viewCommands.values());
+	}
+
+	/**
+	 * Returns the statistics of the specified command.
+	 *
+	 * @param command
+	 * @return the statistics or <code>null</code> if the command was never
+	 *         called
+	 */
+	public CommandStatistics getCommandStatistics(String command) {
+		return commands.get(command);
+	}
+
+	private static List<CommandStatistics> sorted(
+			Collection<CommandStatistics> values) {
+		List<CommandStatistics> list = new ArrayList<CommandStatistics>(values);
+		Collections.sort(list, new Comparator<CommandStatistics>() {
+
+			public int compare(CommandStatistics o1, CommandStatistics o2) {
+				int result = o1.getCommand().compareTo(o2.getCommand());
+				if (result == 0 && o1.getView() != null
+						&& o2.getView() != null) {
+					result = o1.getView().compareTo(o2.getView());
+				}
+				return result;
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * Returns the histogram of the refresh queue waiting times.
+	 *
+	 * @return the histogram
+	 */
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	public long getCommandCount() {
+		long total = 0;
+		for (CommandStatistics stats : commands.values()) {
+			total += stats.getCount();
+		}
+		return total;
+	}
+
+	public long getCommandErrorCount() {
+		long total = 0;
+		for (CommandStatistics stats : commands.values()) {
+			total += stats.getErrorCount();
+		}
+		return total;
+	}
+
+	public String[] getCommandSummaries() {
+		return summaries(getCommandStatistics());
+	}
+
+	public String[] getViewSummaries() {
+		return summaries(getViewStatistics());
+	}
+
+	private static String[] summaries(List<CommandStatistics> list) {
+		String[] result = new String[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i).toString();
+		}
+		return result;
+	}
+
+	public long getCount(String command) {
+		CommandStatistics stats = commands.get(command);
+		return stats == null ? 0 : stats.getCount();
+	}
+
+	public long getErrorCount(String command) {
+		CommandStatistics stats = commands.get(command);
+		return stats == null ? 0 : stats.getErrorCount();
+	}
+
+	public long getLatencyPercentile(String command, double percentile) {
+		CommandStatistics stats = commands.get(command);
+		return stats == null ? 0 : stats.getLatency().getValueAtPercentile(
+				percentile);
+	}
+
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	public long getQueueWaitMean() {
+		return queueWait.getMean();
+	}
+
+	public long getQueueWaitP99() {
+		return queueWait.getValueAtPercentile(99);
+	}
+
+	public long getStateCacheHits() {
+		return cacheHits.get();
+	}
+
+	public long getStateCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	public double getStateCacheHitRate() {
+		long hits = cacheHits.get();
+		long total = hits + cacheMisses.get();
+		return total == 0 ? 0.0 : hits * 100.0 / total;
+	}
+
+	public void reset() {
+		// keep the entries, callers may hold references
+		for (CommandStatistics stats : commands.values()) {
+			stats.reset();
+		}
+		for (CommandStatistics stats : viewCommands.values()) {
+			stats.reset();
+		}
+		maxQueueDepth.set(queueDepth.get());
+		queueWait.reset();
+		cacheHits.set(0);
+		cacheMisses.set(0);
+	}
+
+	/**
+	 * Registers the statistics with the platform MBean server.
+	 */
+	public synchronized void registerMBean() {
+		if (registeredName != null)
+			return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+				registeredName = name;
+			}
+		} catch (Exception e) {
+			// JMX is optional
+			ClearCasePlugin.log(IStatus.WARNING,
+					"Could not register ClearCase statistics MBean", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Removes the statistics from the platform MBean server.
+	 */
+	public synchronized void unregisterMBean() {
+		if (registeredName == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					registeredName);
+		} catch (Exception e) {
+			// ignore, we are shutting down
+		}
+		registeredName = null;
+	}
+}
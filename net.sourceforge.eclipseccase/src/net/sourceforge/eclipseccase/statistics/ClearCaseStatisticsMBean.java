@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.statistics;
+
+/**
+ * JMX view on the {@link ClearCaseStatistics}.
+ * <p>
+ * Times are reported in micro seconds.
+ * </p>
+ */
+public interface ClearCaseStatisticsMBean {
+
+	/** total number of engine calls */
+	long getCommandCount();
+
+	/** total number of failed engine calls */
+	long getCommandErrorCount();
+
+	/** one summary line per command */
+	String[] getCommandSummaries();
+
+	/** one summary line per command and view */
+	String[] getViewSummaries();
+
+	/** number of calls of the specified command */
+	long getCount(String command);
+
+	/** number of failed calls of the specified command */
+	long getErrorCount(String command);
+
+	/** latency percentile of the specified command */
+	long getLatencyPercentile(String command, double percentile);
+
+	/** current number of jobs in the refresh queue */
+	int getQueueDepth();
+
+	/** highest number of jobs seen in the refresh queue */
+	int getMaxQueueDepth();
+
+	/** mean time a refresh job waited in the queue */
+	long getQueueWaitMean();
+
+	/** 99th percentile of the time a refresh job waited in the queue */
+	long getQueueWaitP99();
+
+	/** number of state cache lookups that found an initialized state */
+	long getStateCacheHits();
+
+	/** number of state cache lookups that needed a refresh */
+	long getStateCacheMisses();
+
+	/** state cache hits in percent */
+	double getStateCacheHitRate();
+
+	/** clears all statistics */
+	void reset();
+}
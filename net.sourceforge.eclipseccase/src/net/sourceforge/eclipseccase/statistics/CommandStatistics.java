@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call statistics for one ClearCase command (optionally restricted to one
+ * view).
+ */
+public class CommandStatistics {
+
+	private final String command;
+
+	private final String view;
+
+	private final AtomicLong errors = new AtomicLong();
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param command
+	 *            the command name
+	 * @param view
+	 *            the view name (<code>null</code> for all views)
+	 */
+	CommandStatistics(String command, String view) {
+		this.command = command;
+		this.view = view;
+	}
+
+	/**
+	 * Records a finished call.
+	 *
+	 * @param nanos
+	 *            the duration of the call
+	 * @param failed
+	 *            <code>true</code> if the call threw an exception
+	 */
+	void record(long nanos, boolean failed) {
+		latency.recordNanos(nanos);
+		if (failed) {
+			errors.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the command name.
+	 *
+	 * @return the command
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Returns the view name.
+	 *
+	 * @return the view or <code>null</code> if these are the statistics over
+	 *         all views
+	 */
+	public String getView() {
+		return view;
+	}
+
+	/**
+	 * Returns the number of calls.
+	 *
+	 * @return the call count
+	 */
+	public long getCount() {
+		return latency.getCount();
+	}
+
+	/**
+	 * Returns the number of calls that threw an exception.
+	 *
+	 * @return the error count
+	 */
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	/**
+	 * Returns the latency histogram (micro seconds).
+	 *
+	 * @return the histogram
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	void reset() {
+		errors.set(0);
+		latency.reset();
+	}
+
+	/**
+	 * Returns a one line summary (times in milli seconds).
+	 *
+	 * @return the summary
+	 */
+	@Override
+	public String toString() {
+		StringBuffer sb = new StringBuffer(command);
+		if (view != null) {
+			sb.append('@').append(view);
+		}
+		sb.append(" count=").append(getCount()); //$NON-NLS-1$
+		sb.append(" errors=").append(getErrorCount()); //$NON-NLS-1$
+		sb.append(" mean=").append(millis(latency.getMean())); //$NON-NLS-1$
+		sb.append(" p50=").append(millis(latency.getValueAtPercentile(50))); //$NON-NLS-1$
+		sb.append(" p90=").append(millis(latency.getValueAtPercentile(90))); //$NON-NLS-1$
+		sb.append(" p99=").append(millis(latency.getValueAtPercentile(99))); //$NON-NLS-1$
+		sb.append(" max=").append(millis(latency.getMax())); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	private static String millis(long micros) {
+		return (micros / 1000) + "." + (micros % 1000 / 100) + "ms"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.statistics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Always-on recorder of the most recent ClearCase activity.
+ * <p>
+ * Events are kept in a fixed size ring buffer; recording one costs a single
+ * allocation and an atomic increment. The buffer can be written in the Chrome
+ * trace event format (load it with <code>chrome://tracing</code>) to see
+ * overlapping cleartool calls and refresh queue stalls on a timeline.
+ * </p>
+ */
+public class FlightRecorder {
+
+	/** category for engine calls */
+	public static final String CATEGORY_ENGINE = "engine"; //$NON-NLS-1$
+
+	/** category for state cache refresh jobs */
+	public static final String CATEGORY_STATE_CACHE = "stateCache"; //$NON-NLS-1$
+
+	/** category for resource delta batches */
+	public static final String CATEGORY_DELTA = "delta"; //$NON-NLS-1$
+
+	/** category for label decoration updates */
+	public static final String CATEGORY_LABELS = "labels"; //$NON-NLS-1$
+
+	/** number of events kept */
+	private static final int CAPACITY = 8192;
+
+	private static final FlightRecorder instance = new FlightRecorder();
+
+	/**
+	 * A recorded event.
+	 */
+	public static final class Event {
+
+		final String category;
+
+		final String name;
+
+		final String detail;
+
+		final long start;
+
+		final long end;
+
+		final long threadId;
+
+		final String threadName;
+
+		Event(String category, String name, String detail, long start,
+				long end, Thread thread) {
+			this.category = category;
+			this.name = name;
+			this.detail = detail;
+			this.start = start;
+			this.end = end;
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+		}
+
+		public String getCategory() {
+			return category;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDetail() {
+			return detail;
+		}
+
+		/** start time (see {@link System#nanoTime()}) */
+		public long getStart() {
+			return start;
+		}
+
+		/** end time (see {@link System#nanoTime()}) */
+		public long getEnd() {
+			return end;
+		}
+
+		public String getThreadName() {
+			return threadName;
+		}
+	}
+
+	private final AtomicReferenceArray<Event> events = new AtomicReferenceArray<Event>(
+			CAPACITY);
+
+	private final AtomicLong next = new AtomicLong();
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return the recorder
+	 */
+	public static FlightRecorder getInstance() {
+		return instance;
+	}
+
+	private FlightRecorder() {
+		// singleton
+	}
+
+	/**
+	 * Records an event that ends now.
+	 *
+	 * @param category
+	 *            the event category (see the <code>CATEGORY_*</code>
+	 *            constants)
+	 * @param name
+	 *            the event name
+	 * @param start
+	 *            the start time (see {@link System#nanoTime()})
+	 * @param detail
+	 *            additional information (maybe <code>null</code>)
+	 */
+	public void record(String category, String name, long start,
+			String detail) {
+		record(category, name, start, System.nanoTime(), detail);
+	}
+
+	/**
+	 * Records an event.
+	 *
+	 * @param category
+	 *            the event category (see the <code>CATEGORY_*</code>
+	 *            constants)
+	 * @param name
+	 *            the event name
+	 * @param start
+	 *            the start time (see {@link System#nanoTime()})
+	 * @param end
+	 *            the end time (see {@link System#nanoTime()})
+	 * @param detail
+	 *            additional information (maybe <code>null</code>)
+	 */
+	public void record(String category, String name, long start, long end,
+			String detail) {
+		int slot = (int) (next.getAndIncrement() % CAPACITY);
+		events.set(slot, new Event(category, name, detail, start, end, Thread
+				.currentThread()));
+	}
+
+	/**
+	 * Returns the recorded events ordered by start time.
+	 *
+	 * @return the events
+	 */
+	public List<Event> getEvents() {
+		List<Event> result = new ArrayList<Event>(CAPACITY);
+		for (int i = 0; i < CAPACITY; i++) {
+			Event event = events.get(i);
+			if (event != null) {
+				result.add(event);
+			}
+		}
+		Collections.sort(result, new Comparator<Event>() {
+
+			public int compare(Event e1, Event e2) {
+				return e1.start < e2.start ? -1 : (e1.start == e2.start ? 0
+						: 1);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Discards all recorded events.
+	 */
+	public void clear() {
+		for (int i = 0; i < CAPACITY; i++) {
+			events.set(i, null);
+		}
+	}
+
+	/**
+	 * Writes the recorded events in the Chrome trace event format.
+	 *
+	 * @param writer
+	 *            the target (not closed)
+	 * @throws IOException
+	 */
+	public void writeTraceEvents(Writer writer) throws IOException {
+		List<Event> list = getEvents();
+		long base = list.isEmpty() ? 0 : list.get(0).start;
+		Map<Long, String> threads = new HashMap<Long, String>();
+
+		writer.write("{\"traceEvents\":[\n"); //$NON-NLS-1$
+		boolean first = true;
+		for (Event event : list) {
+			if (!first) {
+				writer.write(",\n"); //$NON-NLS-1$
+			}
+			first = false;
+			threads.put(Long.valueOf(event.threadId), event.threadName);
+			writer.write("{\"name\":"); //$NON-NLS-1$
+			writeString(writer, event.name);
+			writer.write(",\"cat\":"); //$NON-NLS-1$
+			writeString(writer, event.category);
+			writer.write(",\"ph\":\"X\",\"pid\":1,\"tid\":"); //$NON-NLS-1$
+			writer.write(Long.toString(event.threadId));
+			writer.write(",\"ts\":"); //$NON-NLS-1$
+			writer.write(Long.toString((event.start - base) / 1000));
+			writer.write(",\"dur\":"); //$NON-NLS-1$
+			writer.write(Long.toString(Math.max(0, event.end - event.start) / 1000));
+			if (event.detail != null) {
+				writer.write(",\"args\":{\"detail\":"); //$NON-NLS-1$
+				writeString(writer, event.detail);
+				writer.write('}');
+			}
+			writer.write('}');
+		}
+		for (Map.Entry<Long, String> thread : threads.entrySet()) {
+			writer.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":"); //$NON-NLS-1$
+			writer.write(thread.getKey().toString());
+			writer.write(",\"args\":{\"name\":"); //$NON-NLS-1$
+			writeString(writer, thread.getValue());
+			writer.write("}}"); //$NON-NLS-1$
+		}
+		writer.write("\n]}\n"); //$NON-NLS-1$
+		writer.flush();
+	}
+
+	private static void writeString(Writer writer, String value)
+			throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				writer.write("\\\""); //$NON-NLS-1$
+				break;
+			case '\\':
+				writer.write("\\\\"); //$NON-NLS-1$
+				break;
+			case '\n':
+				writer.write("\\n"); //$NON-NLS-1$
+				break;
+			case '\r':
+				writer.write("\\r"); //$NON-NLS-1$
+				break;
+			case '\t':
+				writer.write("\\t"); //$NON-NLS-1$
+				break;
+			default:
+				if (c < 0x20) {
+					String hex = Integer.toHexString(c);
+					writer.write("\\u"); //$NON-NLS-1$
+					for (int j = hex.length(); j < 4; j++) {
+						writer.write('0');
+					}
+					writer.write(hex);
+				} else {
+					writer.write(c);
+				}
+			}
+		}
+		writer.write('"');
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2002, 2004 eclipse-ccase.sourceforge.net.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/cpl-v10.html
+ *******************************************************************************/
+package net.sourceforge.eclipseccase.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free latency histogram with logarithmic buckets.
+ * <p>
+ * Values are recorded in microseconds. Every power of two is split into 8
+ * linear sub-buckets so that a reported percentile is never off by more than
+ * 12.5%. The histogram covers values up to 2^40 microseconds (about 12 days);
+ * larger values are counted in the last bucket.
+ * </p>
+ */
+public class LatencyHistogram {
+
+	/** number of sub-buckets per power of two (must be a power of two) */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** the highest tracked power of two */
+	private static final int MAX_EXPONENT = 40;
+
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2)
+			* SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 *            the duration in nano seconds
+	 */
+	public void recordNanos(long nanos) {
+		record(nanos / 1000);
+	}
+
+	/**
+	 * Records a value.
+	 *
+	 * @param micros
+	 *            the value in micro seconds
+	 */
+	public void record(long micros) {
+		if (micros < 0) {
+			micros = 0;
+		}
+		buckets.incrementAndGet(indexOf(micros));
+		count.incrementAndGet();
+		sum.addAndGet(micros);
+		long current = max.get();
+		while (micros > current && !max.compareAndSet(current, micros)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the sum of all recorded values in micro seconds.
+	 *
+	 * @return the total
+	 */
+	public long getTotal() {
+		return sum.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded values in micro seconds.
+	 *
+	 * @return the mean or <code>0</code> if nothing was recorded
+	 */
+	public long getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : sum.get() / n;
+	}
+
+	/**
+	 * Returns the largest recorded value in micro seconds.
+	 *
+	 * @return the maximum
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the recorded
+	 * values fall.
+	 *
+	 * @param percentile
+	 *            the percentile (0..100)
+	 * @return the value in micro seconds (upper bound of the bucket)
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long n = count.get();
+		if (n == 0)
+			return 0;
+		long rank = (long) Math.ceil(Math.min(100.0, Math.max(0.0,
+				percentile))
+				/ 100.0 * n);
+		if (rank < 1) {
+			rank = 1;
+		}
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank)
+				return Math.min(upperBoundOf(i), max.get());
+		}
+		return max.get();
+	}
+
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * Returns the bucket index for the specified value.
+	 *
+	 * @param value
+	 * @return the index
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT)
+			return BUCKET_COUNT - 1;
+		int subBucket = (int) (value >> (exponent - SUB_BUCKET_BITS))
+				& (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest value that falls into the specified bucket.
+	 *
+	 * @param index
+	 * @return the upper bound
+	 */
+	static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -174,6 +174,11 @@ public class XMLWriter extends PrintWriter {
 			return "apos"; //$NON-NLS-1$
 		case '&':
 			return "amp"; //$NON-NLS-1$
+		case '\n':
+			// keeps line breaks of attribute values
+			return "#10"; //$NON-NLS-1$
+		case '\r':
+			return "#13"; //$NON-NLS-1$
 		}
 		return null;
 	}